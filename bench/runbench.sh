@@ -0,0 +1,21 @@
+#!/usr/bin/env bash
+
+# Compiles Porus together with the benchmark sources and runs the suite.
+# Any arguments are passed through, e.g.
+#   ./runbench.sh --sizes 1000,100000 --out results.json
+
+cd "$(dirname "$0")"
+
+# start from a clean output folder
+rm -rf ../bin-bench
+mkdir ../bin-bench
+
+# compile the code into the bin-bench folder, terminates if error occurred
+if ! javac -Xlint:none -d ../bin-bench $(find ../src/main/java ../src/bench/java -name '*.java')
+then
+    echo "********** BUILD FAILURE **********"
+    exit 1
+fi
+
+# fixed heap and a single GC keep runs comparable between machines
+java -Xms2g -Xmx2g -XX:+UseParallelGC -classpath ../bin-bench porus.bench.PorusBenchmarks "$@"
@@ -0,0 +1,213 @@
+package porus.bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal benchmark harness modelled on JMH's average-time mode.
+ * <p>
+ * Each benchmark runs a fixed number of warmup and measurement iterations.
+ * An iteration repeats the operation until at least {@link #iterationNanos}
+ * have passed and records the average time per operation. Results are
+ * written as JSON in the same shape as JMH's {@code -rf json} output so
+ * that runs can be diffed with the usual tools. Like JMH's {@code -prof gc},
+ * the bytes allocated per operation are reported as a secondary metric.
+ */
+public class BenchRunner {
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+    private final List<Result> results = new ArrayList<>();
+    private long ops;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Written to after every call so the JIT cannot drop the benchmarked work
+    private volatile Object sink;
+
+    /**
+     * Creates a runner.
+     *
+     * @param warmupIterations iterations run before measuring
+     * @param measurementIterations iterations that are recorded
+     * @param iterationMillis minimum length of one iteration
+     */
+    public BenchRunner(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    /**
+     * Runs one benchmark and records its result.
+     *
+     * @param name benchmark name, e.g. "porus.bench.ParserBench.parse"
+     * @param params parameter values for this run, shown in the report
+     * @param operation operation to time; its return value is consumed
+     * @throws Exception If the operation fails.
+     */
+    public void run(String name, Map<String, String> params, Callable<?> operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+
+        double[] samples = new double[measurementIterations];
+        double[] allocations = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            long allocatedBefore = allocatedBytes();
+            long opsBefore = ops;
+            samples[i] = runIteration(operation);
+            allocations[i] = (double) (allocatedBytes() - allocatedBefore) / (ops - opsBefore);
+        }
+
+        Result result = new Result(name, new LinkedHashMap<>(params), "ns/op", samples, allocations);
+        results.add(result);
+        System.err.printf("%-50s %-30s %14.1f +- %10.1f ns/op %12.1f B/op%n",
+                name, params, result.mean(), result.error(), Result.average(allocations));
+    }
+
+    /**
+     * Records a value measured outside the timing loop, such as retained
+     * heap, as a result with its own unit and no allocation metric.
+     *
+     * @param name benchmark name
+     * @param params parameter values for this run, shown in the report
+     * @param value measured value
+     * @param unit unit of the value, e.g. "B/task"
+     */
+    public void record(String name, Map<String, String> params, double value, String unit) {
+        results.add(new Result(name, new LinkedHashMap<>(params), unit, new double[] {value}, null));
+        System.err.printf("%-50s %-30s %14.1f %s%n", name, params, value, unit);
+    }
+
+    /**
+     * Writes all results recorded so far as a JMH-style JSON array.
+     *
+     * @param path output file
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeJson(String path) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                out.print(results.get(i).toJson());
+                out.println(i + 1 < results.size() ? "," : "");
+            }
+            out.println("]");
+        }
+    }
+
+    private double runIteration(Callable<?> operation) throws Exception {
+        long iterationOps = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        do {
+            sink = operation.call();
+            iterationOps++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+
+        ops += iterationOps;
+        return (double) elapsed / iterationOps;
+    }
+
+    private long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Timings of a single benchmark and parameter combination.
+     */
+    private static class Result {
+
+        private final String name;
+        private final Map<String, String> params;
+        private final String unit;
+        private final double[] samples;
+        private final double[] allocations;
+
+        Result(String name, Map<String, String> params, String unit, double[] samples, double[] allocations) {
+            this.name = name;
+            this.params = params;
+            this.unit = unit;
+            this.samples = samples;
+            this.allocations = allocations;
+        }
+
+        static double average(double[] values) {
+            double sum = 0;
+            for (double value : values) {
+                sum += value;
+            }
+            return sum / values.length;
+        }
+
+        double mean() {
+            return average(samples);
+        }
+
+        /**
+         * Returns the sample standard deviation of the iteration averages.
+         */
+        double error() {
+            if (samples.length < 2) {
+                return 0;
+            }
+            double mean = mean();
+            double squares = 0;
+            for (double sample : samples) {
+                squares += (sample - mean) * (sample - mean);
+            }
+            return Math.sqrt(squares / (samples.length - 1));
+        }
+
+        String toJson() {
+            StringBuilder json = new StringBuilder();
+            json.append("  {\n");
+            json.append("    \"benchmark\" : \"").append(name).append("\",\n");
+            json.append("    \"mode\" : \"avgt\",\n");
+            json.append("    \"measurementIterations\" : ").append(samples.length).append(",\n");
+            json.append("    \"params\" : {");
+            int count = 0;
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                json.append(count++ == 0 ? " " : ", ");
+                json.append('"').append(param.getKey()).append("\" : \"")
+                        .append(param.getValue()).append('"');
+            }
+            json.append(count > 0 ? " },\n" : "},\n");
+            json.append("    \"primaryMetric\" : {\n");
+            json.append("      \"score\" : ").append(mean()).append(",\n");
+            json.append("      \"scoreError\" : ").append(error()).append(",\n");
+            json.append("      \"scoreUnit\" : \"").append(unit).append("\",\n");
+            json.append("      \"rawData\" : [ [ ");
+            for (int i = 0; i < samples.length; i++) {
+                json.append(i > 0 ? ", " : "").append(samples[i]);
+            }
+            json.append(" ] ]\n");
+            if (allocations == null) {
+                json.append("    }\n");
+                json.append("  }");
+                return json.toString();
+            }
+            json.append("    },\n");
+            json.append("    \"secondaryMetrics\" : {\n");
+            json.append("      \"gc.alloc.rate.norm\" : {\n");
+            json.append("        \"score\" : ").append(average(allocations)).append(",\n");
+            json.append("        \"scoreUnit\" : \"B/op\"\n");
+            json.append("      }\n");
+            json.append("    }\n");
+            json.append("  }");
+            return json.toString();
+        }
+    }
+}
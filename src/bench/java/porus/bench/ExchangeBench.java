@@ -0,0 +1,60 @@
+package porus.bench;
+
+import porus.ExchangeFormat;
+import porus.TaskExporter;
+import porus.TaskImporter;
+import porus.task.Task;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Times exporting a list with a given number of tasks to a JSON Lines and
+ * a CSV file with {@link TaskExporter}, and reading the tasks back with
+ * {@link TaskImporter}.
+ */
+final class ExchangeBench {
+
+    private static final String[] FORMATS = {"jsonl", "csv"};
+
+    private ExchangeBench() {
+    }
+
+    static void run(BenchRunner runner, int[] sizes) throws Exception {
+        File directory = Files.createTempDirectory("porus-bench").toFile();
+
+        for (int size : sizes) {
+            ArrayList<Task> tasks = Fixtures.tasks(size);
+
+            for (String suffix : FORMATS) {
+                File file = new File(directory, "tasks-" + size + "." + suffix);
+                ExchangeFormat format = ExchangeFormat.of(file.getName());
+                Map<String, String> params = Map.of("size", String.valueOf(size), "format", suffix);
+
+                runner.run("porus.bench.ExchangeBench.export", params, () -> {
+                    try (TaskExporter exporter = new TaskExporter(file.toPath(), format)) {
+                        for (Task task : tasks) {
+                            exporter.write(task);
+                        }
+                        return exporter.getCount();
+                    }
+                });
+                runner.run("porus.bench.ExchangeBench.import", params, () -> {
+                    try (TaskImporter importer = new TaskImporter(file.toPath(), format)) {
+                        int count = 0;
+                        while (importer.next() != null) {
+                            count++;
+                        }
+                        return count;
+                    }
+                });
+
+                file.delete();
+            }
+        }
+
+        directory.delete();
+    }
+}
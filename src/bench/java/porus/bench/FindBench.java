@@ -0,0 +1,53 @@
+package porus.bench;
+
+import porus.TaskList;
+import porus.UI;
+import porus.command.FindCommand;
+
+import java.io.PrintStream;
+import java.util.Map;
+
+/**
+ * Times {@link FindCommand} end to end, including rendering and flushing
+ * the response to a stream that discards it,
+ * for a rare word, a common word and a multi-word query.
+ */
+final class FindBench {
+
+    private static final String[][] QUERIES = {
+        {"single", "quiz"},
+        {"and", "read book"},
+        {"or", "quiz | gym"},
+        {"miss", "nonexistent"},
+        {"prefix", "qui*"},
+        {"fuzzy", "retrun~ book"},
+    };
+
+    private FindBench() {
+    }
+
+    static void run(BenchRunner runner, int[] sizes) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(Fixtures.nullStream());
+
+        try {
+            UI ui = new UI();
+            for (int size : sizes) {
+                TaskList tasks = new TaskList(Fixtures.tasks(size));
+
+                for (String[] query : QUERIES) {
+                    FindCommand command = new FindCommand(query[1]);
+                    runner.run("porus.bench.FindBench.find",
+                            Map.of("size", String.valueOf(size), "query", query[0]),
+                            () -> {
+                                command.execute(tasks, ui, null);
+                                ui.flush();
+                                return command;
+                            });
+                }
+            }
+        } finally {
+            System.setOut(console);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package porus.bench;
+
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Deterministic test data shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final String[] WORDS = {
+        "read", "book", "return", "submit", "assignment", "project", "meeting",
+        "buy", "groceries", "call", "mum", "review", "code", "write", "report",
+        "plan", "trip", "clean", "room", "pay", "bills", "gym", "lecture", "quiz",
+    };
+
+    static final String[] DAYS = {
+        "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday",
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns a reproducible mix of todos, deadlines and events.
+     *
+     * @param count number of tasks
+     * @return generated tasks
+     */
+    static ArrayList<Task> tasks(int count) {
+        Random random = new Random(42);
+        ArrayList<Task> tasks = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            tasks.add(task(random, i));
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Returns one generated task.
+     *
+     * @param random source of randomness
+     * @param serial number included in the description to keep it distinct
+     * @return generated task
+     */
+    static Task task(Random random, int serial) {
+        String description = WORDS[random.nextInt(WORDS.length)] + " "
+                + WORDS[random.nextInt(WORDS.length)] + " " + serial;
+        Task task;
+
+        switch (random.nextInt(3)) {
+        case 0:
+            task = new Todo(description);
+            break;
+        case 1:
+            task = new Deadline(description, DAYS[random.nextInt(DAYS.length)]);
+            break;
+        default:
+            task = new Event(description, DAYS[random.nextInt(DAYS.length)] + " 2pm",
+                    DAYS[random.nextInt(DAYS.length)] + " 4pm");
+            break;
+        }
+
+        task.setDone(random.nextBoolean());
+        return task;
+    }
+
+    /**
+     * Returns a stream that discards everything written to it.
+     *
+     * @return null print stream
+     */
+    static PrintStream nullStream() {
+        return new PrintStream(OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,82 @@
+package porus.bench;
+
+import porus.Storage;
+import porus.TaskList;
+import porus.task.Task;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Measures the heap retained per task after {@link Storage#load()}, in both
+ * file formats. The generated tasks repeat their deadline and event times,
+ * as real lists do, so the figure shows how much sharing text fields saves.
+ * Also measures the heap retained per task by a list opened in each
+ * {@link TaskList.Layout}, after every task has been read once.
+ */
+final class MemoryBench {
+
+    private static final String[] FORMATS = {"txt", "bin"};
+
+    private MemoryBench() {
+    }
+
+    static void run(BenchRunner runner, int[] sizes) throws Exception {
+        File directory = Files.createTempDirectory("porus-bench").toFile();
+
+        for (int size : sizes) {
+            for (String format : FORMATS) {
+                File file = new File(directory, "tasks-" + size + "." + format);
+                Storage.create(file.getPath()).save(Fixtures.tasks(size));
+
+                long before = usedHeap();
+                ArrayList<Task> tasks = Storage.create(file.getPath()).load();
+                long after = usedHeap();
+
+                runner.record("porus.bench.MemoryBench.retainedPerTask",
+                        Map.of("size", String.valueOf(size), "format", format),
+                        (double) (after - before) / tasks.size(), "B/task");
+
+                for (File child : directory.listFiles()) {
+                    child.delete();
+                }
+            }
+
+            File file = new File(directory, "tasks-" + size + ".bin");
+            Storage.create(file.getPath()).save(Fixtures.tasks(size));
+
+            for (TaskList.Layout layout : TaskList.Layout.values()) {
+                Storage storage = Storage.create(file.getPath());
+                storage.setLayout(layout);
+
+                long before = usedHeap();
+                TaskList tasks = storage.open();
+                for (Iterator<Task> it = tasks.iterator(0); it.hasNext(); ) {
+                    it.next();
+                }
+                long after = usedHeap();
+
+                runner.record("porus.bench.MemoryBench.listRetainedPerTask",
+                        Map.of("size", String.valueOf(size), "layout", layout.name().toLowerCase()),
+                        (double) (after - before) / tasks.size(), "B/task");
+            }
+
+            for (File child : directory.listFiles()) {
+                child.delete();
+            }
+        }
+
+        directory.delete();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
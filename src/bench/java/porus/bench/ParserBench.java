@@ -0,0 +1,53 @@
+package porus.bench;
+
+import porus.Parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Times {@link Parser#parse(String)} for one input per command keyword.
+ * The keywords come from {@link Parser#keywords()}, so a keyword added to
+ * the parser without a sample input here stops the run instead of going
+ * unmeasured.
+ */
+final class ParserBench {
+
+    private static final Map<String, String> INPUTS = new LinkedHashMap<>();
+
+    static {
+        INPUTS.put("bye", "bye");
+        INPUTS.put("list", "list 1-20 undone type:D");
+        INPUTS.put("mark", "mark 3");
+        INPUTS.put("unmark", "unmark 3");
+        INPUTS.put("delete", "delete 3");
+        INPUTS.put("todo", "todo read book");
+        INPUTS.put("deadline", "deadline return book /by Sunday");
+        INPUTS.put("event", "event project meeting /from Mon 2pm /to 4pm");
+        INPUTS.put("find", "find book");
+        INPUTS.put("due", "due 2024-06-30");
+        INPUTS.put("upcoming", "upcoming 5");
+        INPUTS.put("between", "between 2024-06-01 /and 2024-06-30");
+        INPUTS.put("undo", "undo");
+        INPUTS.put("redo", "redo");
+        INPUTS.put("stats", "stats");
+        INPUTS.put("lists", "lists");
+        INPUTS.put("switch", "switch work");
+        INPUTS.put("export", "export backup/tasks.jsonl");
+        INPUTS.put("import", "import tasks.csv");
+    }
+
+    private ParserBench() {
+    }
+
+    static void run(BenchRunner runner) throws Exception {
+        for (String keyword : Parser.keywords()) {
+            String line = INPUTS.get(keyword);
+            if (line == null) {
+                throw new IllegalStateException("No sample input for command keyword: " + keyword);
+            }
+            runner.run("porus.bench.ParserBench.parse", Map.of("command", keyword),
+                    () -> Parser.parse(line));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package porus.bench;
+
+/**
+ * Entry point of the benchmark suite.
+ * <p>
+ * Usage: {@code PorusBenchmarks [--sizes 1000,100000,1000000] [--warmup N]
+ * [--iterations N] [--time MILLIS] [--out FILE]}
+ */
+public class PorusBenchmarks {
+
+    private static final String DEFAULT_SIZES = "1000,100000,1000000";
+    private static final String DEFAULT_OUT = "bench-results.json";
+
+    public static void main(String[] args) throws Exception {
+        String sizes = DEFAULT_SIZES;
+        String out = DEFAULT_OUT;
+        int warmup = 3;
+        int iterations = 5;
+        long time = 500;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+            case "--sizes":
+                sizes = args[i + 1];
+                break;
+            case "--warmup":
+                warmup = Integer.parseInt(args[i + 1]);
+                break;
+            case "--iterations":
+                iterations = Integer.parseInt(args[i + 1]);
+                break;
+            case "--time":
+                time = Long.parseLong(args[i + 1]);
+                break;
+            case "--out":
+                out = args[i + 1];
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        int[] sizeValues = parseSizes(sizes);
+        BenchRunner runner = new BenchRunner(warmup, iterations, time);
+
+        ParserBench.run(runner);
+        StorageBench.run(runner, sizeValues);
+        ExchangeBench.run(runner, sizeValues);
+        TaskListBench.run(runner, sizeValues);
+        FindBench.run(runner, sizeValues);
+        MemoryBench.run(runner, sizeValues);
+
+        runner.writeJson(out);
+        System.err.println("Results written to " + out);
+    }
+
+    private static int[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+}
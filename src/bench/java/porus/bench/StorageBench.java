@@ -0,0 +1,111 @@
+package porus.bench;
+
+import porus.Storage;
+import porus.TaskList;
+import porus.task.Task;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Times a full {@link Storage#load()} and {@link Storage#save(ArrayList)}
+ * of a data file with a given number of tasks, in both file formats of the
+ * file backend and in the tree backend.
+ * <p>
+ * For the binary file and the tree, also times what a command costs to
+ * persist: marking a task, and inserting a task at the front of the list and
+ * deleting it again, each recorded, compacted if needed, and flushed to disk
+ * as a command would be. For the binary file, the cost of compaction is
+ * spread over the changes that trigger it. Marking one task and folding that
+ * change straight into the snapshot, which patches the file in place, is
+ * timed too.
+ */
+final class StorageBench {
+
+    private static final String[] FORMATS = {"txt", "bin", "db"};
+
+    private StorageBench() {
+    }
+
+    static void run(BenchRunner runner, int[] sizes) throws Exception {
+        File directory = Files.createTempDirectory("porus-bench").toFile();
+
+        for (int size : sizes) {
+            ArrayList<Task> tasks = Fixtures.tasks(size);
+
+            for (String format : FORMATS) {
+                File file = new File(directory, "tasks-" + size + "." + format);
+                Storage storage = Storage.create(file.getPath());
+                storage.save(tasks);
+
+                Map<String, String> params = Map.of("size", String.valueOf(size), "format", format);
+                runner.run("porus.bench.StorageBench.load", params, storage::load);
+                runner.run("porus.bench.StorageBench.save", params, () -> {
+                    storage.save(tasks);
+                    return tasks;
+                });
+
+                if (!format.equals("txt")) {
+                    runChanges(runner, storage, params, format.equals("bin"));
+                }
+
+                storage.close();
+                deleteAll(directory);
+            }
+        }
+
+        directory.delete();
+    }
+
+    private static void runChanges(BenchRunner runner, Storage storage, Map<String, String> params,
+            boolean isPatchable) throws Exception {
+        TaskList list = storage.open();
+        int middle = list.size() / 2;
+        Task inserted = Fixtures.task(new Random(1), list.size());
+
+        runner.run("porus.bench.StorageBench.mark", params, () -> {
+            boolean isDone = !list.get(middle).getDone();
+            list.mark(middle, isDone);
+            storage.appendMark(middle, isDone);
+            storage.compactIfNeeded(list);
+            storage.flush();
+            return list;
+        });
+
+        runner.run("porus.bench.StorageBench.insertAndDelete", params, () -> {
+            list.insert(0, inserted);
+            storage.appendInsert(0, inserted);
+            storage.compactIfNeeded(list);
+            storage.flush();
+            list.remove(0);
+            storage.appendDelete(0);
+            storage.compactIfNeeded(list);
+            storage.flush();
+            return list;
+        });
+
+        if (isPatchable) {
+            storage.compact(list);
+            runner.run("porus.bench.StorageBench.markAndCompact", Map.of("size", params.get("size")), () -> {
+                boolean isDone = !list.get(middle).getDone();
+                list.mark(middle, isDone);
+                storage.appendMark(middle, isDone);
+                storage.compact(list);
+                return list;
+            });
+        }
+    }
+
+    private static void deleteAll(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
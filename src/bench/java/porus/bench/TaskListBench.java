@@ -0,0 +1,46 @@
+package porus.bench;
+
+import porus.TaskList;
+import porus.task.Task;
+
+import java.util.Map;
+
+/**
+ * Times {@link TaskList#remove(int)} at the front, middle and end of a list.
+ * Each operation removes a task and inserts it back at the same position,
+ * so the list keeps its size across iterations. Also times counting and
+ * selecting the done tasks in each {@link TaskList.Layout}.
+ */
+final class TaskListBench {
+
+    private TaskListBench() {
+    }
+
+    static void run(BenchRunner runner, int[] sizes) throws Exception {
+        for (int size : sizes) {
+            TaskList tasks = new TaskList(Fixtures.tasks(size));
+
+            for (String position : new String[] {"first", "middle", "last"}) {
+                int index = position.equals("first") ? 0
+                        : position.equals("middle") ? size / 2 : size - 1;
+
+                runner.run("porus.bench.TaskListBench.removeAndReinsert",
+                        Map.of("size", String.valueOf(size), "position", position), () -> {
+                            Task removed = tasks.remove(index);
+                            tasks.insert(index, removed);
+                            return removed;
+                        });
+            }
+
+            for (TaskList.Layout layout : TaskList.Layout.values()) {
+                TaskList list = new TaskList(Fixtures.tasks(size), layout);
+                Map<String, String> params = Map.of("size", String.valueOf(size),
+                        "layout", layout.name().toLowerCase());
+
+                runner.run("porus.bench.TaskListBench.countDone", params, list::countDone);
+                runner.run("porus.bench.TaskListBench.selectDone", params,
+                        () -> list.positionsWithStatus(true));
+            }
+        }
+    }
+}
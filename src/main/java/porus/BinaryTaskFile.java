@@ -0,0 +1,929 @@
+package porus;
+
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the compact binary data file format.
+ * <p>
+ * Layout: the magic bytes {@code PORS}, a version byte, the task count as an
+ * int, the snapshot generation and the checksum as longs, the dictionary,
+ * then one record per task. A record is a header byte holding the type code
+ * in the low bits and the done flag in the top bit, followed by the task's
+ * text fields.
+ * <p>
+ * The dictionary holds every text field that occurs more than once in the
+ * file, as an int entry count followed by the entries. A text field is an int
+ * followed by data: a length of zero or more is followed by that many UTF-8
+ * bytes, while a negative value {@code -(i + 1)} refers to dictionary entry
+ * {@code i}. Repeated values such as "Sunday" are therefore stored and
+ * decoded once, and every task that uses them shares the same string.
+ * <p>
+ * The checksum is the sum of the CRC32 of the dictionary and of every record,
+ * so a file whose write was cut short or damaged later is reported instead of
+ * half-loaded. Version 2 files, which have no dictionary, and version 1 files,
+ * which also have no generation or checksum, are still read.
+ * Files are streamed through a {@link FileChannel} in fixed-size chunks, or
+ * memory-mapped so that tasks can be decoded one at a time on demand.
+ * Because the checksum is a sum, a file can also be {@link #patch patched}:
+ * a changed record only replaces its own CRC32 in the sum.
+ */
+final class BinaryTaskFile {
+
+    private static final byte VERSION = 3;
+    private static final byte VERSION_NO_DICTIONARY = 2;
+    private static final byte VERSION_UNCHECKED = 1;
+
+    private static final byte[] MAGIC = {'P', 'O', 'R', 'S'};
+    private static final int UNCHECKED_HEADER_SIZE = MAGIC.length + 1 + Integer.BYTES;
+    private static final int HEADER_SIZE = UNCHECKED_HEADER_SIZE + 2 * Long.BYTES;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte TYPE_TODO = 0;
+    private static final byte TYPE_DEADLINE = 1;
+    private static final byte TYPE_EVENT = 2;
+    private static final int TYPE_MASK = 0x7F;
+    private static final int DONE_BIT = 0x80;
+
+    private static final String[] NO_DICTIONARY = new String[0];
+
+    private BinaryTaskFile() {
+    }
+
+    /**
+     * Tasks read from a binary data file, and where their records are.
+     */
+    static final class Contents {
+        /** Tasks in file order. */
+        final ArrayList<Task> tasks;
+        /** Where each record is, or null for an empty file or an older version. */
+        final RecordOffsets offsets;
+
+        private Contents(ArrayList<Task> tasks, RecordOffsets offsets) {
+            this.tasks = tasks;
+            this.offsets = offsets;
+        }
+    }
+
+    /**
+     * Reads every task from a binary data file. An empty file holds no tasks.
+     *
+     * @param path data file
+     * @return tasks in file order
+     * @throws IOException If the file cannot be read or is not in this format.
+     */
+    static ArrayList<Task> read(Path path) throws IOException {
+        return read(path, true).tasks;
+    }
+
+    /**
+     * Reads every task from a binary data file, noting where each record is.
+     *
+     * @param path data file
+     * @param isVerified whether to check the records against the checksum
+     * @return tasks in file order, and their offsets
+     * @throws IOException If the file cannot be read or is not in this format.
+     */
+    static Contents read(Path path, boolean isVerified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ArrayList<Task> tasks = new ArrayList<>();
+
+            if (channel.size() == 0) {
+                return new Contents(tasks, null);
+            }
+
+            Reader reader = new Reader(channel);
+            Header header = readHeader(reader);
+            tasks.ensureCapacity(header.count);
+
+            long checksum = 0;
+            String[] dictionary = NO_DICTIONARY;
+            if (header.hasDictionary) {
+                reader.crc.reset();
+                dictionary = readDictionary(reader);
+                checksum += reader.crc.getValue();
+            }
+
+            RecordOffsets offsets = header.hasDictionary
+                    ? new RecordOffsets(header.count, reader.position())
+                    : null;
+
+            for (int i = 0; i < header.count; i++) {
+                long start = reader.position();
+                reader.crc.reset();
+                tasks.add(readTask(reader, dictionary));
+                checksum += reader.crc.getValue();
+                if (offsets != null) {
+                    offsets.add((int) (reader.position() - start));
+                }
+            }
+
+            if (isVerified) {
+                header.verify(checksum, path);
+            }
+            return new Contents(tasks, offsets);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new CorruptFileException("Corrupted data file: " + path, e);
+        }
+    }
+
+    /**
+     * Reads the snapshot generation stored in a data file's header.
+     * Empty and version 1 files are generation 0.
+     *
+     * @param path data file
+     * @return generation of the snapshot in the file
+     * @throws IOException If the file cannot be read or is not in this format.
+     */
+    static long readGeneration(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), HEADER_SIZE));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the header is in
+            }
+            buffer.flip();
+
+            return buffer.hasRemaining() ? checkHeader(buffer).generation : 0;
+        }
+    }
+
+    /**
+     * Maps a binary data file into memory and records where each task starts,
+     * without creating any task objects.
+     *
+     * @param path data file
+     * @param isVerified whether to check the records against the checksum
+     * @return the mapped file
+     * @throws IOException If the file cannot be mapped or is not in this format.
+     */
+    static MappedTaskFile map(Path path, boolean isVerified) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Data file too large to map: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Header header = checkHeader(buffer);
+            int[] offsets = new int[header.count];
+            CRC32 crc = new CRC32();
+            long checksum = 0;
+
+            String[] dictionary = NO_DICTIONARY;
+            if (header.hasDictionary) {
+                int start = buffer.position();
+                dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = getField(buffer, NO_DICTIONARY);
+                }
+                crc.update(buffer.duplicate().position(start).limit(buffer.position()));
+                checksum += crc.getValue();
+            }
+
+            for (int i = 0; i < header.count; i++) {
+                offsets[i] = buffer.position();
+                skipTask(buffer, dictionary.length);
+
+                crc.reset();
+                crc.update(buffer.duplicate().position(offsets[i]).limit(buffer.position()));
+                checksum += crc.getValue();
+            }
+
+            if (isVerified) {
+                header.verify(checksum, path);
+            }
+            return new MappedTaskFile(buffer, offsets, buffer.position(), dictionary, header.hasDictionary);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new CorruptFileException("Corrupted data file: " + path, e);
+        }
+    }
+
+    /**
+     * Decodes the task stored at an absolute offset of a mapped file.
+     *
+     * @param buffer mapped file contents
+     * @param offset start of the task record
+     * @param dictionary the file's dictionary entries
+     * @return the decoded task
+     */
+    static Task decode(ByteBuffer buffer, int offset, String[] dictionary) {
+        ByteBuffer record = buffer.duplicate().position(offset);
+        int header = record.get() & 0xFF;
+        String description = getField(record, dictionary);
+        Task task;
+
+        switch (header & TYPE_MASK) {
+        case TYPE_DEADLINE:
+            task = new Deadline(description, getField(record, dictionary));
+            break;
+
+        case TYPE_EVENT:
+            String from = getField(record, dictionary);
+            task = new Event(description, from, getField(record, dictionary));
+            break;
+
+        default:
+            task = new Todo(description);
+            break;
+        }
+
+        task.setDone((header & DONE_BIT) != 0);
+        return task;
+    }
+
+    /**
+     * Reads whether a record is marked done without decoding the rest of it.
+     *
+     * @param buffer file contents
+     * @param offset start of the record
+     * @return completion status
+     */
+    static boolean isDone(ByteBuffer buffer, int offset) {
+        return (buffer.get(offset) & DONE_BIT) != 0;
+    }
+
+    /**
+     * Returns a record's header byte with its done flag set or cleared.
+     *
+     * @param header header byte of a record
+     * @param isDone new completion status
+     * @return the changed header byte
+     */
+    static byte withDone(byte header, boolean isDone) {
+        return (byte) (isDone ? header | DONE_BIT : header & ~DONE_BIT);
+    }
+
+    /**
+     * Writes all tasks to a binary data file, replacing its contents,
+     * and forces the bytes to disk. A first pass over the tasks finds the
+     * text fields that repeat, for the dictionary. The header, which holds
+     * the checksum, is filled in last.
+     *
+     * @param path data file
+     * @param tasks tasks to write, in order
+     * @param generation generation of this snapshot
+     * @return where each record was written
+     * @throws IOException If the file cannot be written.
+     */
+    static RecordOffsets write(Path path, List<Task> tasks, long generation) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Dictionary dictionary = new Dictionary(tasks);
+            Writer writer = new Writer(channel, dictionary);
+
+            writer.ensure(HEADER_SIZE);
+            writer.buffer.position(HEADER_SIZE);
+
+            writer.crc.reset();
+            writer.writeInt(dictionary.entries.length);
+            for (String entry : dictionary.entries) {
+                writer.writeString(entry);
+            }
+            writer.checksum += writer.crc.getValue();
+
+            RecordOffsets offsets = new RecordOffsets(tasks.size(), writer.position());
+            for (Task task : tasks) {
+                long start = writer.position();
+                writeTask(writer, task);
+                offsets.add((int) (writer.position() - start));
+            }
+
+            writer.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).put(VERSION).putInt(tasks.size())
+                    .putLong(generation).putLong(writer.checksum).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            channel.force(true);
+            return offsets;
+        }
+    }
+
+    /**
+     * Brings a snapshot up to date in place, when the only changes since it
+     * was written are tasks marked or unmarked and tasks added at the end.
+     * <p>
+     * A marked record only needs its header byte rewritten. The record is
+     * read back to work out its checksum before and after, and the difference
+     * is added to the file checksum, so no other record is read. Added tasks
+     * are appended after the last record, with their text stored in place.
+     * The header, with the new count, generation and checksum, is written
+     * last, once the records are on disk.
+     * <p>
+     * Until the header is written, the file does not match its checksum.
+     * The caller must have recorded the changes elsewhere, in the journal,
+     * so that they can be made again after a crash.
+     *
+     * @param path data file
+     * @param offsets where the file's records are; the added records are added to it
+     * @param positions records whose done flag may have changed, in increasing order
+     * @param done new done flag of each of those records
+     * @param added tasks to append, in order
+     * @param generation generation the file must have now
+     * @param nextGeneration generation to give the file
+     * @return number of bytes written
+     * @throws IOException If the file cannot be written or does not match the offsets.
+     */
+    static long patch(Path path, RecordOffsets offsets, int[] positions, boolean[] done,
+            List<Task> added, long generation, long nextGeneration) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer headerBytes = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, headerBytes, 0);
+            headerBytes.flip();
+
+            Header header = checkHeader(headerBytes);
+            if (!header.hasDictionary || header.count != offsets.size() || header.generation != generation) {
+                throw new CorruptFileException("Data file does not match the snapshot in memory: " + path);
+            }
+
+            CRC32 crc = new CRC32();
+            long checksum = header.checksum;
+            long written = 0;
+
+            for (int i = 0; i < positions.length; i++) {
+                int start = offsets.start(positions[i]);
+                ByteBuffer record = ByteBuffer.allocate((int) (offsets.end(positions[i]) - start));
+                readFully(channel, record, start);
+
+                byte before = record.get(0);
+                byte after = withDone(before, done[i]);
+                if (after == before) {
+                    continue;
+                }
+
+                crc.reset();
+                crc.update(record.array());
+                checksum -= crc.getValue();
+                record.put(0, after);
+                crc.reset();
+                crc.update(record.array());
+                checksum += crc.getValue();
+
+                writeFully(channel, ByteBuffer.wrap(new byte[] {after}), start);
+                written++;
+            }
+
+            if (!added.isEmpty()) {
+                ByteBuffer tail = ByteBuffer.allocate(BUFFER_SIZE);
+                long tailStart = offsets.end();
+                long position = tailStart;
+                for (Task task : added) {
+                    byte[] record = encode(task);
+                    crc.reset();
+                    crc.update(record);
+                    checksum += crc.getValue();
+                    offsets.add(record.length);
+
+                    if (tail.remaining() < record.length) {
+                        tail.flip();
+                        position += writeFully(channel, tail, position);
+                        tail = ByteBuffer.allocate(Math.max(BUFFER_SIZE, record.length));
+                    }
+                    tail.put(record);
+                }
+                tail.flip();
+                position += writeFully(channel, tail, position);
+                written += position - tailStart;
+            }
+
+            channel.force(false);
+
+            ByteBuffer counts = ByteBuffer.allocate(Integer.BYTES + 2 * Long.BYTES);
+            counts.putInt(offsets.size()).putLong(nextGeneration).putLong(checksum).flip();
+            written += writeFully(channel, counts, MAGIC.length + 1);
+            channel.force(false);
+            return written;
+        }
+    }
+
+    /**
+     * Encodes a task as a record with every text field stored in place,
+     * which {@link #decode} reads back with any dictionary.
+     *
+     * @param task task to encode
+     * @return the record
+     */
+    static byte[] encode(Task task) {
+        List<String> fields = new ArrayList<>();
+        int type = TYPE_TODO;
+        fields.add(task.getDescription());
+
+        if (task instanceof Deadline) {
+            type = TYPE_DEADLINE;
+            fields.add(((Deadline) task).getBy());
+        } else if (task instanceof Event) {
+            type = TYPE_EVENT;
+            fields.add(((Event) task).getFrom());
+            fields.add(((Event) task).getTo());
+        }
+
+        byte[][] encoded = new byte[fields.size()][];
+        int length = 1;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = fields.get(i).getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + encoded[i].length;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.put((byte) (type | (task.getDone() ? DONE_BIT : 0)));
+        for (byte[] field : encoded) {
+            record.putInt(field.length).put(field);
+        }
+        return record.array();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new CorruptFileException("Unexpected end of data file.");
+            }
+        }
+    }
+
+    /**
+     * Writes all of a buffer at a position and returns the number of bytes written.
+     */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+        return length;
+    }
+
+    /**
+     * Checks the header at the start of a buffer and returns its contents.
+     */
+    private static Header checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < UNCHECKED_HEADER_SIZE) {
+            throw new CorruptFileException("Not a Porus data file.");
+        }
+
+        for (byte expected : MAGIC) {
+            if (buffer.get() != expected) {
+                throw new CorruptFileException("Not a Porus data file.");
+            }
+        }
+
+        byte version = buffer.get();
+        Header header = new Header(buffer.getInt());
+
+        if (version == VERSION || version == VERSION_NO_DICTIONARY) {
+            if (buffer.remaining() < 2 * Long.BYTES) {
+                throw new CorruptFileException("Data file header is incomplete.");
+            }
+            header.generation = buffer.getLong();
+            header.checksum = buffer.getLong();
+            header.isChecked = true;
+            header.hasDictionary = version == VERSION;
+        } else if (version != VERSION_UNCHECKED) {
+            throw new IOException("Unsupported data file version: " + version);
+        }
+
+        return header;
+    }
+
+    /**
+     * Moves past one task record, checking its structure but not decoding its text.
+     */
+    private static void skipTask(ByteBuffer buffer, int dictionarySize) throws IOException {
+        int type = buffer.get() & TYPE_MASK;
+        int fields;
+
+        switch (type) {
+        case TYPE_TODO:
+            fields = 1;
+            break;
+        case TYPE_DEADLINE:
+            fields = 2;
+            break;
+        case TYPE_EVENT:
+            fields = 3;
+            break;
+        default:
+            throw new CorruptFileException("Unknown task type: " + type);
+        }
+
+        for (int i = 0; i < fields; i++) {
+            int length = buffer.getInt();
+            if (length >= 0) {
+                buffer.position(buffer.position() + length);
+            } else if (-length - 1 >= dictionarySize) {
+                throw new CorruptFileException("Unknown dictionary entry: " + (-length - 1));
+            }
+        }
+    }
+
+    /**
+     * Reads one text field, either stored in place or as a dictionary reference.
+     */
+    private static String getField(ByteBuffer buffer, String[] dictionary) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return dictionary[-length - 1];
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return StringPool.intern(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks the magic bytes and version, and returns the header.
+     */
+    private static Header readHeader(Reader reader) throws IOException {
+        reader.ensure(UNCHECKED_HEADER_SIZE);
+        if (reader.buffer.get(MAGIC.length) != VERSION_UNCHECKED) {
+            reader.ensure(HEADER_SIZE);
+        }
+
+        return checkHeader(reader.buffer);
+    }
+
+    /**
+     * Reads the dictionary entries, sharing them through the {@link StringPool}.
+     */
+    private static String[] readDictionary(Reader reader) throws IOException {
+        int size = reader.readInt();
+        if (size < 0) {
+            throw new CorruptFileException("Negative dictionary size.");
+        }
+
+        String[] dictionary = new String[size];
+        for (int i = 0; i < size; i++) {
+            dictionary[i] = reader.readField(NO_DICTIONARY);
+        }
+        return dictionary;
+    }
+
+    private static Task readTask(Reader reader, String[] dictionary) throws IOException {
+        reader.ensure(1);
+        int header = reader.buffer.get() & 0xFF;
+        reader.crc.update(header);
+        String description = reader.readField(dictionary);
+        Task task;
+
+        switch (header & TYPE_MASK) {
+        case TYPE_TODO:
+            task = new Todo(description);
+            break;
+
+        case TYPE_DEADLINE:
+            task = new Deadline(description, reader.readField(dictionary));
+            break;
+
+        case TYPE_EVENT:
+            String from = reader.readField(dictionary);
+            task = new Event(description, from, reader.readField(dictionary));
+            break;
+
+        default:
+            throw new CorruptFileException("Unknown task type: " + (header & TYPE_MASK));
+        }
+
+        task.setDone((header & DONE_BIT) != 0);
+        return task;
+    }
+
+    private static void writeTask(Writer writer, Task task) throws IOException {
+        int done = task.getDone() ? DONE_BIT : 0;
+
+        if (task instanceof Deadline) {
+            writer.writeHeader(TYPE_DEADLINE | done);
+            writer.writeField(task.getDescription());
+            writer.writeField(((Deadline) task).getBy());
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            writer.writeHeader(TYPE_EVENT | done);
+            writer.writeField(event.getDescription());
+            writer.writeField(event.getFrom());
+            writer.writeField(event.getTo());
+        } else {
+            writer.writeHeader(TYPE_TODO | done);
+            writer.writeField(task.getDescription());
+        }
+
+        writer.checksum += writer.crc.getValue();
+    }
+
+    /**
+     * Task count, generation and checksum read from a file header.
+     */
+    private static class Header {
+
+        private final int count;
+        private long generation;
+        private long checksum;
+        private boolean isChecked;
+        private boolean hasDictionary;
+
+        Header(int count) {
+            this.count = count;
+        }
+
+        /**
+         * Compares the checksum of the records read against the stored one.
+         */
+        void verify(long actual, Path path) throws CorruptFileException {
+            if (isChecked && actual != checksum) {
+                throw new CorruptFileException("Checksum mismatch in data file: " + path);
+            }
+        }
+    }
+
+    /**
+     * Buffered reader over a channel that refills its buffer on demand.
+     */
+    private static class Reader {
+
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+        private long filled;
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Returns the file offset of the next unread byte.
+         */
+        long position() {
+            return filled - buffer.remaining();
+        }
+
+        /**
+         * Makes sure at least {@code bytes} unread bytes are in the buffer.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+
+            if (bytes > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+
+            while (buffer.position() < bytes) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    throw new CorruptFileException("Unexpected end of data file.");
+                }
+                filled += read;
+            }
+            buffer.flip();
+        }
+
+        /**
+         * Reads an int, adding its bytes to the checksum.
+         */
+        int readInt() throws IOException {
+            ensure(Integer.BYTES);
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        /**
+         * Reads one text field, adding its bytes to the checksum. Text stored
+         * in place is shared through the {@link StringPool}.
+         */
+        String readField(String[] dictionary) throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                int entry = -length - 1;
+                if (entry >= dictionary.length) {
+                    throw new CorruptFileException("Unknown dictionary entry: " + entry);
+                }
+                return dictionary[entry];
+            }
+
+            ensure(length);
+            crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return StringPool.intern(value);
+        }
+    }
+
+    /**
+     * Buffered writer over a channel that drains its buffer when full.
+     */
+    private static class Writer {
+
+        private final FileChannel channel;
+        private final Dictionary dictionary;
+        private final CRC32 crc = new CRC32();
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long checksum;
+        private long flushed;
+
+        Writer(FileChannel channel, Dictionary dictionary) {
+            this.channel = channel;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Returns the file offset the next byte will be written at.
+         */
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        /**
+         * Makes sure at least {@code bytes} bytes of space are free in the buffer.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+
+            flush();
+            if (bytes > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(bytes);
+            }
+        }
+
+        /**
+         * Starts a record with its header byte and resets the record checksum.
+         */
+        void writeHeader(int header) throws IOException {
+            ensure(1);
+            buffer.put((byte) header);
+            crc.reset();
+            crc.update(header);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            crc.update(buffer.array(), buffer.position() - Integer.BYTES, Integer.BYTES);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(Integer.BYTES + bytes.length);
+            int start = buffer.position();
+            buffer.putInt(bytes.length).put(bytes);
+            crc.update(buffer.array(), start, buffer.position() - start);
+        }
+
+        /**
+         * Writes a text field as a dictionary reference if it has an entry,
+         * or in place otherwise.
+         */
+        void writeField(String value) throws IOException {
+            int entry = dictionary.nextEntry();
+            if (entry >= 0) {
+                writeInt(-entry - 1);
+            } else {
+                writeString(value);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            flushed += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * The text fields that occur more than once among the tasks being written.
+     * <p>
+     * Each distinct field gets a number in order of first appearance. An
+     * open-addressing table packs each field's hash code and number into one
+     * long, so probing past other fields touches a single array and does not
+     * have to read their strings. Each field's number is remembered in order,
+     * so that writing the records afterwards needs no second lookup.
+     */
+    private static class Dictionary {
+
+        private long[] table = new long[1 << 10];
+        private String[] keys = new String[1 << 10];
+        private int[] counts = new int[keys.length];
+        private int size;
+
+        private int[] fields;
+        private int fieldCount;
+        private int nextField;
+        private final String[] entries;
+
+        Dictionary(List<Task> tasks) {
+            fields = new int[tasks.size() + (tasks.size() >> 1) + 1];
+
+            for (Task task : tasks) {
+                add(task.getDescription());
+                if (task instanceof Deadline) {
+                    add(((Deadline) task).getBy());
+                } else if (task instanceof Event) {
+                    add(((Event) task).getFrom());
+                    add(((Event) task).getTo());
+                }
+            }
+            table = null;
+
+            // Counts become entry numbers, with -1 for fields that occur once
+            int entryCount = 0;
+            for (int i = 0; i < size; i++) {
+                counts[i] = counts[i] > 1 ? entryCount++ : -1;
+            }
+
+            entries = new String[entryCount];
+            for (int i = 0; i < size; i++) {
+                if (counts[i] >= 0) {
+                    entries[counts[i]] = keys[i];
+                }
+            }
+            keys = null;
+        }
+
+        /**
+         * Returns the entry number of the next field to be written, in the order
+         * the fields were added, or -1 if it is stored in place.
+         */
+        int nextEntry() {
+            return counts[fields[nextField++]];
+        }
+
+        private void add(String value) {
+            int hash = value.hashCode();
+            int mask = table.length - 1;
+            int slot = slotOf(hash, mask);
+            int number = -1;
+
+            for (long packed; (packed = table[slot]) != 0; slot = (slot + 1) & mask) {
+                int candidate = (int) packed - 1;
+                if ((int) (packed >>> 32) == hash
+                        && (keys[candidate] == value || keys[candidate].equals(value))) {
+                    number = candidate;
+                    break;
+                }
+            }
+
+            if (number < 0) {
+                number = size++;
+                if (number == keys.length) {
+                    keys = Arrays.copyOf(keys, number * 2);
+                    counts = Arrays.copyOf(counts, number * 2);
+                }
+                keys[number] = value;
+                table[slot] = ((long) hash << 32) | (number + 1);
+                if (size * 4 >= table.length * 3) {
+                    grow();
+                }
+            }
+
+            counts[number]++;
+            if (fieldCount == fields.length) {
+                fields = Arrays.copyOf(fields, fieldCount * 2);
+            }
+            fields[fieldCount++] = number;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+
+            for (long packed : old) {
+                if (packed != 0) {
+                    int slot = slotOf((int) (packed >>> 32), mask);
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = packed;
+                }
+            }
+        }
+
+        private static int slotOf(int hash, int mask) {
+            int mixed = hash * 0x9E3779B9;
+            return (mixed ^ (mixed >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package porus;
+
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Packs tasks into parallel arrays indexed by node instead of keeping a
+ * task object per node, and hands out a new {@link Task} view when one is
+ * asked for.
+ * <p>
+ * Each node costs a type byte, a done bit, an id and one offset into a single
+ * shared text buffer. The buffer holds each task's text fields back to back,
+ * description first, each as a length followed by its UTF-8 bytes. Counting
+ * done tasks reads the done bits alone, 64 tasks to a word.
+ * <p>
+ * The fields of removed tasks are left in place until they take up half of
+ * the buffer, when the fields of the tasks still in use are copied into a
+ * new buffer. A list being loaded has removed nothing, so it is never
+ * compacted, and its buffer is sized for the loaded text up front.
+ */
+class ColumnarTaskStore implements TaskStore {
+
+    private static final byte EMPTY = 0;
+    private static final byte TODO = 1;
+    private static final byte DEADLINE = 2;
+    private static final byte EVENT = 3;
+
+    private static final int MIN_TEXT_SIZE = 1 << 16;
+    private static final int MAX_LENGTH_BYTES = 5;
+
+    private byte[] types;
+    private long[] done;
+    private int[] ids;
+    private int[] offsets;
+    private int[] nodeById;
+
+    private byte[] text;
+    private int textSize;
+    // Bytes of the buffer that hold fields of removed tasks
+    private int dropped;
+
+    /**
+     * Creates an empty store with room for the given number of nodes and
+     * bytes of text.
+     *
+     * @param capacity expected highest node id plus one
+     * @param textCapacity expected size of the text fields, as from {@link #estimateText}
+     */
+    ColumnarTaskStore(int capacity, long textCapacity) {
+        text = new byte[(int) Math.min(Math.max(textCapacity, MIN_TEXT_SIZE), Integer.MAX_VALUE - 8)];
+        int size = Math.max(capacity, 16);
+        types = new byte[size];
+        done = new long[(size + 63) >>> 6];
+        ids = new int[size];
+        offsets = new int[size];
+        nodeById = new int[size];
+    }
+
+    /**
+     * Estimates the text buffer that the given tasks need, counting a byte
+     * per character and per field length, which is exact for ASCII text.
+     *
+     * @param tasks tasks about to be stored
+     * @return estimated size in bytes
+     */
+    static long estimateText(List<Task> tasks) {
+        long size = 0;
+        for (Task task : tasks) {
+            size += fieldSize(task.getDescription());
+            if (task instanceof Deadline) {
+                size += fieldSize(((Deadline) task).getBy());
+            } else if (task instanceof Event) {
+                size += fieldSize(((Event) task).getFrom()) + fieldSize(((Event) task).getTo());
+            }
+        }
+        return size;
+    }
+
+    private static long fieldSize(String value) {
+        return value == null ? 1 : value.length() + 1;
+    }
+
+    @Override
+    public Task get(int node) {
+        int position = offsets[node];
+        String description = field(position);
+        Task task;
+
+        switch (types[node]) {
+        case DEADLINE:
+            task = new Deadline(description, field(skip(text, position)));
+            break;
+
+        case EVENT:
+            int from = skip(text, position);
+            task = new Event(description, field(from), field(skip(text, from)));
+            break;
+
+        default:
+            task = new Todo(description);
+            break;
+        }
+
+        TaskList.IDS.setId(task, ids[node]);
+        task.setDone(isDone(node));
+        return task;
+    }
+
+    @Override
+    public void put(int node, Task task) {
+        ensureCapacity(node + 1);
+        compactIfNeeded();
+
+        offsets[node] = textSize;
+        append(task.getDescription());
+
+        if (task instanceof Deadline) {
+            types[node] = DEADLINE;
+            append(((Deadline) task).getBy());
+        } else if (task instanceof Event) {
+            types[node] = EVENT;
+            append(((Event) task).getFrom());
+            append(((Event) task).getTo());
+        } else {
+            types[node] = TODO;
+        }
+
+        int id = task.getId();
+        ids[node] = id;
+        setDone(node, task.getDone());
+
+        if (id >= nodeById.length) {
+            nodeById = Arrays.copyOf(nodeById, Math.max(nodeById.length + (nodeById.length >> 1), id + 1));
+        }
+        nodeById[id] = node;
+    }
+
+    @Override
+    public void remove(int node) {
+        int start = offsets[node];
+        dropped += skipDetails(text, types[node], skip(text, start)) - start;
+        types[node] = EMPTY;
+        setDone(node, false);
+        nodeById[ids[node]] = 0;
+    }
+
+    @Override
+    public boolean isDone(int node) {
+        return (done[node >>> 6] & (1L << node)) != 0;
+    }
+
+    @Override
+    public void setDone(int node, boolean isDone) {
+        if (isDone) {
+            done[node >>> 6] |= 1L << node;
+        } else {
+            done[node >>> 6] &= ~(1L << node);
+        }
+    }
+
+    @Override
+    public Task current(Task task) {
+        return get(nodeById[task.getId()]);
+    }
+
+    @Override
+    public int idOf(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Counts the set done bits, which are clear for every node not in use.
+     */
+    @Override
+    public int countDone(OrderTree order) {
+        int count = 0;
+        for (long word : done) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    @Override
+    public long estimateMemory(int count) {
+        return types.length + (long) done.length * Long.BYTES
+                + ((long) ids.length + offsets.length + nodeById.length) * Integer.BYTES
+                + text.length;
+    }
+
+    @Override
+    public void trimToSize() {
+        text = Arrays.copyOf(text, textSize);
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= types.length) {
+            return;
+        }
+        int capacity = Math.max(types.length + (types.length >> 1), size);
+        types = Arrays.copyOf(types, capacity);
+        done = Arrays.copyOf(done, (capacity + 63) >>> 6);
+        ids = Arrays.copyOf(ids, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+    }
+
+    /**
+     * Returns the text of the field stored at a position.
+     */
+    private String field(int position) {
+        return new String(text, start(text, position), length(text, position), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a field at the end of the text buffer. A null field is stored as
+     * empty, as the data files do not tell the two apart either.
+     */
+    private void append(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int needed = textSize + MAX_LENGTH_BYTES + bytes.length;
+        if (needed > text.length) {
+            grow(needed);
+        }
+
+        int remaining = bytes.length;
+        while (remaining >= 0x80) {
+            text[textSize++] = (byte) (remaining | 0x80);
+            remaining >>>= 7;
+        }
+        text[textSize++] = (byte) remaining;
+        System.arraycopy(bytes, 0, text, textSize, bytes.length);
+        textSize += bytes.length;
+    }
+
+    /**
+     * Copies already encoded fields to the end of the text buffer.
+     */
+    private void append(byte[] source, int start, int length) {
+        if (textSize + length > text.length) {
+            grow(textSize + length);
+        }
+        System.arraycopy(source, start, text, textSize, length);
+        textSize += length;
+    }
+
+    private void grow(int needed) {
+        text = Arrays.copyOf(text, Math.max(text.length + (text.length >> 1), needed));
+    }
+
+    /**
+     * Copies the fields of the nodes in use into a new buffer once the fields
+     * of removed tasks take up half of the buffer, dropping those. Called
+     * before a node's fields are written, as it moves them.
+     */
+    private void compactIfNeeded() {
+        if (textSize < MIN_TEXT_SIZE || dropped < textSize - dropped) {
+            return;
+        }
+
+        byte[] old = text;
+        int live = textSize - dropped;
+        text = new byte[Math.max(MIN_TEXT_SIZE, live + (live >> 1))];
+        textSize = 0;
+        dropped = 0;
+
+        for (int node = 0; node < types.length; node++) {
+            if (types[node] == EMPTY) {
+                continue;
+            }
+            int start = offsets[node];
+            int end = skipDetails(old, types[node], skip(old, start));
+            offsets[node] = textSize;
+            append(old, start, end - start);
+        }
+    }
+
+    /**
+     * Returns the position just past the field stored at a position.
+     */
+    private static int skip(byte[] buffer, int position) {
+        return start(buffer, position) + length(buffer, position);
+    }
+
+    /**
+     * Returns the position just past the fields that follow the description
+     * of a task of the given type, which start at {@code details}.
+     */
+    private static int skipDetails(byte[] buffer, byte type, int details) {
+        switch (type) {
+        case DEADLINE:
+            return skip(buffer, details);
+
+        case EVENT:
+            return skip(buffer, skip(buffer, details));
+
+        default:
+            return details;
+        }
+    }
+
+    /**
+     * Returns the length stored at the start of a field.
+     */
+    private static int length(byte[] buffer, int position) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer[position++];
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return length;
+    }
+
+    /**
+     * Returns where the bytes of a field begin, just past its length.
+     */
+    private static int start(byte[] buffer, int position) {
+        while (buffer[position] < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+}
@@ -0,0 +1,31 @@
+package porus;
+
+import java.io.IOException;
+
+/**
+ * Signals that a data file was read but its contents are damaged,
+ * for example because a write was cut short or the checksum does not match.
+ */
+class CorruptFileException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a CorruptFileException with a message.
+     *
+     * @param message description of the damage
+     */
+    CorruptFileException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a CorruptFileException with a message and the underlying cause.
+     *
+     * @param message description of the damage
+     * @param cause error that exposed the damage
+     */
+    CorruptFileException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
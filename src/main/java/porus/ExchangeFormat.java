@@ -0,0 +1,40 @@
+package porus;
+
+import java.util.Locale;
+
+/**
+ * A file format for moving task lists between Porus and other tools, chosen
+ * by the file name's suffix. See {@link TaskExporter} for how each format
+ * lays out a task.
+ */
+public enum ExchangeFormat {
+    /** One JSON object per line, in a {@code .jsonl} or {@code .ndjson} file. */
+    JSON_LINES(".jsonl", ".ndjson"),
+    /** Comma-separated values with a header row, in a {@code .csv} file. */
+    CSV(".csv");
+
+    private final String[] suffixes;
+
+    ExchangeFormat(String... suffixes) {
+        this.suffixes = suffixes;
+    }
+
+    /**
+     * Returns the format of a file, judging by its name.
+     *
+     * @param fileName name or path of the file
+     * @return the file's format
+     * @throws PorusException If the name does not end in a known suffix.
+     */
+    public static ExchangeFormat of(String fileName) throws PorusException {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        for (ExchangeFormat format : values()) {
+            for (String suffix : format.suffixes) {
+                if (name.endsWith(suffix)) {
+                    return format;
+                }
+            }
+        }
+        throw new PorusException("The file name must end in .jsonl, .ndjson or .csv.");
+    }
+}
@@ -0,0 +1,1083 @@
+package porus;
+
+import porus.task.*;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a task list as a snapshot file and a journal of the changes made
+ * since it was written.
+ * <p>
+ * Uses a relative file path to ensure OS independence.
+ * Automatically creates the data folder and file if missing.
+ * <p>
+ * Files ending in {@code .bin} use the compact {@link BinaryTaskFile} format;
+ * any other file uses the pipe-delimited text format, one task per line.
+ * Journal records use the same delimited fields. Backslashes and pipes in
+ * task text are escaped with a backslash, so text holding {@code " | "} does
+ * not split into extra fields.
+ * <p>
+ * The data file holds a snapshot of the whole list. Individual changes are
+ * appended to a journal file next to it, so each command only writes one
+ * short record. The journal is replayed on load and folded back into the
+ * snapshot once it grows past {@link #COMPACT_THRESHOLD} records.
+ * Journal records are written by a {@link JournalWriter}, which can batch
+ * many of them into one disk write according to the {@link Durability} mode.
+ * <p>
+ * Snapshots are written to a temporary file, synced, and renamed over the
+ * data file, so a crash leaves either the old or the new snapshot in place.
+ * Each snapshot carries a generation number and a checksum. The journal starts
+ * with the generation it applies to, so a journal left behind by a crash after
+ * a rename is not replayed twice. A damaged data file is reported and set aside
+ * rather than silently loaded in part.
+ * <p>
+ * When the journal only holds marks and additions at the end of the list, a
+ * binary snapshot is instead patched in place: the done flags that changed
+ * are rewritten, the new tasks are appended, and the header is updated last,
+ * using the offset of each record kept since the snapshot was read or written.
+ * The journal is kept until the patch is complete and replayed if it was not.
+ */
+public class FileStorage implements Storage {
+
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String BINARY_SUFFIX = ".bin";
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final String MIGRATED_SUFFIX = ".bak";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final String TEXT_HEADER = "# porus";
+    private static final String TEXT_TRAILER = "# end";
+    private static final String FIELD_DELIMITER = " | ";
+    private static final char ESCAPE = '\\';
+    private static final char PIPE = '|';
+    private static final int COMPACT_THRESHOLD = 1000;
+    private static final int MAX_SKIPPED_LINES_SHOWN = 10;
+
+    private static final String RECORD_ADD = "A";
+    private static final String RECORD_INSERT = "I";
+    private static final String RECORD_DELETE = "X";
+    private static final String RECORD_MARK = "M";
+    private static final String RECORD_DELETE_ALL = "XS";
+    private static final String RECORD_MARK_ALL = "MS";
+    private static final String RECORD_SNAPSHOT = "S";
+    private static final String RECORD_PATCH = "P";
+
+    private final String filePath;
+    private final String journalPath;
+    private final boolean isBinary;
+
+    private JournalWriter journal;
+    private Durability durability = Durability.GROUP;
+    private TaskList.Layout layout = TaskList.Layout.OBJECTS;
+    private int journalSize;
+    private boolean isJournaling = true;
+    private long generation;
+    private final SnapshotChanges changes = new SnapshotChanges();
+    private boolean isPatchInterrupted;
+    // Set when replay inserted a task before the end of the list
+    private boolean isRenumberNeeded;
+    // Set when the data file could not be read, so that it is not saved over
+    private boolean isSaveDisabled;
+    // Messages for the user, kept apart for each thread that caused them
+    private final ThreadLocal<List<String>> notices = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Creates a FileStorage object with a given file path.
+     *
+     * @param filePath relative path to data file
+     */
+    public FileStorage(String filePath) {
+        this.filePath = filePath;
+        this.journalPath = filePath + JOURNAL_SUFFIX;
+        this.isBinary = filePath.endsWith(BINARY_SUFFIX);
+    }
+
+    /**
+     * Loads tasks from file, replaying any journal records written since
+     * the last snapshot.
+     * <p>
+     * If this storage uses the binary format and its file does not exist yet,
+     * tasks are migrated once from the text file of the same name.
+     *
+     * @return list of tasks loaded from disk
+     */
+    @Override
+    public ArrayList<Task> load() {
+        long start = System.nanoTime();
+        ArrayList<Task> tasks = new ArrayList<>();
+        File file = new File(filePath);
+
+        try {
+            if (isBinary && !file.exists()) {
+                tasks = migrateTextFile();
+            } else {
+                createFileIfMissing(file);
+                if (isBinary) {
+                    isPatchInterrupted = isPatchInterrupted(file);
+                    BinaryTaskFile.Contents contents = BinaryTaskFile.read(file.toPath(), !isPatchInterrupted);
+                    tasks = contents.tasks;
+                    generation = BinaryTaskFile.readGeneration(file.toPath());
+                    changes.reset(contents.offsets);
+                } else {
+                    tasks = readTextFile(file);
+                    changes.reset(null);
+                }
+            }
+
+            tasks = replayJournal(tasks);
+
+        } catch (CorruptFileException e) {
+            setAside(e);
+        } catch (IOException e) {
+            isSaveDisabled = true;
+            report("Error loading data file. Changes will not be saved until Porus is restarted.");
+        }
+
+        Metrics.record(Metrics.Stage.LOAD, System.nanoTime() - start);
+        return tasks;
+    }
+
+    /**
+     * Opens the task list without decoding its tasks up front.
+     * <p>
+     * For a binary data file, the file is memory-mapped and each task is only
+     * decoded the first time the list accesses it, so opening a large file
+     * costs little more than opening a small one. Other files, and lists
+     * using the columnar layout, are loaded eagerly, as by {@link #load()},
+     * and so is a binary file that cannot be mapped, such as one too large.
+     *
+     * @return task list backed by the data file
+     */
+    @Override
+    public TaskList open() {
+        File file = new File(filePath);
+
+        if (layout == TaskList.Layout.COLUMNAR) {
+            return new TaskList(load(), layout);
+        }
+        if (!isBinary || file.length() == 0) {
+            return new TaskList(load());
+        }
+
+        try {
+            long start = System.nanoTime();
+            isPatchInterrupted = isPatchInterrupted(file);
+            MappedTaskFile source = BinaryTaskFile.map(file.toPath(), !isPatchInterrupted);
+            TaskList tasks = new TaskList(source);
+            generation = BinaryTaskFile.readGeneration(file.toPath());
+            changes.reset(source.recordOffsets());
+            replayJournal(tasks);
+            if (isRenumberNeeded) {
+                // A task inserted by replay got a new id out of list order,
+                // which the search indexes rely on; a fresh list renumbers
+                tasks = new TaskList(tasks.getAll());
+            }
+            Metrics.record(Metrics.Stage.LOAD, System.nanoTime() - start);
+            return tasks;
+        } catch (CorruptFileException e) {
+            setAside(e);
+        } catch (IOException e) {
+            return new TaskList(load());
+        }
+
+        return new TaskList(new ArrayList<>());
+    }
+
+    /**
+     * Saves tasks as a fresh snapshot and clears the journal. The snapshot is
+     * written and synced to a temporary file first, then renamed over the data
+     * file, so the data file is never left half-written. Nothing is saved if
+     * the data file could not be read, as the tasks it holds are not in the list.
+     *
+     * @param tasks list of tasks to save
+     */
+    @Override
+    public void save(ArrayList<Task> tasks) {
+        if (isSaveDisabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        File file = new File(filePath);
+        File temp = new File(filePath + TEMP_SUFFIX);
+        long next = generation + 1;
+
+        try {
+            createFileIfMissing(file);
+
+            RecordOffsets offsets = null;
+            if (isBinary) {
+                offsets = BinaryTaskFile.write(temp.toPath(), tasks, next);
+            } else {
+                writeTextFile(temp, tasks, next);
+            }
+
+            replace(temp.toPath(), file.toPath());
+            generation = next;
+            clearJournal();
+            changes.reset(offsets);
+
+        } catch (IOException e) {
+            temp.delete();
+            report("Error saving data file.");
+        }
+
+        Metrics.record(Metrics.Stage.SAVE, System.nanoTime() - start);
+    }
+
+    /**
+     * Turns journal records on or off. While off, changes are only persisted
+     * by an explicit {@link #save(ArrayList)}; this is used by batch mode.
+     *
+     * @param isJournaling whether changes should be appended to the journal
+     */
+    @Override
+    public void setJournaling(boolean isJournaling) {
+        this.isJournaling = isJournaling;
+    }
+
+    /**
+     * Sets when journal records must reach the disk. Takes effect
+     * if called before the first change is recorded.
+     *
+     * @param durability durability mode
+     */
+    @Override
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    /**
+     * Sets how the list returned by {@link #open()} keeps its tasks in memory.
+     *
+     * @param layout memory layout
+     */
+    @Override
+    public void setLayout(TaskList.Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Waits until recorded changes are on disk, if the durability mode asks
+     * for it. Called after a command has run and before its response is shown,
+     * outside any lock, so that concurrent commands can share one disk write.
+     */
+    @Override
+    public void awaitDurable() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.awaitDurable();
+        } catch (IOException e) {
+            report("Error saving data file.");
+        }
+    }
+
+    /**
+     * Waits until every recorded change is on disk, whatever the durability mode.
+     */
+    @Override
+    public void flush() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            report("Error saving data file.");
+        }
+    }
+
+    /**
+     * Writes out every recorded change and stops the journal writer, so that
+     * a list that is no longer in use does not keep a thread and an open file.
+     * A later change opens the journal again.
+     */
+    @Override
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            report("Error saving data file.");
+        }
+        journal = null;
+    }
+
+    /**
+     * Returns the messages for the user recorded on this thread since the
+     * last call, such as a failed write or a damaged data file, and forgets them.
+     *
+     * @return messages, oldest first
+     */
+    @Override
+    public List<String> takeNotices() {
+        List<String> taken = new ArrayList<>(notices.get());
+        notices.get().clear();
+        return taken;
+    }
+
+    /**
+     * Records that a task was appended to the end of the list.
+     *
+     * @param task task that was added
+     */
+    @Override
+    public void appendAdd(Task task) {
+        changes.add();
+        appendRecord(RECORD_ADD + FIELD_DELIMITER + formatTask(task));
+    }
+
+    /**
+     * Records that a task was inserted at the given position.
+     *
+     * @param index zero-based position the task now has
+     * @param task task that was inserted
+     */
+    @Override
+    public void appendInsert(int index, Task task) {
+        changes.restructure();
+        appendRecord(RECORD_INSERT + FIELD_DELIMITER + index + FIELD_DELIMITER + formatTask(task));
+    }
+
+    /**
+     * Records that the task at the given position was removed.
+     *
+     * @param index zero-based position of the removed task
+     */
+    @Override
+    public void appendDelete(int index) {
+        changes.restructure();
+        appendRecord(RECORD_DELETE + FIELD_DELIMITER + index);
+    }
+
+    /**
+     * Records that the task at the given position was marked or unmarked.
+     *
+     * @param index zero-based position of the task
+     * @param isDone new completion status
+     */
+    @Override
+    public void appendMark(int index, boolean isDone) {
+        changes.mark(index);
+        appendRecord(RECORD_MARK + FIELD_DELIMITER + index + FIELD_DELIMITER + (isDone ? "1" : "0"));
+    }
+
+    /**
+     * Records that the tasks at the given positions were removed together.
+     *
+     * @param positions zero-based positions of the removed tasks, in increasing order
+     */
+    @Override
+    public void appendDeleteAll(int[] positions) {
+        changes.restructure();
+        appendRecord(RECORD_DELETE_ALL + FIELD_DELIMITER + formatPositions(positions));
+    }
+
+    /**
+     * Records that the tasks at the given positions were marked or unmarked together.
+     *
+     * @param positions zero-based positions of the tasks, in increasing order
+     * @param isDone new completion status
+     */
+    @Override
+    public void appendMarkAll(int[] positions, boolean isDone) {
+        changes.mark(positions);
+        appendRecord(RECORD_MARK_ALL + FIELD_DELIMITER + formatPositions(positions)
+                + FIELD_DELIMITER + (isDone ? "1" : "0"));
+    }
+
+    /**
+     * Records that tasks were inserted at the given positions. The records
+     * for all the tasks are handed to the journal writer as one write.
+     *
+     * @param positions zero-based positions the tasks now have, in increasing order
+     * @param tasks tasks that were inserted, one per position
+     */
+    @Override
+    public void appendInsertAll(int[] positions, List<Task> tasks) {
+        changes.restructure();
+        StringBuilder records = new StringBuilder();
+
+        for (int i = 0; i < positions.length; i++) {
+            if (i > 0) {
+                records.append(System.lineSeparator());
+            }
+            records.append(RECORD_INSERT).append(FIELD_DELIMITER).append(positions[i])
+                    .append(FIELD_DELIMITER);
+            appendTask(records, tasks.get(i));
+        }
+
+        appendRecord(records.toString());
+    }
+
+    /**
+     * Folds the journal into the snapshot once it has grown large enough.
+     *
+     * @param tasks current list of tasks
+     */
+    @Override
+    public void compactIfNeeded(TaskList tasks) {
+        if (journalSize >= COMPACT_THRESHOLD) {
+            saveChanges(tasks);
+        }
+    }
+
+    /**
+     * Folds any outstanding journal records into the snapshot.
+     *
+     * @param tasks current list of tasks
+     */
+    @Override
+    public void compact(TaskList tasks) {
+        if (journalSize > 0) {
+            saveChanges(tasks);
+        }
+    }
+
+    /**
+     * Brings the snapshot up to date, in place if the list has only had tasks
+     * marked, unmarked or added at the end since it was written, and by writing
+     * a new snapshot otherwise.
+     */
+    private void saveChanges(TaskList tasks) {
+        if (!patchSnapshot(tasks)) {
+            save(tasks.getAll());
+        }
+    }
+
+    /**
+     * Patches the changed done flags and the added tasks into the binary
+     * snapshot, so that marking one task in a large list writes a few bytes
+     * instead of the whole file.
+     * <p>
+     * A patch record is journaled and synced first. Every change being
+     * patched in is already in the journal, so if the patch is cut short,
+     * loading sees the patch record, accepts the file without its checksum,
+     * replays the journal over it and writes a fresh snapshot.
+     *
+     * @return false if the snapshot could not be patched and must be rewritten
+     */
+    private boolean patchSnapshot(TaskList tasks) {
+        if (!isBinary || !isJournaling || !changes.canPatch(tasks.size())) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        RecordOffsets offsets = changes.offsets();
+        int[] positions = changes.markedRecords();
+        boolean[] done = new boolean[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            done[i] = tasks.get(positions[i]).getDone();
+        }
+
+        List<Task> added = new ArrayList<>();
+        for (Iterator<Task> it = tasks.iterator(offsets.size()); it.hasNext(); ) {
+            added.add(it.next());
+        }
+
+        try {
+            appendRecord(RECORD_PATCH + FIELD_DELIMITER + generation);
+            if (journal == null) {
+                return false;
+            }
+            journal.flush();
+
+            BinaryTaskFile.patch(Path.of(filePath), offsets, positions, done, added, generation, generation + 1);
+            generation++;
+            clearJournal();
+            changes.reset(offsets);
+        } catch (IOException e) {
+            return false;
+        }
+
+        Metrics.record(Metrics.Stage.SAVE, System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * Returns whether the journal holds a patch record for the snapshot on
+     * disk, meaning that patching it in place was started but may not have
+     * finished, so that the file may not match its checksum.
+     */
+    private boolean isPatchInterrupted(File file) throws IOException {
+        File journalFile = new File(journalPath);
+        if (journalFile.length() == 0 || file.length() == 0) {
+            return false;
+        }
+
+        long fileGeneration = BinaryTaskFile.readGeneration(file.toPath());
+        String patch = RECORD_PATCH + FIELD_DELIMITER + fileGeneration;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalFile, StandardCharsets.UTF_8))) {
+            if (!(RECORD_SNAPSHOT + FIELD_DELIMITER + fileGeneration).equals(reader.readLine())) {
+                return false;
+            }
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.equals(patch)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands a single record to the journal writer.
+     */
+    private void appendRecord(String record) {
+        if (!isJournaling || isSaveDisabled) {
+            return;
+        }
+
+        try {
+            if (journal == null) {
+                File file = new File(journalPath);
+                createFileIfMissing(file);
+                journal = new JournalWriter(file.toPath(), durability);
+            }
+
+            if (journalSize == 0) {
+                journal.append(RECORD_SNAPSHOT + FIELD_DELIMITER + generation);
+            }
+            journal.append(record);
+            journalSize++;
+
+        } catch (IOException e) {
+            report("Error saving data file.");
+        }
+    }
+
+    /**
+     * Empties the journal after a snapshot has been written, dropping any
+     * records still queued since the snapshot already holds their changes.
+     */
+    private void clearJournal() throws IOException {
+        if (journal != null) {
+            journal.truncate();
+        } else {
+            File file = new File(journalPath);
+            if (file.exists()) {
+                new FileWriter(file).close();
+            }
+        }
+        journalSize = 0;
+    }
+
+    /**
+     * Applies journal records on top of a freshly loaded snapshot.
+     *
+     * @return the snapshot with the journal applied
+     */
+    private ArrayList<Task> replayJournal(ArrayList<Task> tasks) throws IOException {
+        if (new File(journalPath).length() == 0) {
+            journalSize = 0;
+            return tasks;
+        }
+
+        TaskList list = new TaskList(tasks);
+        replayJournal(list);
+        return list.getAll();
+    }
+
+    /**
+     * Applies journal records on top of a freshly opened task list.
+     * <p>
+     * A journal stamped with an older generation than the snapshot was already
+     * folded into it before a crash, so it is discarded. An unfinished last
+     * record, cut short by a crash, is ignored. A journal with such a record,
+     * or from before stamps were written, is folded into a new snapshot
+     * straight away so that new records are not appended after it.
+     */
+    private void replayJournal(TaskList tasks) throws IOException {
+        File file = new File(journalPath);
+        journalSize = 0;
+        isRenumberNeeded = false;
+
+        if (file.length() == 0) {
+            return;
+        }
+
+        boolean isComplete = endsWithNewline(file);
+        boolean isStamped;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            String next;
+            isStamped = line.startsWith(RECORD_SNAPSHOT + FIELD_DELIMITER);
+
+            if (isStamped) {
+                long stamp = parseStamp(line, file);
+                line = stamp == generation ? reader.readLine() : null;
+            }
+
+            for (; line != null; line = next) {
+                next = reader.readLine();
+                if (next == null && !isComplete) {
+                    break;
+                }
+                if (line.startsWith(RECORD_PATCH + FIELD_DELIMITER)) {
+                    continue;
+                }
+
+                journalSize++;
+                try {
+                    applyRecord(line, tasks);
+                } catch (Exception e) {
+                    // Skip corrupted records, same as corrupted snapshot lines
+                }
+            }
+        }
+
+        if (isPatchInterrupted) {
+            // The file may hold part of a patch; a fresh snapshot replaces it
+            save(tasks.getAll());
+            isPatchInterrupted = false;
+        } else if (journalSize == 0) {
+            clearJournal();
+        } else if (!isStamped || !isComplete) {
+            save(tasks.getAll());
+        }
+    }
+
+    /**
+     * Returns the snapshot generation a journal's first record is stamped with.
+     */
+    private static long parseStamp(String line, File file) throws CorruptFileException {
+        try {
+            return Long.parseLong(line.substring(RECORD_SNAPSHOT.length() + FIELD_DELIMITER.length()));
+        } catch (NumberFormatException e) {
+            throw new CorruptFileException("Invalid stamp in journal: " + file, e);
+        }
+    }
+
+    /**
+     * Returns whether the last byte of a non-empty file is a line break.
+     */
+    private static boolean endsWithNewline(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    /**
+     * Renames a fully written file over the target in one step and syncs
+     * the directory so that the rename itself survives a crash.
+     */
+    static void replace(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Path directory = target.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the rename is still atomic
+        }
+    }
+
+    /**
+     * Reports a damaged data file and moves it aside, so that the next save
+     * does not overwrite whatever can still be recovered from it.
+     */
+    private void setAside(CorruptFileException e) {
+        File file = new File(filePath);
+        File aside = new File(filePath + CORRUPT_SUFFIX);
+
+        aside.delete();
+        file.renameTo(aside);
+        new File(journalPath).renameTo(new File(journalPath + CORRUPT_SUFFIX));
+
+        report("Data file is damaged (" + e.getMessage() + ").");
+        report("It was moved to " + aside.getPath() + " and Porus is starting with an empty list.");
+    }
+
+    /**
+     * Records a message for the user, to be shown by whoever owns the UI.
+     */
+    private void report(String message) {
+        notices.get().add(message);
+    }
+
+    /**
+     * Applies a single journal record to the list of tasks.
+     */
+    private void applyRecord(String record, TaskList tasks) throws PorusException {
+        int split = record.indexOf(FIELD_DELIMITER);
+        String[] parts = {record.substring(0, split), record.substring(split + FIELD_DELIMITER.length())};
+
+        switch (parts[0]) {
+        case RECORD_ADD:
+            Task task = parseLine(parts[1]);
+            if (task != null) {
+                tasks.add(task);
+                changes.add();
+            }
+            break;
+
+        case RECORD_INSERT:
+            int indexEnd = parts[1].indexOf(FIELD_DELIMITER);
+            Task inserted = parseLine(parts[1].substring(indexEnd + FIELD_DELIMITER.length()));
+            if (inserted != null) {
+                int position = Integer.parseInt(parts[1].substring(0, indexEnd));
+                tasks.insert(position, inserted);
+                changes.restructure();
+                isRenumberNeeded |= position < tasks.size() - 1;
+            }
+            break;
+
+        case RECORD_DELETE:
+            tasks.remove(Integer.parseInt(parts[1]));
+            changes.restructure();
+            break;
+
+        case RECORD_DELETE_ALL:
+            tasks.removeAll(parsePositions(parts[1]));
+            changes.restructure();
+            break;
+
+        case RECORD_MARK_ALL:
+            String[] markFields = splitFields(parts[1]);
+            int[] positions = parsePositions(markFields[0]);
+            tasks.markAll(positions, markFields[1].equals("1"));
+            changes.mark(positions);
+            break;
+
+        case RECORD_MARK:
+            String[] fields = splitFields(parts[1]);
+            int position = Integer.parseInt(fields[0]);
+            tasks.mark(position, fields[1].equals("1"));
+            changes.mark(position);
+            break;
+
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Writes increasing positions compactly, with runs as {@code FROM-TO}
+     * and separated by commas.
+     */
+    private static String formatPositions(int[] positions) {
+        StringBuilder text = new StringBuilder();
+        int i = 0;
+
+        while (i < positions.length) {
+            int end = i;
+            while (end + 1 < positions.length && positions[end + 1] == positions[end] + 1) {
+                end++;
+            }
+
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(positions[i]);
+            if (end > i) {
+                text.append('-').append(positions[end]);
+            }
+            i = end + 1;
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Reads positions written by {@link #formatPositions(int[])}.
+     */
+    private static int[] parsePositions(String text) {
+        int[] positions = new int[16];
+        int count = 0;
+
+        for (String part : text.split(",")) {
+            int dash = part.indexOf('-');
+            int from = Integer.parseInt(dash < 0 ? part : part.substring(0, dash));
+            int to = dash < 0 ? from : Integer.parseInt(part.substring(dash + 1));
+
+            for (int position = from; position <= to; position++) {
+                if (count == positions.length) {
+                    positions = Arrays.copyOf(positions, count * 2);
+                }
+                positions[count++] = position;
+            }
+        }
+
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Creates file and parent directories if they do not exist.
+     */
+    private void createFileIfMissing(File file) throws IOException {
+        File parent = file.getParentFile();
+
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        if (!file.exists()) {
+            file.createNewFile();
+        }
+    }
+
+    /**
+     * Moves tasks from the text file with the same name into this binary file,
+     * then renames the text file so that the migration only happens once.
+     */
+    private ArrayList<Task> migrateTextFile() throws IOException {
+        String textPath = filePath.substring(0, filePath.length() - BINARY_SUFFIX.length()) + TEXT_SUFFIX;
+        File textFile = new File(textPath);
+
+        if (!textFile.exists()) {
+            createFileIfMissing(new File(filePath));
+            return new ArrayList<>();
+        }
+
+        FileStorage text = new FileStorage(textPath);
+        ArrayList<Task> tasks = text.load();
+        save(tasks);
+
+        textFile.renameTo(new File(textPath + MIGRATED_SUFFIX));
+        new File(text.journalPath).delete();
+        return tasks;
+    }
+
+    /**
+     * Reads every task from a text data file, skipping corrupted lines and
+     * reporting their line numbers. Large files are parsed on several threads
+     * by {@link TextFileReader}.
+     * <p>
+     * Files written by this version start with a header line holding the
+     * generation and end with a trailer line holding the line count and
+     * checksum, so a file cut short is detected. Files without the header
+     * are read as before.
+     */
+    private ArrayList<Task> readTextFile(File file) throws IOException {
+        TextFileReader.Contents contents = TextFileReader.read(file.toPath(),
+                TEXT_HEADER + FIELD_DELIMITER, TEXT_TRAILER + FIELD_DELIMITER, FileStorage::parseLine);
+
+        if (contents.header != null) {
+            generation = parseHeaderField(contents.header, 1, file);
+
+            if (contents.trailer == null) {
+                throw new CorruptFileException("Data file ends early: " + file);
+            }
+            if (contents.count != parseHeaderField(contents.trailer, 1, file)
+                    || contents.checksum != parseHeaderField(contents.trailer, 2, file)) {
+                throw new CorruptFileException("Checksum mismatch in data file: " + file);
+            }
+        }
+
+        if (contents.skippedLines.length > 0) {
+            reportSkippedLines(contents.skippedLines, file);
+        }
+        return contents.tasks;
+    }
+
+    /**
+     * Records which lines of a data file were skipped, listing the first few.
+     */
+    private void reportSkippedLines(int[] lines, File file) {
+        StringBuilder message = new StringBuilder("Skipped unreadable lines in " + file.getPath() + ": ");
+        int shown = Math.min(lines.length, MAX_SKIPPED_LINES_SHOWN);
+        for (int i = 0; i < shown; i++) {
+            message.append(i == 0 ? "" : ", ").append(lines[i]);
+        }
+        if (lines.length > shown) {
+            message.append(" and ").append(lines.length - shown).append(" more");
+        }
+        report(message.toString());
+    }
+
+    /**
+     * Reads a number from a header or trailer line of a text data file.
+     */
+    private static long parseHeaderField(String line, int index, File file) throws CorruptFileException {
+        try {
+            return Long.parseLong(splitFields(line)[index]);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new CorruptFileException("Invalid header in data file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes every task to a text data file between a header and a trailer
+     * line, and syncs it to disk.
+     */
+    private void writeTextFile(File file, ArrayList<Task> tasks, long generation) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        StringBuilder line = new StringBuilder();
+        CRC32 crc = new CRC32();
+        long checksum = 0;
+
+        writer.write(TEXT_HEADER + FIELD_DELIMITER + generation);
+        writer.newLine();
+
+        for (Task task : tasks) {
+            line.setLength(0);
+            appendTask(line, task);
+            crc.reset();
+            crc.update(line.toString().getBytes(StandardCharsets.UTF_8));
+            checksum += crc.getValue();
+            writer.append(line);
+            writer.newLine();
+        }
+
+        writer.write(TEXT_TRAILER + FIELD_DELIMITER + tasks.size() + FIELD_DELIMITER + checksum);
+        writer.newLine();
+
+        writer.flush();
+        out.getFD().sync();
+        writer.close();
+    }
+
+    /**
+     * Converts a Task into storage format.
+     */
+    private String formatTask(Task task) {
+        StringBuilder line = new StringBuilder();
+        appendTask(line, task);
+        return line.toString();
+    }
+
+    /**
+     * Appends a Task in storage format to a reusable builder.
+     */
+    private void appendTask(StringBuilder line, Task task) {
+        line.append(task.getTypeIcon())
+                .append(FIELD_DELIMITER).append(task.getDone() ? '1' : '0')
+                .append(FIELD_DELIMITER);
+        appendEscaped(line, task.getDescription());
+
+        if (task instanceof Deadline) {
+            line.append(FIELD_DELIMITER);
+            appendEscaped(line, ((Deadline) task).getBy());
+        } else if (task instanceof Event) {
+            Event e = (Event) task;
+            line.append(FIELD_DELIMITER);
+            appendEscaped(line, e.getFrom());
+            line.append(FIELD_DELIMITER);
+            appendEscaped(line, e.getTo());
+        }
+    }
+
+    /**
+     * Appends task text with a backslash before each backslash and pipe, so
+     * that the text never contains the field delimiter.
+     */
+    private static void appendEscaped(StringBuilder line, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE || c == PIPE) {
+                line.append(ESCAPE);
+            }
+            line.append(c);
+        }
+    }
+
+    /**
+     * Reverses {@link #appendEscaped}. A backslash before any other character
+     * is kept, so text from files written before escaping reads as it did.
+     */
+    private static String unescape(String field) {
+        if (field.indexOf(ESCAPE) < 0) {
+            return field;
+        }
+
+        StringBuilder text = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ESCAPE && i + 1 < field.length()
+                    && (field.charAt(i + 1) == ESCAPE || field.charAt(i + 1) == PIPE)) {
+                c = field.charAt(++i);
+            }
+            text.append(c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses a line from file into a Task, sharing its text fields
+     * with other tasks through the {@link StringPool}.
+     */
+    private static Task parseLine(String line) {
+        String[] parts = splitFields(line);
+
+        if (parts.length < 3) {
+            return null;
+        }
+
+        String type = parts[0];
+        boolean isDone = parts[1].equals("1");
+        String description = StringPool.intern(unescape(parts[2]));
+
+        Task task;
+
+        switch (type) {
+        case "T":
+            task = new Todo(description);
+            break;
+
+        case "D":
+            if (parts.length < 4) {
+                return null;
+            }
+            task = new Deadline(description, StringPool.intern(unescape(parts[3])));
+            break;
+
+        case "E":
+            if (parts.length < 5) {
+                return null;
+            }
+            task = new Event(description, StringPool.intern(unescape(parts[3])),
+                    StringPool.intern(unescape(parts[4])));
+            break;
+
+        default:
+            return null;
+        }
+
+        task.setDone(isDone);
+        return task;
+    }
+
+    /**
+     * Splits a line on the field delimiter without going through a regex.
+     * Trailing empty fields are dropped, matching {@link String#split(String)}.
+     */
+    private static String[] splitFields(String line) {
+        ArrayList<String> fields = new ArrayList<>(5);
+        int start = 0;
+        int end;
+
+        while ((end = line.indexOf(FIELD_DELIMITER, start)) >= 0) {
+            fields.add(line.substring(start, end));
+            start = end + FIELD_DELIMITER.length();
+        }
+        fields.add(line.substring(start));
+
+        int size = fields.size();
+        while (size > 0 && fields.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return fields.subList(0, size).toArray(new String[0]);
+    }
+}
@@ -0,0 +1,245 @@
+package porus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends journal records to a file on a dedicated writer thread.
+ * <p>
+ * Callers only queue records. The writer thread takes everything queued
+ * since its last pass, writes it in one go and forces it to disk once,
+ * so many records share the cost of a single {@link FileChannel#force}.
+ * In {@link Storage.Durability#SYNC} mode there is no writer thread and
+ * each record is written and forced by the caller.
+ */
+class JournalWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final Storage.Durability durability;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition hasWritten = lock.newCondition();
+
+    private ArrayList<String> pending = new ArrayList<>();
+    private long queued;
+    private long written;
+    private boolean isWriting;
+    private boolean isClosed;
+    private IOException failure;
+
+    /**
+     * Opens a journal file for appending.
+     *
+     * @param path journal file
+     * @param durability when appended records must reach the disk
+     * @throws IOException If the file cannot be opened.
+     */
+    JournalWriter(Path path, Storage.Durability durability) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.durability = durability;
+
+        if (durability == Storage.Durability.SYNC) {
+            writer = null;
+        } else {
+            writer = new Thread(this::run, "porus-journal");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Adds a record to the journal. In sync mode the record is on disk when
+     * this returns; otherwise it is only queued for the writer thread.
+     *
+     * @param record one journal line, without the line break
+     * @throws IOException If an earlier or this write failed.
+     */
+    void append(String record) throws IOException {
+        lock.lock();
+        try {
+            throwIfFailed();
+
+            if (writer == null) {
+                write(List.of(record));
+                channel.force(false);
+                return;
+            }
+
+            pending.add(record);
+            queued++;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the records queued so far are on disk if this journal
+     * groups commits; returns straight away in the other modes.
+     *
+     * @throws IOException If a write failed.
+     */
+    void awaitDurable() throws IOException {
+        if (durability == Storage.Durability.GROUP) {
+            flush();
+        }
+    }
+
+    /**
+     * Waits until every record queued so far is on disk.
+     *
+     * @throws IOException If a write failed.
+     */
+    void flush() throws IOException {
+        lock.lock();
+        try {
+            long target = queued;
+            while (written < target && failure == null) {
+                hasWritten.awaitUninterruptibly();
+            }
+            throwIfFailed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops queued records and empties the file, after a snapshot has made
+     * them redundant.
+     *
+     * @throws IOException If the file cannot be truncated.
+     */
+    void truncate() throws IOException {
+        lock.lock();
+        try {
+            while (isWriting) {
+                hasWritten.awaitUninterruptibly();
+            }
+            pending.clear();
+            written = queued;
+            channel.truncate(0);
+            hasWritten.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out queued records, stops the writer thread and closes the file.
+     *
+     * @throws IOException If a write failed.
+     */
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            lock.lock();
+            try {
+                isClosed = true;
+                hasWork.signal();
+            } finally {
+                lock.unlock();
+            }
+
+            if (writer != null) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Writer thread loop: takes every queued record, writes them and forces once.
+     */
+    private void run() {
+        while (true) {
+            List<String> batch;
+            long last;
+
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !isClosed) {
+                    hasWork.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+
+                batch = pending;
+                pending = new ArrayList<>();
+                last = queued;
+                isWriting = true;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                write(batch);
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                isWriting = false;
+                written = Math.max(written, last);
+                if (failure == null) {
+                    failure = error;
+                }
+                hasWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void write(List<String> records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        for (String record : records) {
+            byte[] bytes = (record + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > buffer.remaining()) {
+                drain(buffer);
+                if (bytes.length > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(bytes.length);
+                }
+            }
+            buffer.put(bytes);
+        }
+
+        drain(buffer);
+    }
+
+    private void drain(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void throwIfFailed() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
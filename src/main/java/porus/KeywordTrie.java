@@ -0,0 +1,74 @@
+package porus;
+
+import java.util.Arrays;
+
+/**
+ * Maps lower-case ASCII keywords to values with a character trie.
+ * <p>
+ * Lookups walk the characters of the input in place, so finding the
+ * keyword at the start of a line needs no substring or hashing.
+ *
+ * @param <T> type of the values stored against keywords
+ */
+class KeywordTrie<T> {
+
+    private static final int ALPHABET = 26;
+
+    private int[] children = new int[ALPHABET * 8];
+    private Object[] values = new Object[8];
+    private int nodeCount = 1; // node 0 is the root
+
+    /**
+     * Stores a value against a keyword.
+     *
+     * @param keyword lower-case ASCII letters only
+     * @param value value returned by lookups of this keyword
+     */
+    void put(String keyword, T value) {
+        int node = 0;
+
+        for (int i = 0; i < keyword.length(); i++) {
+            int slot = node * ALPHABET + (keyword.charAt(i) - 'a');
+            if (children[slot] == 0) {
+                int child = allocate(); // may replace the children array
+                children[slot] = child;
+            }
+            node = children[slot];
+        }
+
+        values[node] = value;
+    }
+
+    /**
+     * Looks up the keyword formed by {@code text[0, end)}.
+     *
+     * @param text text starting with the keyword
+     * @param end index just past the keyword
+     * @return the stored value, or null if there is no such keyword
+     */
+    @SuppressWarnings("unchecked")
+    T get(CharSequence text, int end) {
+        int node = 0;
+
+        for (int i = 0; i < end; i++) {
+            int letter = text.charAt(i) - 'a';
+            if (letter < 0 || letter >= ALPHABET) {
+                return null;
+            }
+            node = children[node * ALPHABET + letter];
+            if (node == 0) {
+                return null;
+            }
+        }
+
+        return (T) values[node];
+    }
+
+    private int allocate() {
+        if (nodeCount == values.length) {
+            values = Arrays.copyOf(values, nodeCount * 2);
+            children = Arrays.copyOf(children, nodeCount * 2 * ALPHABET);
+        }
+        return nodeCount++;
+    }
+}
@@ -0,0 +1,311 @@
+package porus;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps track of the named task lists in the data folder, and of which one
+ * commands currently run against.
+ * <p>
+ * Each list has its own {@link Storage} file in the data folder, such as
+ * {@code NAME.bin}, with the suffix of the chosen {@link Storage.Backend}, so
+ * a list can be opened without reading any other. A list is only
+ * loaded the first time it is switched to. Loaded lists are kept in least
+ * recently used order, and once their estimated memory exceeds the budget,
+ * the least recently used ones are unloaded: outstanding changes are written
+ * out, the list's files are closed, and the list is dropped.
+ * The current list is never unloaded, so it may exceed the budget on its own.
+ * <p>
+ * The registry is not synchronized; it is used by the console loop only.
+ * The one exception is {@link #flush()}, which a shutdown hook may call
+ * while a command runs, so it works on a copy of the loaded storages that
+ * is replaced whenever a list is loaded or unloaded, and never touches the
+ * access-ordered map itself.
+ */
+public class ListRegistry {
+
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final Path directory;
+    private final Storage.Backend backend;
+    private final long memoryBudget;
+    private final Storage.Durability durability;
+    private final TaskList.Layout layout;
+
+    // Access order: the least recently used list comes first
+    private final LinkedHashMap<String, Entry> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private String currentName;
+    private Entry current;
+    // Storages of the loaded lists, for flush() to use from another thread
+    private volatile List<Storage> storages = List.of();
+    // Storage messages of lists unloaded since they were last taken
+    private final List<String> notices = new ArrayList<>();
+
+    /**
+     * Creates a registry over a data folder and loads its default list.
+     *
+     * @param directory data folder holding one file per list
+     * @param defaultName list to start on
+     * @param backend how each list is kept on disk
+     * @param memoryBudget estimated bytes that loaded lists may hold before
+     *         the least recently used ones are unloaded
+     * @param durability durability mode of each list's storage
+     * @param layout memory layout of each loaded list
+     */
+    public ListRegistry(Path directory, String defaultName, Storage.Backend backend, long memoryBudget,
+            Storage.Durability durability, TaskList.Layout layout) {
+        this.directory = directory;
+        this.backend = backend;
+        this.memoryBudget = memoryBudget;
+        this.durability = durability;
+        this.layout = layout;
+
+        currentName = defaultName;
+        current = load(defaultName);
+    }
+
+    /**
+     * Returns the list commands currently run against.
+     *
+     * @return current task list
+     */
+    public TaskList current() {
+        return current.tasks;
+    }
+
+    /**
+     * Returns the storage of the current list.
+     *
+     * @return current list's storage
+     */
+    public Storage currentStorage() {
+        return current.storage;
+    }
+
+    /**
+     * Returns the name of the current list.
+     *
+     * @return current list name
+     */
+    public String currentName() {
+        return currentName;
+    }
+
+    /**
+     * Makes the named list current, loading it if it is not loaded yet.
+     * A list that does not exist yet is created empty.
+     *
+     * @param name list name
+     * @return true if the list existed already
+     * @throws PorusException If the name is not a valid list name.
+     */
+    public boolean switchTo(String name) throws PorusException {
+        if (!NAME.matcher(name).matches()) {
+            throw new PorusException("A list name may only use letters, digits, '-' and '_', "
+                    + "up to 64 characters.");
+        }
+
+        Entry entry = loaded.get(name);
+        boolean isExisting = entry != null || exists(name);
+        if (entry == null) {
+            entry = load(name);
+        }
+
+        currentName = name;
+        current = entry;
+        evictIfNeeded();
+        return isExisting;
+    }
+
+    /**
+     * Returns the names of every list, saved or loaded, in alphabetical order.
+     *
+     * @return list names
+     */
+    public List<String> names() {
+        TreeSet<String> names = new TreeSet<>(loaded.keySet());
+        String[] files = directory.toFile().list();
+
+        if (files != null) {
+            for (String file : files) {
+                String name = stripSuffix(file);
+                if (name != null && NAME.matcher(name).matches()) {
+                    names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns the loaded list with the given name, without counting it as used.
+     *
+     * @param name list name
+     * @return the loaded list, or null if it is not loaded
+     */
+    public TaskList getLoaded(String name) {
+        for (Map.Entry<String, Entry> entry : loaded.entrySet()) {
+            if (entry.getKey().equals(name)) {
+                return entry.getValue().tasks;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the estimated memory held by all loaded lists.
+     *
+     * @return approximate size in bytes
+     */
+    public long estimateMemory() {
+        long bytes = 0;
+        for (Entry entry : loaded.values()) {
+            bytes += entry.tasks.estimateMemory();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns how much memory loaded lists may hold before some are unloaded.
+     *
+     * @return budget in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Unloads the least recently used lists, other than the current one,
+     * until the estimated memory of the loaded lists is within budget.
+     * Called after each command, as the current list may have grown.
+     */
+    public void evictIfNeeded() {
+        long used = estimateMemory();
+        Iterator<Entry> entries = loaded.values().iterator();
+
+        while (used > memoryBudget && entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry == current) {
+                continue;
+            }
+            used -= entry.tasks.estimateMemory();
+            unload(entry);
+            entries.remove();
+            updateStorages();
+        }
+    }
+
+    /**
+     * Waits until every change recorded for a loaded list is on disk, without
+     * touching the lists themselves, so that it is safe to call while a
+     * command may still be running, as when the program is stopped.
+     */
+    public void flush() {
+        for (Storage storage : storages) {
+            storage.flush();
+        }
+    }
+
+    /**
+     * Returns the messages that the storage of any list has recorded since
+     * the last call, including lists unloaded since then, and forgets them.
+     *
+     * @return messages for the user, oldest list first
+     */
+    public List<String> takeNotices() {
+        List<String> taken = new ArrayList<>(notices);
+        notices.clear();
+        for (Entry entry : loaded.values()) {
+            taken.addAll(entry.storage.takeNotices());
+        }
+        return taken;
+    }
+
+    /**
+     * Writes out each loaded list's outstanding changes and closes its storage.
+     */
+    public void close() {
+        for (Entry entry : loaded.values()) {
+            unload(entry);
+        }
+    }
+
+    private Entry load(String name) {
+        Storage storage = backend.create(directory.resolve(name).toString());
+        storage.setDurability(durability);
+        storage.setLayout(layout);
+
+        Entry entry = new Entry(storage, storage.open());
+        loaded.put(name, entry);
+        updateStorages();
+        return entry;
+    }
+
+    /**
+     * Replaces the copy of the loaded storages that {@link #flush()} uses.
+     */
+    private void updateStorages() {
+        List<Storage> copy = new ArrayList<>();
+        for (Entry entry : loaded.values()) {
+            copy.add(entry.storage);
+        }
+        storages = List.copyOf(copy);
+    }
+
+    /**
+     * Writes out a list's outstanding changes and closes its files, keeping
+     * any messages its storage recorded until they are taken.
+     */
+    private void unload(Entry entry) {
+        entry.storage.flush();
+        entry.storage.compact(entry.tasks);
+        entry.storage.close();
+        notices.addAll(entry.storage.takeNotices());
+    }
+
+    private boolean exists(String name) {
+        for (Storage.Backend other : Storage.Backend.values()) {
+            if (new File(directory.toFile(), name + other.getSuffix()).exists()) {
+                return true;
+            }
+        }
+        return new File(directory.toFile(), name + TEXT_SUFFIX).exists();
+    }
+
+    /**
+     * Returns the list name a data file belongs to, or null for other files
+     * in the folder, such as journals and backups.
+     */
+    private static String stripSuffix(String file) {
+        for (Storage.Backend backend : Storage.Backend.values()) {
+            if (file.endsWith(backend.getSuffix())) {
+                return file.substring(0, file.length() - backend.getSuffix().length());
+            }
+        }
+        if (file.endsWith(TEXT_SUFFIX)) {
+            return file.substring(0, file.length() - TEXT_SUFFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * A loaded list and the storage it is saved through.
+     */
+    private static final class Entry {
+        private final Storage storage;
+        private final TaskList tasks;
+
+        Entry(Storage storage, TaskList tasks) {
+            this.storage = storage;
+            this.tasks = tasks;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package porus;
+
+import porus.task.Task;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * A memory-mapped binary data file whose tasks are decoded only when asked for.
+ * <p>
+ * Opening the file records the offset of every task record but creates no
+ * task objects, so the cost of opening is a single pass over the bytes.
+ */
+class MappedTaskFile {
+
+    private final MappedByteBuffer buffer;
+    private final int[] offsets;
+    private final int end;
+    private final String[] dictionary;
+    private final boolean isPatchable;
+
+    /**
+     * Creates a view over a mapped file.
+     *
+     * @param buffer mapped file contents
+     * @param offsets start of each task record, in file order
+     * @param end offset just past the last record
+     * @param dictionary the file's shared text fields
+     * @param isPatchable whether the file is in the current version, which
+     *         {@link BinaryTaskFile#patch} can update in place
+     */
+    MappedTaskFile(MappedByteBuffer buffer, int[] offsets, int end, String[] dictionary,
+            boolean isPatchable) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.end = end;
+        this.dictionary = dictionary;
+        this.isPatchable = isPatchable;
+    }
+
+    /**
+     * Returns the number of tasks in the file.
+     *
+     * @return task count
+     */
+    int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Decodes a task from the file.
+     *
+     * @param record zero-based position of the task in the file
+     * @return a new task object
+     */
+    Task get(int record) {
+        return BinaryTaskFile.decode(buffer, offsets[record], dictionary);
+    }
+
+    /**
+     * Returns whether a task in the file is done, without decoding it.
+     *
+     * @param record zero-based position of the task in the file
+     * @return completion status
+     */
+    boolean isDone(int record) {
+        return BinaryTaskFile.isDone(buffer, offsets[record]);
+    }
+
+    /**
+     * Returns where the file's records are, sharing the offsets read when
+     * the file was mapped.
+     *
+     * @return record offsets, or null if the file is in an older version
+     */
+    RecordOffsets recordOffsets() {
+        return isPatchable ? new RecordOffsets(offsets, end) : null;
+    }
+}
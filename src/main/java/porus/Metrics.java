@@ -0,0 +1,218 @@
+package porus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps latency histograms for the stages of handling a command, and a
+ * count, error count and latency histogram for each type of command.
+ * <p>
+ * Stages are timed where they happen: {@link Parser#parse(String)}, command
+ * execution, {@link Storage} loads and saves, and {@link UI#flush()}. The
+ * figures are shown by the {@code stats} command and written to a file on
+ * exit, as Prometheus text, or as JSON if the file name ends in
+ * {@code .json}. Recording is safe from several threads.
+ */
+public final class Metrics {
+
+    /**
+     * A part of handling a command that is timed separately.
+     */
+    public enum Stage {
+        /** Turning the input line into a command. */
+        PARSE,
+        /** Running the command against the task list. */
+        EXECUTE,
+        /** Reading the task list from disk. */
+        LOAD,
+        /** Writing a snapshot of the task list to disk. */
+        SAVE,
+        /** Writing responses to the output. */
+        UI
+    }
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    private static final String JSON_SUFFIX = ".json";
+
+    private static final LatencyHistogram[] STAGES = new LatencyHistogram[Stage.values().length];
+    private static final Map<String, CommandMetrics> COMMANDS = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < STAGES.length; i++) {
+            STAGES[i] = new LatencyHistogram();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Records how long a stage took.
+     *
+     * @param stage stage that ran
+     * @param nanos time taken, in nanoseconds
+     */
+    public static void record(Stage stage, long nanos) {
+        STAGES[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records a command run, under its type as well as the execute stage.
+     *
+     * @param command name of the command type, such as {@code "list"}
+     * @param nanos time taken, in nanoseconds
+     * @param isError whether the command failed with an error for the user
+     */
+    public static void recordCommand(String command, long nanos, boolean isError) {
+        record(Stage.EXECUTE, nanos);
+        CommandMetrics metrics = COMMANDS.computeIfAbsent(command, name -> new CommandMetrics());
+        metrics.latency.record(nanos);
+        if (isError) {
+            metrics.errors.increment();
+        }
+    }
+
+    /**
+     * Returns the figures as lines of a table, in microseconds.
+     *
+     * @return table lines for display
+     */
+    public static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-12s %8s %8s %9s %9s %9s %9s %9s",
+                "stage", "count", "errors", "mean", "p50", "p90", "p99", "max"));
+
+        for (Stage stage : Stage.values()) {
+            lines.add(summaryLine(stage.name().toLowerCase(Locale.ROOT), STAGES[stage.ordinal()], "-"));
+        }
+        for (Map.Entry<String, CommandMetrics> entry : new TreeMap<>(COMMANDS).entrySet()) {
+            CommandMetrics metrics = entry.getValue();
+            lines.add(summaryLine("  " + entry.getKey(), metrics.latency,
+                    String.valueOf(metrics.errors.sum())));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the figures to a file, as JSON if its name ends in {@code .json}
+     * and as Prometheus text otherwise.
+     *
+     * @param path file to write
+     * @throws IOException If the file cannot be written.
+     */
+    public static void export(Path path) throws IOException {
+        String text = path.toString().endsWith(JSON_SUFFIX) ? toJson() : toPrometheus();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.writeString(path, text, StandardCharsets.UTF_8);
+    }
+
+    private static String summaryLine(String name, LatencyHistogram histogram, String errors) {
+        return String.format(Locale.ROOT, "%-12s %8d %8s %9.1f %9.1f %9.1f %9.1f %9.1f",
+                name, histogram.count(), errors, micros(mean(histogram)),
+                micros(histogram.percentile(50)), micros(histogram.percentile(90)),
+                micros(histogram.percentile(99)), micros(histogram.max()));
+    }
+
+    private static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+
+        out.append("# HELP porus_stage_latency_seconds Time spent in each stage of handling commands.\n");
+        out.append("# TYPE porus_stage_latency_seconds summary\n");
+        for (Stage stage : Stage.values()) {
+            appendSummary(out, "porus_stage_latency_seconds",
+                    "stage=\"" + stage.name().toLowerCase(Locale.ROOT) + "\"", STAGES[stage.ordinal()]);
+        }
+
+        Map<String, CommandMetrics> commands = new TreeMap<>(COMMANDS);
+        out.append("# HELP porus_command_latency_seconds Time taken to execute each type of command.\n");
+        out.append("# TYPE porus_command_latency_seconds summary\n");
+        for (Map.Entry<String, CommandMetrics> entry : commands.entrySet()) {
+            appendSummary(out, "porus_command_latency_seconds",
+                    "command=\"" + entry.getKey() + "\"", entry.getValue().latency);
+        }
+
+        out.append("# HELP porus_command_errors_total Commands of each type that failed.\n");
+        out.append("# TYPE porus_command_errors_total counter\n");
+        for (Map.Entry<String, CommandMetrics> entry : commands.entrySet()) {
+            out.append("porus_command_errors_total{command=\"").append(entry.getKey()).append("\"} ")
+                    .append(entry.getValue().errors.sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendSummary(StringBuilder out, String name, String label, LatencyHistogram histogram) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            out.append(name).append('{').append(label)
+                    .append(",quantile=\"").append(QUANTILES[i]).append("\"} ")
+                    .append(seconds(histogram.percentile(PERCENTILES[i]))).append('\n');
+        }
+        out.append(name).append("_sum{").append(label).append("} ").append(seconds(histogram.sum())).append('\n');
+        out.append(name).append("_count{").append(label).append("} ").append(histogram.count()).append('\n');
+    }
+
+    private static String toJson() {
+        StringBuilder out = new StringBuilder("{\n  \"stages\" : {");
+        Stage[] stages = Stage.values();
+        for (int i = 0; i < stages.length; i++) {
+            out.append(i == 0 ? "\n" : ",\n");
+            appendJson(out, stages[i].name().toLowerCase(Locale.ROOT), STAGES[i], null);
+        }
+
+        out.append("\n  },\n  \"commands\" : {");
+        boolean isFirst = true;
+        for (Map.Entry<String, CommandMetrics> entry : new TreeMap<>(COMMANDS).entrySet()) {
+            out.append(isFirst ? "\n" : ",\n");
+            appendJson(out, entry.getKey(), entry.getValue().latency, entry.getValue().errors.sum());
+            isFirst = false;
+        }
+        return out.append("\n  }\n}\n").toString();
+    }
+
+    private static void appendJson(StringBuilder out, String name, LatencyHistogram histogram, Long errors) {
+        out.append("    \"").append(name).append("\" : { \"count\" : ").append(histogram.count());
+        if (errors != null) {
+            out.append(", \"errors\" : ").append(errors);
+        }
+        out.append(", \"meanNanos\" : ").append(mean(histogram));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            out.append(", \"").append(PERCENTILE_NAMES[i]).append("Nanos\" : ")
+                    .append(histogram.percentile(PERCENTILES[i]));
+        }
+        out.append(", \"maxNanos\" : ").append(histogram.max()).append(" }");
+    }
+
+    private static long mean(LatencyHistogram histogram) {
+        long count = histogram.count();
+        return count == 0 ? 0 : histogram.sum() / count;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1e3;
+    }
+
+    private static String seconds(long nanos) {
+        return String.valueOf(nanos / 1e9);
+    }
+
+    /**
+     * Figures kept for one type of command.
+     */
+    private static final class CommandMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,116 @@
+package porus;
+
+import porus.task.Task;
+
+import java.util.Arrays;
+
+/**
+ * Keeps one task object per node. Over a mapped data file, tasks are decoded
+ * the first time they are needed and kept from then on.
+ */
+class ObjectTaskStore implements TaskStore {
+
+    // Average size of a task object and its strings, as measured by MemoryBench
+    private static final int TASK_BYTES = 130;
+
+    private Task[] nodes = new Task[16];
+
+    // Tasks not yet decoded from the file; node n holds record n - 1
+    private final MappedTaskFile source;
+    private final int sourceCount;
+
+    /**
+     * Creates an empty store.
+     */
+    ObjectTaskStore() {
+        this.source = null;
+        this.sourceCount = 0;
+    }
+
+    /**
+     * Creates a store over a mapped data file without decoding any tasks.
+     * Nodes 1 to the file's size hold the file's records in order.
+     *
+     * @param source mapped data file
+     */
+    ObjectTaskStore(MappedTaskFile source) {
+        this.source = source;
+        this.sourceCount = source.size();
+        this.nodes = new Task[sourceCount + 1];
+    }
+
+    /**
+     * Returns the task stored at a node, decoding it from the source file
+     * the first time it is needed.
+     */
+    @Override
+    public Task get(int node) {
+        Task task = nodes[node];
+
+        if (task == null && node <= sourceCount) {
+            task = source.get(node - 1);
+            TaskList.IDS.setId(task, node);
+            nodes[node] = task;
+        }
+
+        return task;
+    }
+
+    @Override
+    public void put(int node, Task task) {
+        if (node >= nodes.length) {
+            nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, node + 1));
+        }
+        nodes[node] = task;
+    }
+
+    @Override
+    public void remove(int node) {
+        nodes[node] = null;
+    }
+
+    /**
+     * Reads the status straight from the source file if the task has not
+     * been decoded yet.
+     */
+    @Override
+    public boolean isDone(int node) {
+        Task task = nodes[node];
+        if (task == null && node <= sourceCount) {
+            return source.isDone(node - 1);
+        }
+        return task.getDone();
+    }
+
+    @Override
+    public void setDone(int node, boolean isDone) {
+        get(node).setDone(isDone);
+    }
+
+    @Override
+    public Task current(Task task) {
+        return task;
+    }
+
+    /**
+     * Returns the id a task from the source file gets when it is decoded,
+     * which is its node, if it has not been decoded yet.
+     */
+    @Override
+    public int idOf(int node) {
+        Task task = nodes[node];
+        if (task == null && node <= sourceCount) {
+            return node;
+        }
+        return task.getId();
+    }
+
+    /**
+     * Counts every task as decoded, so a list over a mapped file that has
+     * only been partly read is overestimated.
+     */
+    @Override
+    public long estimateMemory(int count) {
+        return (long) nodes.length * Integer.BYTES + (long) count * TASK_BYTES;
+    }
+}
@@ -0,0 +1,451 @@
+package porus;
+
+import java.util.Arrays;
+
+/**
+ * Positional sequence of node ids, kept as an implicit treap.
+ * <p>
+ * Supports insert, remove and lookup by position in O(log n) expected time,
+ * so deleting from the middle of a large list does not shift every later
+ * element the way {@code ArrayList.remove} does. Nodes live in parallel
+ * primitive arrays and are recycled through a free list; callers use the
+ * node id returned by {@link #insert(int)} to store their own data.
+ */
+class OrderTree {
+
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] left = new int[INITIAL_CAPACITY];
+    private int[] right = new int[INITIAL_CAPACITY];
+    private int[] count = new int[INITIAL_CAPACITY];
+    private int[] priority = new int[INITIAL_CAPACITY];
+
+    private int[] freeNodes = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int nodeCount = 1; // node 0 is the empty sentinel
+
+    private int root = NIL;
+    private int seed = 0x9E3779B9;
+
+    // Results of split(), kept in fields to avoid allocating a pair per call
+    private int splitLeft;
+    private int splitRight;
+
+    /**
+     * Returns the number of nodes in the sequence.
+     *
+     * @return sequence length
+     */
+    int size() {
+        return count[root];
+    }
+
+    /**
+     * Inserts a new node so that it ends up at the given position.
+     *
+     * @param position zero-based position, between 0 and {@link #size()}
+     * @return id of the new node
+     */
+    int insert(int position) {
+        int node = allocate();
+
+        if (position == count[root]) {
+            root = merge(root, node);
+            return node;
+        }
+
+        split(root, position);
+        int before = splitLeft;
+        int after = splitRight;
+        root = merge(merge(before, node), after);
+        return node;
+    }
+
+    /**
+     * Fills an empty sequence with {@code n} new nodes in linear time.
+     * The nodes get ids 1 to {@code n}, in sequence order.
+     *
+     * @param n number of nodes to add
+     */
+    void fill(int n) {
+        assert root == NIL && nodeCount == 1 : "fill() needs an empty tree";
+
+        while (left.length <= n) {
+            grow();
+        }
+
+        int[] sequence = new int[n];
+        for (int node = 1; node <= n; node++) {
+            priority[node] = nextPriority();
+            sequence[node - 1] = node;
+        }
+
+        nodeCount = n + 1;
+        root = build(sequence, n);
+    }
+
+    /**
+     * Removes the nodes at the given positions.
+     * <p>
+     * A few nodes are removed one at a time; for larger selections the
+     * remaining nodes are collected and the tree is rebuilt in one linear pass.
+     *
+     * @param positions zero-based positions in increasing order, each less than {@link #size()}
+     * @return ids of the removed nodes, in the same order, which may be reused by later inserts
+     */
+    int[] removeAll(int[] positions) {
+        int[] removed = new int[positions.length];
+
+        if (isSmall(positions.length)) {
+            for (int i = positions.length - 1; i >= 0; i--) {
+                removed[i] = remove(positions[i]);
+            }
+            return removed;
+        }
+
+        int[] sequence = toArray();
+        int kept = 0;
+        int next = 0;
+
+        for (int i = 0; i < sequence.length; i++) {
+            if (next < positions.length && positions[next] == i) {
+                removed[next++] = sequence[i];
+            } else {
+                sequence[kept++] = sequence[i];
+            }
+        }
+
+        root = build(sequence, kept);
+        for (int node : removed) {
+            release(node);
+        }
+        return removed;
+    }
+
+    /**
+     * Inserts new nodes so that they end up at the given positions.
+     * Large selections are merged into the sequence in one linear pass,
+     * as in {@link #removeAll(int[])}.
+     *
+     * @param positions zero-based positions the new nodes will have, in increasing order
+     * @return ids of the new nodes, in the same order
+     */
+    int[] insertAll(int[] positions) {
+        int[] inserted = new int[positions.length];
+
+        if (isSmall(positions.length)) {
+            for (int i = 0; i < positions.length; i++) {
+                inserted[i] = insert(positions[i]);
+            }
+            return inserted;
+        }
+
+        int[] old = toArray();
+        int[] sequence = new int[old.length + positions.length];
+        int next = 0;
+        int from = 0;
+
+        for (int i = 0; i < sequence.length; i++) {
+            if (next < positions.length && positions[next] == i) {
+                int node = allocate();
+                inserted[next++] = node;
+                sequence[i] = node;
+            } else {
+                sequence[i] = old[from++];
+            }
+        }
+
+        root = build(sequence, sequence.length);
+        return inserted;
+    }
+
+    /**
+     * Returns whether changing this many nodes one at a time, at O(log n)
+     * each, is cheaper than rebuilding the whole tree.
+     */
+    private boolean isSmall(int changes) {
+        return changes < (count[root] >> 5);
+    }
+
+    /**
+     * Builds a treap over the first {@code n} nodes of a sequence, keeping
+     * their priorities, and returns its root.
+     */
+    private int build(int[] sequence, int n) {
+        // Builds the treap as a Cartesian tree over the priorities with a
+        // stack holding the right spine. A node's subtree is complete once it
+        // is popped, so its count can be fixed up at that point.
+        int[] spine = new int[64];
+        int depth = 0;
+
+        for (int i = 0; i < n; i++) {
+            int node = sequence[i];
+            left[node] = NIL;
+            right[node] = NIL;
+
+            int last = NIL;
+            while (depth > 0 && priority[spine[depth - 1]] < priority[node]) {
+                last = spine[--depth];
+                update(last);
+            }
+
+            left[node] = last;
+            if (depth > 0) {
+                right[spine[depth - 1]] = node;
+            }
+
+            if (depth == spine.length) {
+                spine = Arrays.copyOf(spine, depth * 2);
+            }
+            spine[depth++] = node;
+        }
+
+        while (depth > 0) {
+            update(spine[--depth]);
+        }
+
+        return n > 0 ? spine[0] : NIL;
+    }
+
+    /**
+     * Removes the node at the given position.
+     *
+     * @param position zero-based position, less than {@link #size()}
+     * @return id of the removed node, which may be reused by later inserts
+     */
+    int remove(int position) {
+        split(root, position);
+        int before = splitLeft;
+        split(splitRight, 1);
+        int node = splitLeft;
+        int after = splitRight;
+        root = merge(before, after);
+        release(node);
+        return node;
+    }
+
+    /**
+     * Returns the node at the given position.
+     *
+     * @param position zero-based position, less than {@link #size()}
+     * @return node id
+     */
+    int get(int position) {
+        int node = root;
+        int remaining = position;
+
+        while (true) {
+            int leftCount = count[left[node]];
+            if (remaining < leftCount) {
+                node = left[node];
+            } else if (remaining == leftCount) {
+                return node;
+            } else {
+                remaining -= leftCount + 1;
+                node = right[node];
+            }
+        }
+    }
+
+    /**
+     * Returns a cursor over the node ids in sequence order, starting at a position.
+     * Finding the start costs O(log n) and each step costs O(1) amortised.
+     * The cursor must not be used after the sequence is modified.
+     *
+     * @param position zero-based position of the first node to visit
+     * @return cursor positioned before that node
+     */
+    Cursor cursor(int position) {
+        return new Cursor(position);
+    }
+
+    /**
+     * Returns all node ids in sequence order.
+     *
+     * @return node ids, one per position
+     */
+    int[] toArray() {
+        int[] result = new int[count[root]];
+        int[] stack = new int[64];
+        int depth = 0;
+        int filled = 0;
+        int node = root;
+
+        while (node != NIL || depth > 0) {
+            while (node != NIL) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = left[node];
+            }
+            node = stack[--depth];
+            result[filled++] = node;
+            node = right[node];
+        }
+
+        return result;
+    }
+
+    /**
+     * Splits the subtree {@code t} so that its first {@code k} nodes end up in
+     * {@link #splitLeft} and the rest in {@link #splitRight}.
+     */
+    private void split(int t, int k) {
+        if (t == NIL) {
+            splitLeft = NIL;
+            splitRight = NIL;
+            return;
+        }
+
+        if (count[left[t]] >= k) {
+            split(left[t], k);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        } else {
+            split(right[t], k - count[left[t]] - 1);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        }
+    }
+
+    /**
+     * Joins two subtrees where every node of {@code a} comes before every node of {@code b}.
+     */
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private void update(int node) {
+        count[node] = count[left[node]] + count[right[node]] + 1;
+    }
+
+    private int allocate() {
+        int node;
+
+        if (freeCount > 0) {
+            node = freeNodes[--freeCount];
+        } else {
+            if (nodeCount == left.length) {
+                grow();
+            }
+            node = nodeCount++;
+        }
+
+        left[node] = NIL;
+        right[node] = NIL;
+        count[node] = 1;
+        priority[node] = nextPriority();
+        return node;
+    }
+
+    /**
+     * Estimates the heap memory held by the tree's arrays.
+     *
+     * @return approximate size in bytes
+     */
+    long estimateMemory() {
+        return (4L * left.length + freeNodes.length) * Integer.BYTES;
+    }
+
+    private void release(int node) {
+        if (freeCount == freeNodes.length) {
+            freeNodes = Arrays.copyOf(freeNodes, freeCount * 2);
+        }
+        freeNodes[freeCount++] = node;
+    }
+
+    private void grow() {
+        int newCapacity = left.length * 2;
+        left = Arrays.copyOf(left, newCapacity);
+        right = Arrays.copyOf(right, newCapacity);
+        count = Arrays.copyOf(count, newCapacity);
+        priority = Arrays.copyOf(priority, newCapacity);
+    }
+
+    /**
+     * Returns the next pseudo-random priority (xorshift).
+     */
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /**
+     * In-order walk over the tree holding, on its stack, the nodes still to be visited
+     * whose right subtrees have not been entered yet.
+     */
+    class Cursor {
+
+        private int[] stack = new int[64];
+        private int depth;
+
+        private Cursor(int position) {
+            int node = root;
+            int remaining = position;
+
+            while (node != NIL) {
+                int leftCount = count[left[node]];
+                if (remaining < leftCount) {
+                    push(node);
+                    node = left[node];
+                } else if (remaining == leftCount) {
+                    push(node);
+                    return;
+                } else {
+                    remaining -= leftCount + 1;
+                    node = right[node];
+                }
+            }
+        }
+
+        /**
+         * Returns whether there are more nodes to visit.
+         *
+         * @return true if {@link #next()} can be called
+         */
+        boolean hasNext() {
+            return depth > 0;
+        }
+
+        /**
+         * Returns the next node id in sequence order.
+         *
+         * @return node id
+         */
+        int next() {
+            int node = stack[--depth];
+            for (int child = right[node]; child != NIL; child = left[child]) {
+                push(child);
+            }
+            return node;
+        }
+
+        private void push(int node) {
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = node;
+        }
+    }
+}
@@ -3,15 +3,100 @@ package porus;
 import porus.command.*;
 import porus.task.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
 /**
  * Parses user input strings and converts them into executable Command objects.
  * Responsible for interpreting command keywords and extracting relevant arguments.
+ * <p>
+ * The first word of the input is looked up in a keyword table that maps
+ * each command keyword to the method that builds its Command, so dispatch
+ * does not depend on the order keywords are checked in.
+ * <p>
+ * Text fields of new tasks go through the {@link StringPool}, so a task
+ * added with the same deadline text as an existing one shares its string.
  */
 public class Parser {
 
     private static final String DEADLINE_BY_DELIMITER = " /by ";
     private static final String EVENT_FROM_DELIMITER = " /from ";
     private static final String EVENT_TO_DELIMITER = " /to ";
+    private static final String BETWEEN_AND_DELIMITER = " /and ";
+    private static final int DEFAULT_UPCOMING_COUNT = 10;
+    private static final String UPCOMING_FORMAT = "Format: upcoming [COUNT], with COUNT at least 1";
+    private static final String LIST_TYPE_PREFIX = "type:";
+    private static final String LIST_FORMAT = "Format: list [FROM-TO] [done|undone] [type:T|D|E]";
+
+    private static final String UNKNOWN_COMMAND =
+            "I do not understand that command. I will make thy regret thy existence.";
+
+    // Commands without arguments hold no state, so one instance of each is enough
+    private static final Command BYE = new ByeCommand();
+    private static final Command LIST = new ListCommand();
+    private static final Command UNDO = new UndoCommand(true);
+    private static final Command REDO = new UndoCommand(false);
+    private static final Command STATS = new StatsCommand();
+    private static final Command LISTS = new ListsCommand();
+
+    private static final KeywordTrie<CommandFactory> COMMANDS = new KeywordTrie<>();
+    private static final List<String> KEYWORDS = new ArrayList<>();
+
+    static {
+        register("bye", Parser::parseBye);
+        register("list", Parser::parseList);
+        register("mark", Parser::parseMark);
+        register("unmark", Parser::parseUnmark);
+        register("delete", Parser::parseDelete);
+        register("todo", Parser::parseTodo);
+        register("deadline", Parser::parseDeadline);
+        register("event", Parser::parseEvent);
+        register("find", Parser::parseFind);
+        register("due", Parser::parseDue);
+        register("upcoming", Parser::parseUpcoming);
+        register("between", Parser::parseBetween);
+        register("undo", Parser::parseUndo);
+        register("redo", Parser::parseRedo);
+        register("stats", Parser::parseStats);
+        register("lists", Parser::parseLists);
+        register("switch", Parser::parseSwitch);
+        register("export", Parser::parseExport);
+        register("import", Parser::parseImport);
+    }
+
+    private static void register(String keyword, CommandFactory factory) {
+        COMMANDS.put(keyword, factory);
+        KEYWORDS.add(keyword);
+    }
+
+    /**
+     * Returns every command keyword, in the order they were registered.
+     *
+     * @return the keywords
+     */
+    public static List<String> keywords() {
+        return Collections.unmodifiableList(KEYWORDS);
+    }
+
+    /**
+     * Builds a Command from the arguments that follow its keyword.
+     */
+    private interface CommandFactory {
+
+        /**
+         * Creates the command.
+         *
+         * @param input The whole input line.
+         * @param argStart The index just past the keyword.
+         * @return The parsed command.
+         * @throws PorusException If the arguments are invalid.
+         */
+        Command create(String input, int argStart) throws PorusException;
+    }
 
     /**
      * Parses a user input string and returns the corresponding Command.
@@ -21,89 +106,345 @@ public class Parser {
      * @throws PorusException If the input is invalid or incorrectly formatted.
      */
     public static Command parse(String input) throws PorusException {
+        long start = System.nanoTime();
+        try {
+            int keywordEnd = 0;
+            while (keywordEnd < input.length() && !Character.isWhitespace(input.charAt(keywordEnd))) {
+                keywordEnd++;
+            }
 
-        if (input.equals("bye")) {
-            return new ByeCommand();
+            CommandFactory factory = COMMANDS.get(input, keywordEnd);
+            if (factory == null) {
+                throw new PorusException(UNKNOWN_COMMAND);
+            }
+
+            return factory.create(input, keywordEnd);
+        } finally {
+            Metrics.record(Metrics.Stage.PARSE, System.nanoTime() - start);
         }
+    }
+
+    private static Command parseBye(String input, int argStart) throws PorusException {
+        requireNoArguments(input, argStart);
+        return BYE;
+    }
+
+    private static Command parseUndo(String input, int argStart) throws PorusException {
+        requireNoArguments(input, argStart);
+        return UNDO;
+    }
 
-        if (input.equals("list")) {
-            return new ListCommand();
+    private static Command parseRedo(String input, int argStart) throws PorusException {
+        requireNoArguments(input, argStart);
+        return REDO;
+    }
+
+    private static Command parseStats(String input, int argStart) throws PorusException {
+        requireNoArguments(input, argStart);
+        return STATS;
+    }
+
+    private static Command parseLists(String input, int argStart) throws PorusException {
+        requireNoArguments(input, argStart);
+        return LISTS;
+    }
+
+    private static Command parseSwitch(String input, int argStart) throws PorusException {
+        String name = input.substring(argStart).trim();
+        if (name.isEmpty()) {
+            throw new PorusException("Format: switch NAME");
+        }
+        return new SwitchCommand(name);
+    }
+
+    private static Command parseExport(String input, int argStart) throws PorusException {
+        String fileName = input.substring(argStart).trim();
+        if (fileName.isEmpty()) {
+            throw new PorusException("Format: export FILE.jsonl|FILE.csv");
+        }
+        return new ExportCommand(fileName, ExchangeFormat.of(fileName));
+    }
+
+    private static Command parseImport(String input, int argStart) throws PorusException {
+        String fileName = input.substring(argStart).trim();
+        if (fileName.isEmpty()) {
+            throw new PorusException("Format: import FILE.jsonl|FILE.csv");
+        }
+        return new ImportCommand(fileName, ExchangeFormat.of(fileName));
+    }
+
+    private static Command parseList(String input, int argStart) throws PorusException {
+        String rest = input.substring(argStart).trim();
+        if (rest.isEmpty()) {
+            return LIST;
         }
 
-        if (input.startsWith("mark")) {
-            int index = parseIndex(input.substring(4).trim());
-            return new MarkCommand(index - 1, true);
+        int from = 0;
+        int to = Integer.MAX_VALUE;
+        Predicate<Task> filter = null;
+
+        for (String option : rest.split("\\s+")) {
+            Predicate<Task> condition;
+
+            if (option.equals("done")) {
+                condition = Task::getDone;
+            } else if (option.equals("undone")) {
+                condition = task -> !task.getDone();
+            } else if (option.startsWith(LIST_TYPE_PREFIX)) {
+                String type = option.substring(LIST_TYPE_PREFIX.length()).toUpperCase();
+                if (!type.equals("T") && !type.equals("D") && !type.equals("E")) {
+                    throw new PorusException(LIST_FORMAT);
+                }
+                condition = task -> task.getTypeIcon().equals(type);
+            } else {
+                int dash = option.indexOf('-');
+                if (dash <= 0) {
+                    throw new PorusException(LIST_FORMAT);
+                }
+                from = parseIndex(option.substring(0, dash), 0) - 1;
+                to = parseIndex(option, dash + 1);
+                if (from < 0 || to <= from) {
+                    throw new PorusException("Invalid task range.");
+                }
+                continue;
+            }
+
+            filter = filter == null ? condition : filter.and(condition);
         }
 
-        if (input.startsWith("unmark")) {
-            int index = parseIndex(input.substring(6).trim());
-            return new MarkCommand(index - 1, false);
+        return new ListCommand(from, to, filter);
+    }
+
+    private static Command parseMark(String input, int argStart) throws PorusException {
+        Selection selection = parseSelection(input, argStart, "mark");
+        if (selection != null) {
+            return new MarkAllCommand(selection, true);
+        }
+        return new MarkCommand(parseIndex(input, argStart) - 1, true);
+    }
+
+    private static Command parseUnmark(String input, int argStart) throws PorusException {
+        Selection selection = parseSelection(input, argStart, "unmark");
+        if (selection != null) {
+            return new MarkAllCommand(selection, false);
         }
+        return new MarkCommand(parseIndex(input, argStart) - 1, false);
+    }
 
-        if (input.startsWith("delete")) {
-            int index = parseIndex(input.substring(6).trim());
-            return new DeleteCommand(index - 1);
+    private static Command parseDelete(String input, int argStart) throws PorusException {
+        Selection selection = parseSelection(input, argStart, "delete");
+        if (selection != null) {
+            return new DeleteAllCommand(selection);
         }
+        return new DeleteCommand(parseIndex(input, argStart) - 1);
+    }
 
-        if (input.startsWith("todo")) {
-            String desc = input.substring(4).trim();
-            if (desc.isEmpty()) {
-                throw new PorusException("Todo description cannot be empty.");
+    /**
+     * Parses the tasks a mark, unmark or delete applies to when it names more
+     * than one: task numbers and ranges such as {@code 1,4,9-20}, {@code done},
+     * {@code undone} or {@code find KEYWORD}.
+     *
+     * @return the selection, or null if the argument is a single task number
+     */
+    private static Selection parseSelection(String input, int argStart, String keyword)
+            throws PorusException {
+        String rest = input.substring(argStart).trim();
+
+        if (rest.equals("done")) {
+            return Selection.withStatus(true);
+        }
+        if (rest.equals("undone")) {
+            return Selection.withStatus(false);
+        }
+        if (rest.equals("find") || rest.startsWith("find ")) {
+            String query = rest.substring("find".length()).trim();
+            if (query.isEmpty()) {
+                throw new PorusException("Format: " + keyword + " find KEYWORD");
             }
-            return new AddCommand(new Todo(desc));
+            return Selection.matching(query);
+        }
+        if (rest.indexOf(',') < 0 && rest.indexOf('-', 1) < 0) {
+            return null;
         }
 
-        if (input.startsWith("deadline")) {
-            String rest = input.substring(8).trim();
-            int byIndex = rest.indexOf(DEADLINE_BY_DELIMITER);
+        String[] items = rest.split(",");
+        int[] starts = new int[items.length];
+        int[] ends = new int[items.length];
 
-            if (byIndex < 0) {
-                throw new PorusException("Format: deadline DESCRIPTION /by DATE");
+        for (int i = 0; i < items.length; i++) {
+            String item = items[i].trim();
+            int dash = item.indexOf('-', 1);
+
+            if (dash < 0) {
+                starts[i] = parseIndex(item, 0) - 1;
+                ends[i] = starts[i] + 1;
+            } else {
+                starts[i] = parseIndex(item.substring(0, dash), 0) - 1;
+                ends[i] = parseIndex(item, dash + 1);
+                if (starts[i] < 0 || ends[i] <= starts[i]) {
+                    throw new PorusException("Invalid task range.");
+                }
             }
+        }
+
+        return Selection.ofRanges(starts, ends);
+    }
+
+    private static Command parseTodo(String input, int argStart) throws PorusException {
+        String desc = input.substring(argStart).trim();
+        if (desc.isEmpty()) {
+            throw new PorusException("Todo description cannot be empty.");
+        }
+        return new AddCommand(new Todo(StringPool.intern(desc)));
+    }
 
-            String desc = rest.substring(0, byIndex).trim();
-            String by = rest.substring(byIndex + DEADLINE_BY_DELIMITER.length()).trim();
+    private static Command parseDeadline(String input, int argStart) throws PorusException {
+        String rest = input.substring(argStart).trim();
+        int byIndex = rest.indexOf(DEADLINE_BY_DELIMITER);
 
-            return new AddCommand(new Deadline(desc, by));
+        if (byIndex < 0) {
+            throw new PorusException("Format: deadline DESCRIPTION /by DATE");
         }
 
-        if (input.startsWith("event")) {
-            String rest = input.substring(5).trim();
+        String desc = rest.substring(0, byIndex).trim();
+        String by = rest.substring(byIndex + DEADLINE_BY_DELIMITER.length()).trim();
 
-            int fromIndex = rest.indexOf(EVENT_FROM_DELIMITER);
-            int toIndex = rest.indexOf(EVENT_TO_DELIMITER);
+        return new AddCommand(new Deadline(StringPool.intern(desc), StringPool.intern(by)));
+    }
+
+    private static Command parseEvent(String input, int argStart) throws PorusException {
+        String rest = input.substring(argStart).trim();
+
+        int fromIndex = rest.indexOf(EVENT_FROM_DELIMITER);
+        int toIndex = rest.indexOf(EVENT_TO_DELIMITER);
+
+        if (fromIndex < 0 || toIndex < 0) {
+            throw new PorusException("Format: event DESCRIPTION /from START /to END");
+        }
+
+        String desc = rest.substring(0, fromIndex).trim();
+        String from = rest.substring(fromIndex + EVENT_FROM_DELIMITER.length(), toIndex).trim();
+        String to = rest.substring(toIndex + EVENT_TO_DELIMITER.length()).trim();
+
+        return new AddCommand(new Event(StringPool.intern(desc),
+                StringPool.intern(from), StringPool.intern(to)));
+    }
+
+    private static Command parseFind(String input, int argStart) throws PorusException {
+        String keyword = input.substring(argStart).trim();
+        if (keyword.isEmpty()) {
+            throw new PorusException("Format: find KEYWORD");
+        }
+        return new FindCommand(keyword);
+    }
+
+    private static Command parseDue(String input, int argStart) throws PorusException {
+        String until = input.substring(argStart).trim();
+        return new ScheduleCommand(null, parseQueryDate(until, true), Integer.MAX_VALUE,
+                "Here are the tasks due by " + until + ":");
+    }
 
-            if (fromIndex < 0 || toIndex < 0) {
-                throw new PorusException("Format: event DESCRIPTION /from START /to END");
+    private static Command parseUpcoming(String input, int argStart) throws PorusException {
+        int limit = DEFAULT_UPCOMING_COUNT;
+        if (skipWhitespace(input, argStart) < input.length()) {
+            try {
+                limit = parseIndex(input, argStart);
+            } catch (PorusException e) {
+                limit = 0;
             }
+            if (limit < 1) {
+                throw new PorusException(UPCOMING_FORMAT);
+            }
+        }
+        return new ScheduleCommand(LocalDateTime.now(), null, limit,
+                "Here are your upcoming tasks:");
+    }
 
-            String desc = rest.substring(0, fromIndex).trim();
-            String from = rest.substring(fromIndex + EVENT_FROM_DELIMITER.length(), toIndex).trim();
-            String to = rest.substring(toIndex + EVENT_TO_DELIMITER.length()).trim();
+    private static Command parseBetween(String input, int argStart) throws PorusException {
+        String rest = input.substring(argStart).trim();
+        int andIndex = rest.indexOf(BETWEEN_AND_DELIMITER);
 
-            return new AddCommand(new Event(desc, from, to));
+        if (andIndex < 0) {
+            throw new PorusException("Format: between START /and END");
         }
 
-        if (input.startsWith("find ")) {
-            String keyword = input.substring(5).trim();
-            return new FindCommand(keyword);
+        String from = rest.substring(0, andIndex).trim();
+        String to = rest.substring(andIndex + BETWEEN_AND_DELIMITER.length()).trim();
+
+        return new ScheduleCommand(parseQueryDate(from, false), parseQueryDate(to, true),
+                Integer.MAX_VALUE, "Here are the tasks between " + from + " and " + to + ":");
+    }
+
+    /**
+     * Rejects input that has anything after a keyword that takes no arguments.
+     */
+    private static void requireNoArguments(String input, int argStart) throws PorusException {
+        if (skipWhitespace(input, argStart) < input.length()) {
+            throw new PorusException(UNKNOWN_COMMAND);
+        }
+    }
+
+    private static int skipWhitespace(CharSequence input, int from) {
+        int i = from;
+        while (i < input.length() && Character.isWhitespace(input.charAt(i))) {
+            i++;
         }
+        return i;
+    }
 
-        throw new PorusException("I do not understand that command. I will make thy regret thy existence.");
+    /**
+     * Parses a date typed in a query, such as "2026-02-10", "friday" or "tomorrow 6pm".
+     *
+     * @param text The date text.
+     * @param isEndOfDay Whether a date without a time means the end of that day.
+     * @return The parsed date/time.
+     * @throws PorusException If the text is not a recognised date.
+     */
+    private static LocalDateTime parseQueryDate(String text, boolean isEndOfDay) throws PorusException {
+        LocalDateTime dateTime = DateTimeParser.parseQuery(text, isEndOfDay, LocalDate.now());
+        if (dateTime == null) {
+            throw new PorusException("Dates must look like 2026-02-10, 10/2/2026 1800, today or friday.");
+        }
+        return dateTime;
     }
 
     /**
-     * Parses a string into an integer index.
+     * Parses the rest of the input, from {@code start}, into an integer index
+     * without copying it out of the input first.
      *
-     * @param number The string representing a task index.
+     * @param input The input holding the number.
+     * @param start The index where the number (possibly after spaces) begins.
      * @return The parsed integer value.
-     * @throws PorusException If the string is not a valid number.
+     * @throws PorusException If the rest of the input is not a valid number.
      */
-    private static int parseIndex(String number) throws PorusException {
-        try {
-            return Integer.parseInt(number);
-        } catch (NumberFormatException e) {
+    private static int parseIndex(CharSequence input, int start) throws PorusException {
+        int i = skipWhitespace(input, start);
+        int end = input.length();
+        while (end > i && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+
+        boolean isNegative = i < end && input.charAt(i) == '-';
+        if (isNegative || (i < end && input.charAt(i) == '+')) {
+            i++;
+        }
+
+        if (i == end) {
             throw new PorusException("Task index must be a valid number.");
         }
+
+        long value = 0;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new PorusException("Task index must be a valid number.");
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new PorusException("Task index must be a valid number.");
+            }
+        }
+
+        return (int) (isNegative ? -value : value);
     }
-}
\ No newline at end of file
+}
@@ -2,38 +2,295 @@ package porus;
 
 import porus.command.Command;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
 /**
  * Entry point of the Porus task management application.
  * Manages program initialization and the main execution loop.
  */
 public class Porus {
 
-    private static final String FILE_PATH = "./data/porus.txt";
+    private static final String DATA_DIRECTORY = "./data";
+    private static final String DEFAULT_LIST = "porus";
+    private static final String DEFAULT_PATH = DATA_DIRECTORY + "/" + DEFAULT_LIST;
+    private static final String METRICS_PATH = "./metrics.prom";
+
+    private static final String BATCH_FLAG = "--batch";
+    private static final String SAVE_EVERY_FLAG = "--save-every";
+    private static final String SERVER_FLAG = "--server";
+    private static final String DURABILITY_FLAG = "--durability";
+    private static final String LAYOUT_FLAG = "--layout";
+    private static final String METRICS_FLAG = "--metrics";
+    private static final String MEMORY_FLAG = "--memory";
+    private static final String STORAGE_FLAG = "--storage";
+    private static final String BYE = "bye";
+    private static final String USAGE = "Usage: porus [--batch FILE [--save-every N]] "
+            + "[--server PORT_OR_SOCKET_PATH] [--durability sync|group|async] [--layout objects|columnar] "
+            + "[--metrics FILE] [--memory MB] [--storage file|tree]";
+
+    private static final long MEGABYTE = 1 << 20;
+    private static final int DEFAULT_MEMORY_SHARE = 4;
 
     /**
      * Launches the Porus application.
      * Initializes UI, storage, and task list before entering the main loop.
+     * <p>
+     * With {@code --batch FILE [--save-every N]}, runs the commands in FILE
+     * without prompting instead, saving once at the end (or every N commands).
+     * With {@code --server PORT_OR_SOCKET_PATH}, serves the task list to local
+     * clients over TCP or a Unix domain socket instead.
+     * With {@code --durability sync|group|async}, chooses when recorded changes
+     * must reach the disk (see {@link Storage.Durability}); the default is group.
+     * With {@code --layout objects|columnar}, chooses how the list is kept in
+     * memory (see {@link TaskList.Layout}); the default is objects.
+     * With {@code --metrics FILE}, chooses where latency metrics are written
+     * on exit (see {@link Metrics}); the default is {@value #METRICS_PATH}.
+     * With {@code --memory MB}, sets how much memory loaded named lists may
+     * hold before the least recently used are unloaded (see {@link ListRegistry});
+     * the default is a quarter of the maximum heap size.
+     * With {@code --storage file|tree}, chooses how task lists are kept on disk
+     * (see {@link Storage.Backend}); the default is file.
+     * An unknown option, or a missing or invalid value, is reported with a
+     * usage message and Porus exits with status 1.
      *
-     * @param args Command-line arguments (not used).
+     * @param args Command-line arguments.
      */
     public static void main(String[] args) {
+        String batchPath = null;
+        String serverAddress = null;
+        int saveEvery = 0;
+        Storage.Durability durability = Storage.Durability.GROUP;
+        TaskList.Layout layout = TaskList.Layout.OBJECTS;
+        String metricsPath = METRICS_PATH;
+        long memoryBudget = Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_SHARE;
+        Storage.Backend backend = Storage.Backend.FILE;
+
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                String flag = args[i];
+                if (i + 1 == args.length) {
+                    throw new PorusException("Option " + flag + " needs a value.");
+                }
+                String value = args[i + 1];
+
+                switch (flag) {
+                case BATCH_FLAG:
+                    batchPath = value;
+                    break;
+                case SAVE_EVERY_FLAG:
+                    saveEvery = (int) parsePositive(flag, value, Integer.MAX_VALUE);
+                    break;
+                case SERVER_FLAG:
+                    serverAddress = value;
+                    break;
+                case DURABILITY_FLAG:
+                    durability = parseChoice(Storage.Durability.class, "durability mode", value);
+                    break;
+                case LAYOUT_FLAG:
+                    layout = parseChoice(TaskList.Layout.class, "layout", value);
+                    break;
+                case METRICS_FLAG:
+                    metricsPath = value;
+                    break;
+                case MEMORY_FLAG:
+                    memoryBudget = parsePositive(flag, value, Long.MAX_VALUE / MEGABYTE) * MEGABYTE;
+                    break;
+                case STORAGE_FLAG:
+                    backend = parseChoice(Storage.Backend.class, "storage backend", value);
+                    break;
+                default:
+                    throw new PorusException("Unknown option: " + flag);
+                }
+            }
+        } catch (PorusException e) {
+            System.out.println(e.getMessage());
+            System.out.println(USAGE);
+            System.exit(1);
+            return;
+        }
+
+        exportMetricsOnExit(Path.of(metricsPath));
+
+        if (batchPath != null) {
+            runBatch(batchPath, saveEvery, layout, backend);
+            return;
+        }
+
+        if (serverAddress != null) {
+            Storage storage = backend.create(DEFAULT_PATH);
+            storage.setDurability(durability);
+            storage.setLayout(layout);
+            flushOnExit(storage::flush);
+            try {
+                new Server(storage.open(), storage).run(serverAddress);
+            } catch (IOException e) {
+                System.out.println("Could not start server: " + e.getMessage());
+            }
+            return;
+        }
 
         UI ui = new UI();
-        Storage storage = new Storage(FILE_PATH);
-        TaskList tasks = new TaskList(storage.load());
+        ListRegistry lists = new ListRegistry(Path.of(DATA_DIRECTORY), DEFAULT_LIST, backend,
+                memoryBudget, durability, layout);
+        flushOnExit(lists::flush);
 
         ui.showGreeting();
+        ui.showNotices(lists.takeNotices());
+        ui.flush();
 
         boolean isExit = false;
 
         while (!isExit) {
+            String input;
+            try {
+                input = ui.readCommand();
+            } catch (NoSuchElementException e) {
+                // Input ended, as when commands are piped in; leave as bye would
+                input = BYE;
+            }
+
             try {
-                String input = ui.readCommand();
                 Command command = Parser.parse(input);
-                isExit = command.execute(tasks, ui, storage);
+                isExit = command.run(lists, ui);
             } catch (PorusException e) {
                 ui.showError(e.getMessage());
             }
+            lists.currentStorage().awaitDurable();
+            lists.evictIfNeeded();
+            ui.showNotices(lists.takeNotices());
+            ui.flush();
+        }
+    }
+
+    /**
+     * Parses the value of a numeric option, which must be a whole number
+     * from 1 up to a limit, so that the option's value is never out of range.
+     *
+     * @param flag option the value belongs to
+     * @param value text given for it
+     * @param max largest value allowed
+     * @return the number
+     * @throws PorusException If the value is not such a number.
+     */
+    private static long parsePositive(String flag, String value, long max) throws PorusException {
+        long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            number = 0;
+        }
+        if (number < 1 || number > max) {
+            throw new PorusException("Option " + flag + " needs a positive whole number, not " + value + ".");
+        }
+        return number;
+    }
+
+    /**
+     * Parses the value of an option that names one of the constants of an enum.
+     *
+     * @param type enum the value names a constant of
+     * @param description what the option chooses, for the error message
+     * @param value text given for it
+     * @return the constant
+     * @throws PorusException If no constant has that name.
+     */
+    private static <E extends Enum<E>> E parseChoice(Class<E> type, String description, String value)
+            throws PorusException {
+        try {
+            return Enum.valueOf(type, value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PorusException("Unknown " + description + ": " + value);
+        }
+    }
+
+    /**
+     * Writes the metrics to a file when the program exits, however it exits.
+     *
+     * @param path metrics file
+     */
+    private static void exportMetricsOnExit(Path path) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Metrics.export(path);
+            } catch (IOException e) {
+                System.out.println("Error writing metrics file: " + path);
+            }
+        }));
+    }
+
+    /**
+     * Writes out queued journal records when the program is stopped without
+     * {@code bye}, such as by Ctrl-C, so that no change Porus has already
+     * reported is lost. The journal writer is a daemon thread, which would
+     * otherwise be stopped with records still queued.
+     *
+     * @param flush writes out every queued record
+     */
+    private static void flushOnExit(Runnable flush) {
+        Runtime.getRuntime().addShutdownHook(new Thread(flush));
+    }
+
+    /**
+     * Runs every command in a file through the parser without per-command saves.
+     * Journaling is switched off, and the list is written as one synced snapshot
+     * at the end, or every {@code saveEvery} commands if that is positive.
+     * Responses are flushed in large blocks rather than after every command.
+     *
+     * @param path file with one command per line
+     * @param saveEvery number of commands between saves, or 0 to save only at the end
+     * @param layout how the list is kept in memory
+     * @param backend how the list is kept on disk
+     */
+    private static void runBatch(String path, int saveEvery, TaskList.Layout layout, Storage.Backend backend) {
+        UI ui = new UI();
+        Storage storage = backend.create(DEFAULT_PATH);
+        storage.setLayout(layout);
+        TaskList tasks = storage.open();
+        storage.setJournaling(false);
+        ui.showNotices(storage.takeNotices());
+
+        long start = System.nanoTime();
+        long count = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            boolean isExit = false;
+
+            while (!isExit && (line = reader.readLine()) != null) {
+                String input = line.trim();
+                if (input.isEmpty()) {
+                    continue;
+                }
+
+                count++;
+                try {
+                    Command command = Parser.parse(input);
+                    isExit = command.run(tasks, ui, storage);
+                } catch (PorusException e) {
+                    ui.showError(e.getMessage());
+                }
+
+                if (saveEvery > 0 && count % saveEvery == 0) {
+                    storage.save(tasks.getAll());
+                }
+
+                ui.showNotices(storage.takeNotices());
+                ui.flushIfFull();
+            }
+        } catch (IOException e) {
+            ui.showError("Error reading batch file: " + path);
         }
+
+        storage.save(tasks.getAll());
+        ui.showNotices(storage.takeNotices());
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        ui.showMessage(String.format("Processed %d commands in %.3f s (%.0f commands/sec)",
+                count, seconds, count / Math.max(seconds, 1e-9)));
+        ui.flush();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package porus;
+
+import java.util.Arrays;
+
+/**
+ * Where each task record of a binary data file starts, and where the last
+ * one ends, so that a single record can be found again without reading the
+ * records before it.
+ * <p>
+ * Offsets are kept as ints, as for a mapped file; a file that grows past
+ * 2 GB simply stops being tracked, see {@link #isComplete()}.
+ */
+final class RecordOffsets {
+
+    private int[] starts;
+    private int count;
+    private long end;
+
+    /**
+     * Creates an empty table for records that start at the given offset.
+     *
+     * @param capacity expected number of records
+     * @param start offset of the first record
+     */
+    RecordOffsets(int capacity, long start) {
+        this.starts = new int[Math.max(capacity, 16)];
+        this.end = start;
+    }
+
+    /**
+     * Creates a table over existing offsets, which are not copied until a
+     * record is added.
+     *
+     * @param starts start of each record, in file order
+     * @param end offset just past the last record
+     */
+    RecordOffsets(int[] starts, long end) {
+        this.starts = starts;
+        this.count = starts.length;
+        this.end = end;
+    }
+
+    /**
+     * Adds the next record, which starts where the previous one ended.
+     *
+     * @param length record length in bytes
+     */
+    void add(int length) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(16, count + (count >> 1)));
+        }
+        starts[count++] = (int) Math.min(end, Integer.MAX_VALUE);
+        end += length;
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return record count
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns where a record starts.
+     *
+     * @param record zero-based position of the record in the file
+     * @return file offset
+     */
+    int start(int record) {
+        return starts[record];
+    }
+
+    /**
+     * Returns where a record ends, which is where the next one starts.
+     *
+     * @param record zero-based position of the record in the file
+     * @return file offset just past the record
+     */
+    long end(int record) {
+        return record + 1 < count ? starts[record + 1] : end;
+    }
+
+    /**
+     * Returns where the next record would start.
+     *
+     * @return offset just past the last record
+     */
+    long end() {
+        return end;
+    }
+
+    /**
+     * Returns whether every offset fits the table, which holds for files
+     * smaller than 2 GB.
+     *
+     * @return true if every record can be found from the table
+     */
+    boolean isComplete() {
+        return end <= Integer.MAX_VALUE;
+    }
+}
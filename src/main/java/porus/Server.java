@@ -0,0 +1,173 @@
+package porus;
+
+import porus.command.Command;
+import porus.command.ExportCommand;
+import porus.command.ImportCommand;
+import porus.command.UndoCommand;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Serves one shared task list to many local clients at once.
+ * <p>
+ * Clients connect over TCP on the loopback address or over a Unix domain
+ * socket and talk to Porus exactly as on the console. Each connection is
+ * handled on its own thread (a virtual thread where the JDK supports them).
+ * Read-only commands run under the task list's read lock, so several
+ * {@code list} or {@code find} commands can run in parallel; commands that
+ * change the list run one at a time under its write lock. Responses are
+ * rendered while the lock is held and written to the client after it is
+ * released, so a slow client does not hold up the others.
+ * <p>
+ * Undo and redo are not available, since the clients share one history and
+ * one client could otherwise undo another's change. Neither are export and
+ * import, which would let any client read or write any file the server can.
+ * Each client is shown only the storage notices its own commands caused,
+ * since storage records them per thread and each client has its own.
+ */
+public class Server {
+
+    private final TaskList tasks;
+    private final Storage storage;
+
+    /**
+     * Creates a server for the given task list.
+     *
+     * @param tasks task list shared by all clients
+     * @param storage storage used to persist changes
+     */
+    public Server(TaskList tasks, Storage storage) {
+        this.tasks = tasks;
+        this.storage = storage;
+    }
+
+    /**
+     * Accepts clients until the process is stopped.
+     *
+     * @param address a port number for TCP on localhost, or a file path for a Unix domain socket
+     * @throws IOException If the server socket cannot be opened.
+     */
+    public void run(String address) throws IOException {
+        tasks.loadFully();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            tasks.writeLock().lock();
+            try {
+                storage.compact(tasks);
+            } finally {
+                tasks.writeLock().unlock();
+            }
+        }));
+
+        ExecutorService connections = newConnectionExecutor();
+
+        try (ServerSocketChannel server = open(address)) {
+            storage.takeNotices().forEach(System.out::println);
+            System.out.println("Porus is listening on " + server.getLocalAddress());
+
+            while (true) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> serve(client));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the command loop for one client until it says bye or disconnects.
+     */
+    private void serve(SocketChannel client) {
+        try (client) {
+            UI ui = new UI(Channels.newInputStream(client), Channels.newOutputStream(client));
+            ui.deferFlushes();
+            ui.showGreeting();
+            ui.flush();
+
+            boolean isExit = false;
+
+            while (!isExit) {
+                String input;
+                try {
+                    input = ui.readCommand();
+                } catch (NoSuchElementException | IllegalStateException e) {
+                    return;
+                }
+
+                try {
+                    isExit = execute(Parser.parse(input), ui);
+                } catch (PorusException e) {
+                    ui.showError(e.getMessage());
+                }
+                storage.awaitDurable();
+                ui.showNotices(storage.takeNotices());
+                ui.flush();
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to clean up beyond closing the channel
+        }
+    }
+
+    /**
+     * Executes a command while holding the read or write lock it needs.
+     */
+    private boolean execute(Command command, UI ui) throws PorusException {
+        if (command instanceof UndoCommand) {
+            throw new PorusException("Undo and redo are not available in server mode, "
+                    + "as every client shares the list's history.");
+        }
+        if (command instanceof ExportCommand || command instanceof ImportCommand) {
+            throw new PorusException("Export and import are not available in server mode, "
+                    + "as clients could reach any file the server can.");
+        }
+
+        Lock lock = command.isReadOnly() ? tasks.readLock() : tasks.writeLock();
+        lock.lock();
+        try {
+            return command.run(tasks, ui, storage);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static ServerSocketChannel open(String address) throws IOException {
+        if (address.chars().allMatch(Character::isDigit)) {
+            SocketAddress local = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address));
+            return ServerSocketChannel.open().bind(local);
+        }
+
+        Path path = Path.of(address);
+        Files.deleteIfExists(path);
+        return ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                .bind(UnixDomainSocketAddress.of(path));
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task if the JDK has
+     * them (Java 21 and later), or a cached pool of platform threads otherwise.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package porus;
+
+import java.util.Arrays;
+
+/**
+ * Tracks how a list has changed since its binary snapshot was written, to
+ * tell whether the snapshot can be brought up to date in place.
+ * <p>
+ * That is possible while the only changes are tasks marked or unmarked and
+ * tasks added at the end, so that every task already in the snapshot is still
+ * at the position of its record. Any other change, such as a deletion or an
+ * insertion, means the snapshot has to be written again in full.
+ */
+final class SnapshotChanges {
+
+    // Patching touches two small spots per record; past this share of the
+    // records, writing the file sequentially is about as fast
+    private static final int MAX_PATCHED_SHARE = 8;
+
+    private RecordOffsets offsets;
+    private int[] marked = new int[16];
+    private int markedCount;
+    private int addedCount;
+    private boolean isRewriteNeeded;
+
+    /**
+     * Starts tracking from a snapshot that has just been read or written.
+     *
+     * @param offsets where the snapshot's records are, or null if it cannot be patched
+     */
+    void reset(RecordOffsets offsets) {
+        this.offsets = offsets != null && offsets.isComplete() ? offsets : null;
+        markedCount = 0;
+        addedCount = 0;
+        isRewriteNeeded = false;
+        if (marked.length > 16) {
+            marked = new int[16];
+        }
+    }
+
+    /**
+     * Notes that a task was added at the end of the list.
+     */
+    void add() {
+        addedCount++;
+    }
+
+    /**
+     * Notes that the tasks at the given positions were marked or unmarked.
+     *
+     * @param positions zero-based positions of the tasks
+     */
+    void mark(int... positions) {
+        if (isRewriteNeeded) {
+            return;
+        }
+        if (markedCount + positions.length > marked.length) {
+            marked = Arrays.copyOf(marked, Math.max(marked.length * 2, markedCount + positions.length));
+        }
+        System.arraycopy(positions, 0, marked, markedCount, positions.length);
+        markedCount += positions.length;
+    }
+
+    /**
+     * Notes a change that moves tasks, so the snapshot must be rewritten.
+     */
+    void restructure() {
+        isRewriteNeeded = true;
+        marked = new int[16];
+        markedCount = 0;
+    }
+
+    /**
+     * Returns where the snapshot's records are.
+     *
+     * @return record offsets, or null if the snapshot cannot be patched
+     */
+    RecordOffsets offsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns whether the snapshot can be brought up to date in place, and
+     * whether that is worth it compared to writing it again.
+     *
+     * @param size number of tasks now in the list
+     * @return true if the snapshot should be patched
+     */
+    boolean canPatch(int size) {
+        return offsets != null && !isRewriteNeeded
+                && size == offsets.size() + addedCount
+                && markedCount <= offsets.size() / MAX_PATCHED_SHARE + 1;
+    }
+
+    /**
+     * Returns the positions of the snapshot's records that were marked or
+     * unmarked, each once and in increasing order. Tasks added since the
+     * snapshot are left out, as they are written whole.
+     *
+     * @return zero-based record positions
+     */
+    int[] markedRecords() {
+        int[] positions = Arrays.copyOf(marked, markedCount);
+        Arrays.sort(positions);
+
+        int count = 0;
+        for (int position : positions) {
+            if (position < offsets.size() && (count == 0 || positions[count - 1] != position)) {
+                positions[count++] = position;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+}
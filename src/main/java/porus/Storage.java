@@ -1,171 +1,228 @@
 package porus;
 
-import porus.task.*;
+import porus.task.Task;
 
-import java.io.*;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Handles loading and saving tasks to disk.
+ * Handles loading a task list from disk and recording each change made to it.
  * <p>
- * Uses a relative file path to ensure OS independence.
- * Automatically creates the data folder and file if missing.
+ * Commands make their change to the {@link TaskList} first and then record it
+ * here by position, with one of the {@code append} methods. How much of the
+ * data file that writes depends on the {@link Backend}: {@link FileStorage}
+ * appends a record to a journal and rewrites its snapshot now and then, while
+ * {@link TreeStorage} updates the few pages of a B+ tree that hold the task.
  */
-public class Storage {
-
-    private final String filePath;
+public interface Storage {
 
     /**
-     * Creates a Storage object with a given file path.
-     *
-     * @param filePath relative path to data file
+     * When a recorded change is guaranteed to be on disk.
      */
-    public Storage(String filePath) {
-        this.filePath = filePath;
+    enum Durability {
+        /** Each change is forced to disk before the command continues. */
+        SYNC,
+        /**
+         * Changes are forced to disk in batches, and a response waits in
+         * {@link #awaitDurable()} until its batch is on disk.
+         */
+        GROUP,
+        /** Changes are forced to disk in batches and nothing waits for them. */
+        ASYNC
     }
 
     /**
-     * Loads tasks from file.
-     *
-     * @return list of tasks loaded from disk
+     * How a task list is kept on disk.
      */
-    public ArrayList<Task> load() {
-        ArrayList<Task> tasks = new ArrayList<>();
-        File file = new File(filePath);
+    enum Backend {
+        /** A snapshot file and a journal of changes, see {@link FileStorage}. */
+        FILE(".bin"),
+        /** A page file holding a B+ tree of the tasks, see {@link TreeStorage}. */
+        TREE(".db");
 
-        try {
-            createFileIfMissing(file);
+        private final String suffix;
 
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                try {
-                    Task task = parseLine(line);
-                    if (task != null) {
-                        tasks.add(task);
-                    }
-                } catch (Exception e) {
-                    // Stretch goal: corrupted line handling
-                    // Skip corrupted lines instead of crashing
-                }
-            }
+        Backend(String suffix) {
+            this.suffix = suffix;
+        }
 
-            reader.close();
+        /**
+         * Returns the file name suffix of this backend's data files.
+         *
+         * @return suffix including the dot, such as {@code ".bin"}
+         */
+        public String getSuffix() {
+            return suffix;
+        }
 
-        } catch (IOException e) {
-            System.out.println("Error loading data file.");
+        /**
+         * Creates a storage of this backend for the data file with the given
+         * path, without its suffix.
+         *
+         * @param basePath path of the data file without its suffix
+         * @return storage for that file
+         */
+        public Storage create(String basePath) {
+            return Storage.create(basePath + suffix);
         }
+    }
 
-        return tasks;
+    /**
+     * Creates a storage for a data file, choosing the backend by its suffix:
+     * {@link TreeStorage} for {@code .db} files and {@link FileStorage}
+     * for any other file.
+     *
+     * @param filePath relative path to data file
+     * @return storage for that file
+     */
+    static Storage create(String filePath) {
+        if (filePath.endsWith(Backend.TREE.getSuffix())) {
+            return new TreeStorage(filePath);
+        }
+        return new FileStorage(filePath);
     }
 
     /**
-     * Saves tasks to file.
+     * Loads every task from disk.
      *
-     * @param tasks list of tasks to save
+     * @return list of tasks loaded from disk
      */
-    public void save(ArrayList<Task> tasks) {
-        File file = new File(filePath);
+    ArrayList<Task> load();
 
-        try {
-            createFileIfMissing(file);
+    /**
+     * Opens the task list, loading it as lazily as the backend allows.
+     *
+     * @return task list backed by the data file
+     */
+    TaskList open();
 
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+    /**
+     * Replaces everything on disk with the given tasks.
+     *
+     * @param tasks list of tasks to save
+     */
+    void save(ArrayList<Task> tasks);
 
-            for (Task task : tasks) {
-                writer.write(formatTask(task));
-                writer.newLine();
-            }
+    /**
+     * Turns recording of individual changes on or off. While off, changes are
+     * only persisted by an explicit {@link #save(ArrayList)}; this is used by
+     * batch mode.
+     *
+     * @param isJournaling whether changes should be recorded as they happen
+     */
+    void setJournaling(boolean isJournaling);
 
-            writer.close();
+    /**
+     * Sets when recorded changes must reach the disk. Takes effect
+     * if called before the first change is recorded.
+     *
+     * @param durability durability mode
+     */
+    void setDurability(Durability durability);
 
-        } catch (IOException e) {
-            System.out.println("Error saving data file.");
-        }
-    }
+    /**
+     * Sets how the list returned by {@link #open()} keeps its tasks in memory.
+     *
+     * @param layout memory layout
+     */
+    void setLayout(TaskList.Layout layout);
 
     /**
-     * Creates file and parent directories if they do not exist.
+     * Waits until recorded changes are on disk, if the durability mode asks
+     * for it. Called after a command has run and before its response is shown,
+     * outside any lock, so that concurrent commands can share one disk write.
      */
-    private void createFileIfMissing(File file) throws IOException {
-        File parent = file.getParentFile();
+    void awaitDurable();
 
-        if (parent != null && !parent.exists()) {
-            parent.mkdirs();
-        }
+    /**
+     * Waits until every recorded change is on disk, whatever the durability mode.
+     */
+    void flush();
 
-        if (!file.exists()) {
-            file.createNewFile();
-        }
-    }
+    /**
+     * Writes out every recorded change and releases the open files, so that
+     * a list that is no longer in use does not hold on to them. A later
+     * change opens them again.
+     */
+    void close();
 
     /**
-     * Converts a Task into storage format.
+     * Returns the messages for the user recorded since the last call, such as
+     * a write that failed or a damaged data file that was moved aside, and
+     * forgets them. Storage does not print these itself; the caller that owns
+     * the {@link UI} shows them, so they appear with the command responses.
+     * Only the messages caused on the calling thread are returned, so that in
+     * server mode each client sees those of its own commands.
+     *
+     * @return messages, oldest first
      */
-    private String formatTask(Task task) {
-        String status = task.getDone() ? "1" : "0";
+    List<String> takeNotices();
 
-        if (task instanceof Todo) {
-            return "T | " + status + " | " + task.getDescription();
-        }
+    /**
+     * Records that a task was appended to the end of the list.
+     *
+     * @param task task that was added
+     */
+    void appendAdd(Task task);
 
-        if (task instanceof Deadline) {
-            Deadline d = (Deadline) task;
-            return "D | " + status + " | "
-                    + d.getDescription() + " | " + d.getBy();
-        }
+    /**
+     * Records that a task was inserted at the given position.
+     *
+     * @param index zero-based position the task now has
+     * @param task task that was inserted
+     */
+    void appendInsert(int index, Task task);
 
-        if (task instanceof Event) {
-            Event e = (Event) task;
-            return "E | " + status + " | "
-                    + e.getDescription() + " | "
-                    + e.getFrom() + " | " + e.getTo();
-        }
+    /**
+     * Records that the task at the given position was removed.
+     *
+     * @param index zero-based position of the removed task
+     */
+    void appendDelete(int index);
 
-        return "";
-    }
+    /**
+     * Records that the task at the given position was marked or unmarked.
+     *
+     * @param index zero-based position of the task
+     * @param isDone new completion status
+     */
+    void appendMark(int index, boolean isDone);
 
     /**
-     * Parses a line from file into a Task.
+     * Records that the tasks at the given positions were removed together.
+     *
+     * @param positions zero-based positions of the removed tasks, in increasing order
      */
-    private Task parseLine(String line) {
-        String[] parts = line.split(" \\| ");
+    void appendDeleteAll(int[] positions);
 
-        if (parts.length < 3) {
-            return null;
-        }
+    /**
+     * Records that the tasks at the given positions were marked or unmarked together.
+     *
+     * @param positions zero-based positions of the tasks, in increasing order
+     * @param isDone new completion status
+     */
+    void appendMarkAll(int[] positions, boolean isDone);
 
-        String type = parts[0];
-        boolean isDone = parts[1].equals("1");
-        String description = parts[2];
-
-        Task task;
-
-        switch (type) {
-        case "T":
-            task = new Todo(description);
-            break;
-
-        case "D":
-            if (parts.length < 4) {
-                return null;
-            }
-            task = new Deadline(description, parts[3]);
-            break;
-
-        case "E":
-            if (parts.length < 5) {
-                return null;
-            }
-            task = new Event(description, parts[3], parts[4]);
-            break;
-
-        default:
-            return null;
-        }
+    /**
+     * Records that tasks were inserted at the given positions.
+     *
+     * @param positions zero-based positions the tasks now have, in increasing order
+     * @param tasks tasks that were inserted, one per position
+     */
+    void appendInsertAll(int[] positions, List<Task> tasks);
 
-        task.setDone(isDone);
-        return task;
-    }
+    /**
+     * Tidies up what has been recorded once enough has built up, such as
+     * folding a journal into its snapshot.
+     *
+     * @param tasks current list of tasks
+     */
+    void compactIfNeeded(TaskList tasks);
+
+    /**
+     * Brings the data file up to date with every recorded change.
+     *
+     * @param tasks current list of tasks
+     */
+    void compact(TaskList tasks);
 }
@@ -0,0 +1,116 @@
+package porus;
+
+/**
+ * Hands out one shared copy of each distinct task field, so that tasks with
+ * the same description or time text ("Sunday", "Mon 2pm") share a single
+ * {@code String} instead of each holding its own.
+ * <p>
+ * Strings are kept in open-addressing tables of references, which cost a
+ * few bytes per distinct string rather than a map entry per string. The pool
+ * is bounded: once a table holds its share of {@link #MAX_SIZE} strings it is
+ * emptied and starts over, so strings from deleted tasks cannot pile up
+ * forever. Emptying it only loses sharing for later copies, never correctness.
+ * Every loaded list and server session shares the pool, so nothing else
+ * empties it.
+ * <p>
+ * The pool is shared by {@link Storage}, {@link TextFileReader},
+ * {@link TaskImporter} and {@link Parser}, and is safe to use from several
+ * threads. It is split into segments chosen by hash, each with its own
+ * lock, so that threads parsing a file in parallel rarely wait for each other.
+ */
+final class StringPool {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int MAX_SIZE = 1 << 21;
+    private static final int SEGMENT_BITS = 4;
+
+    private static final Segment[] SEGMENTS = new Segment[1 << SEGMENT_BITS];
+
+    static {
+        for (int i = 0; i < SEGMENTS.length; i++) {
+            SEGMENTS[i] = new Segment();
+        }
+    }
+
+    private StringPool() {
+    }
+
+    /**
+     * Returns the pooled copy of a string, adding it to the pool if it is new.
+     *
+     * @param value string to look up, or null
+     * @return an equal string, shared with earlier callers; null for null
+     */
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        int hash = spread(value.hashCode());
+        return SEGMENTS[hash >>> (Integer.SIZE - SEGMENT_BITS)].intern(value, hash);
+    }
+
+    /**
+     * Scrambles a hash code so that strings with neighbouring hash codes,
+     * such as "task 1" and "task 2", do not land in neighbouring slots.
+     */
+    private static int spread(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * One table of the pool, guarded by its own lock.
+     */
+    private static final class Segment {
+
+        private String[] table = new String[INITIAL_CAPACITY];
+        private int size;
+
+        synchronized String intern(String value, int hash) {
+            int mask = table.length - 1;
+            int slot = hash & mask;
+
+            for (String existing; (existing = table[slot]) != null; slot = (slot + 1) & mask) {
+                if (existing.equals(value)) {
+                    return existing;
+                }
+            }
+
+            table[slot] = value;
+            if (++size * 4 >= table.length * 3) {
+                resize();
+            }
+            return value;
+        }
+
+        synchronized void clear() {
+            table = new String[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        /**
+         * Doubles the table, or empties it once it has reached its bound.
+         */
+        private void resize() {
+            if (size >= MAX_SIZE >> SEGMENT_BITS) {
+                clear();
+                return;
+            }
+
+            String[] old = table;
+            table = new String[old.length * 2];
+            int mask = table.length - 1;
+
+            for (String value : old) {
+                if (value != null) {
+                    int slot = spread(value.hashCode()) & mask;
+                    while (table[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = value;
+                }
+            }
+        }
+    }
+}
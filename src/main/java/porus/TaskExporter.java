@@ -0,0 +1,228 @@
+package porus;
+
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes tasks to a file one at a time, as JSON Lines or CSV, so that a list
+ * of any size is exported through a buffer of fixed size.
+ * <p>
+ * Both formats have the same fields: {@code type} ({@code todo},
+ * {@code deadline} or {@code event}), {@code done} ({@code true} or
+ * {@code false}), {@code description}, then {@code by} for a deadline or
+ * {@code from} and {@code to} for an event. A JSON Lines file holds one
+ * object per line and leaves out the fields a task does not have, as in
+ * {@code {"type":"deadline","done":false,"description":"return book","by":"Sunday"}}.
+ * A CSV file starts with a header row naming the fields and leaves the fields
+ * a task does not have empty; a field holding a comma, a quote or a line
+ * break is quoted as in RFC 4180. Files are written in UTF-8.
+ */
+public final class TaskExporter implements Closeable {
+
+    static final String[] FIELDS = {"type", "done", "description", "by", "from", "to"};
+    static final int TYPE = 0;
+    static final int DONE = 1;
+    static final int DESCRIPTION = 2;
+    static final int BY = 3;
+    static final int FROM = 4;
+    static final int TO = 5;
+
+    static final String TODO = "todo";
+    static final String DEADLINE = "deadline";
+    static final String EVENT = "event";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String CSV_LINE_END = "\r\n";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final ExchangeFormat format;
+    private final StringBuilder line = new StringBuilder();
+    private char[] chars = new char[256];
+    private final String[] values = new String[FIELDS.length];
+    private int count;
+
+    /**
+     * Creates the file, replacing any file of that name, and writes the
+     * header row if the format has one.
+     *
+     * @param path file to write
+     * @param format format to write in
+     * @throws IOException If the file cannot be created.
+     */
+    public TaskExporter(Path path, ExchangeFormat format) throws IOException {
+        this.out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+
+        if (format == ExchangeFormat.CSV) {
+            out.write(String.join(",", FIELDS));
+            out.write(CSV_LINE_END);
+        }
+    }
+
+    /**
+     * Writes one task.
+     *
+     * @param task task to write
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Task task) throws IOException {
+        values[TYPE] = TODO;
+        values[DESCRIPTION] = task.getDescription();
+        values[BY] = null;
+        values[FROM] = null;
+        values[TO] = null;
+
+        if (task instanceof Deadline) {
+            values[TYPE] = DEADLINE;
+            values[BY] = ((Deadline) task).getBy();
+        } else if (task instanceof Event) {
+            values[TYPE] = EVENT;
+            values[FROM] = ((Event) task).getFrom();
+            values[TO] = ((Event) task).getTo();
+        }
+
+        line.setLength(0);
+        if (format == ExchangeFormat.JSON_LINES) {
+            appendJson(task.getDone());
+            line.append('\n');
+        } else {
+            appendCsv(task.getDone());
+            line.append(CSV_LINE_END);
+        }
+
+        int length = line.length();
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        line.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        count++;
+    }
+
+    /**
+     * Returns the number of tasks written so far.
+     *
+     * @return task count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Writes out what is still buffered and closes the file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void appendJson(boolean isDone) {
+        line.append('{');
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (i == DONE) {
+                line.append(",\"done\":").append(isDone);
+                continue;
+            }
+            if (values[i] == null) {
+                continue;
+            }
+            if (i > 0) {
+                line.append(',');
+            }
+            appendJsonString(FIELDS[i]);
+            line.append(':');
+            appendJsonString(values[i]);
+        }
+        line.append('}');
+    }
+
+    /**
+     * Appends a JSON string, escaping quotes, backslashes and control
+     * characters. Other characters are written as they are.
+     */
+    private void appendJsonString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                line.append("\\\"");
+                break;
+            case '\\':
+                line.append("\\\\");
+                break;
+            case '\n':
+                line.append("\\n");
+                break;
+            case '\r':
+                line.append("\\r");
+                break;
+            case '\t':
+                line.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    line.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                } else {
+                    line.append(c);
+                }
+                break;
+            }
+        }
+        line.append('"');
+    }
+
+    private void appendCsv(boolean isDone) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            if (i == DONE) {
+                line.append(isDone);
+            } else if (values[i] != null) {
+                appendCsvField(values[i]);
+            }
+        }
+    }
+
+    /**
+     * Appends a CSV field, in quotes with its quotes doubled if it holds a
+     * comma, a quote or a line break.
+     */
+    private void appendCsvField(String value) {
+        boolean isQuoted = false;
+        for (int i = 0; i < value.length() && !isQuoted; i++) {
+            char c = value.charAt(i);
+            isQuoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!isQuoted) {
+            line.append(value);
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
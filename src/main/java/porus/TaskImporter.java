@@ -0,0 +1,562 @@
+package porus;
+
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads tasks from a JSON Lines or CSV file one at a time, in the layout
+ * described in {@link TaskExporter}, so that a file of any size is imported
+ * through a buffer of fixed size.
+ * <p>
+ * Reading is lenient where that is safe: a type may also be given by its
+ * icon ({@code T}, {@code D} or {@code E}), {@code done} may be {@code 1} or
+ * {@code 0} and defaults to not done, JSON keys Porus does not know are
+ * ignored, and CSV columns may come in any order as long as the header row
+ * names {@code type} and {@code description}. A record that still cannot be
+ * read, such as one with no description or a deadline with no {@code by},
+ * is skipped and counted, and the lines of the first few are kept for the
+ * caller to report. Line breaks inside a field are read as spaces, since
+ * every task is shown and stored on one line.
+ */
+public final class TaskImporter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SKIPPED_LINES = 10;
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final int MISSING = -1;
+
+    private final Reader in;
+    private final ExchangeFormat format;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int last;
+
+    private final StringBuilder text = new StringBuilder();
+    private final String[] values = new String[TaskExporter.FIELDS.length];
+    private final List<String> record = new ArrayList<>();
+    private int[] columns;
+
+    private int lineNumber = 1;
+    private int recordLine;
+    private int skippedCount;
+    private final List<Integer> skippedLines = new ArrayList<>();
+
+    /**
+     * Opens a file to read tasks from. For CSV, also reads the header row.
+     *
+     * @param path file to read
+     * @param format format the file is in
+     * @throws IOException If the file cannot be read, or a CSV file has no
+     *     header row naming the type and description columns.
+     */
+    public TaskImporter(Path path, ExchangeFormat format) throws IOException {
+        this.in = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8);
+        this.format = format;
+
+        if (peek() == BYTE_ORDER_MARK) {
+            position++;
+        }
+        if (format == ExchangeFormat.CSV) {
+            readHeader();
+        }
+    }
+
+    /**
+     * Reads the next task, skipping records that cannot be read.
+     *
+     * @return the next task, or null at the end of the file
+     * @throws IOException If the file cannot be read.
+     */
+    public Task next() throws IOException {
+        while (true) {
+            Arrays.fill(values, null);
+            recordLine = lineNumber;
+
+            boolean isRead;
+            if (format == ExchangeFormat.JSON_LINES) {
+                if (!skipBlankLines()) {
+                    return null;
+                }
+                recordLine = lineNumber;
+                isRead = readJsonRecord();
+            } else {
+                if (!readCsvRecord()) {
+                    return null;
+                }
+                isRead = record.size() > 1 || !record.get(0).isEmpty();
+                if (!isRead) {
+                    continue;
+                }
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = columns[i] < record.size() ? record.get(columns[i]) : null;
+                }
+            }
+
+            Task task = isRead ? toTask() : null;
+            if (task != null) {
+                return task;
+            }
+            skip();
+        }
+    }
+
+    /**
+     * Returns the number of records skipped so far because they could not be read.
+     *
+     * @return skipped record count
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Returns the lines on which the first few skipped records start.
+     *
+     * @return line numbers, counting from 1, in increasing order
+     */
+    public List<Integer> getSkippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void skip() {
+        skippedCount++;
+        if (skippedLines.size() < MAX_SKIPPED_LINES) {
+            skippedLines.add(recordLine);
+        }
+    }
+
+    /**
+     * Builds a task from the fields of the current record.
+     *
+     * @return the task, or null if the fields do not make one
+     */
+    private Task toTask() {
+        String type = values[TaskExporter.TYPE];
+        String description = field(TaskExporter.DESCRIPTION);
+        Boolean isDone = toBoolean(values[TaskExporter.DONE]);
+        if (type == null || description == null || isDone == null) {
+            return null;
+        }
+
+        Task task;
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+        case TaskExporter.TODO:
+        case "t":
+            task = new Todo(description);
+            break;
+        case TaskExporter.DEADLINE:
+        case "d":
+            String by = field(TaskExporter.BY);
+            if (by == null) {
+                return null;
+            }
+            task = new Deadline(description, by);
+            break;
+        case TaskExporter.EVENT:
+        case "e":
+            String from = field(TaskExporter.FROM);
+            String to = field(TaskExporter.TO);
+            if (from == null || to == null) {
+                return null;
+            }
+            task = new Event(description, from, to);
+            break;
+        default:
+            return null;
+        }
+
+        task.setDone(isDone);
+        return task;
+    }
+
+    /**
+     * Returns a text field of the current record, trimmed, with line breaks
+     * turned into spaces and pooled, or null if it is absent or blank.
+     */
+    private String field(int index) {
+        String value = values[index];
+        if (value == null) {
+            return null;
+        }
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            value = value.replace("\r\n", " ").replace('\r', ' ').replace('\n', ' ');
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : StringPool.intern(value);
+    }
+
+    private static Boolean toBoolean(String value) {
+        if (value == null) {
+            return Boolean.FALSE;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+        case "":
+        case "false":
+        case "0":
+            return Boolean.FALSE;
+        case "true":
+        case "1":
+            return Boolean.TRUE;
+        default:
+            return null;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        last = c;
+        if (c >= 0) {
+            position++;
+            if (c == '\n') {
+                lineNumber++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Skips whitespace, including line breaks, between JSON records.
+     *
+     * @return false if the end of the file was reached
+     */
+    private boolean skipBlankLines() throws IOException {
+        int c;
+        while ((c = peek()) >= 0 && Character.isWhitespace(c)) {
+            read();
+        }
+        return c >= 0;
+    }
+
+    /** Skips to the start of the next line, unless already there. */
+    private void skipLine() throws IOException {
+        if (last == '\n') {
+            return;
+        }
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            // Skip the rest of a record that cannot be read.
+        }
+    }
+
+    // JSON Lines
+
+    /**
+     * Reads one JSON object into {@link #values}. Values may be strings,
+     * booleans, numbers or null; nested objects and arrays are only allowed,
+     * and skipped, under keys Porus does not know.
+     *
+     * @return false if the record is malformed, in which case the rest of its
+     *     line has been skipped
+     */
+    private boolean readJsonRecord() throws IOException {
+        if (read() != '{') {
+            skipLine();
+            return false;
+        }
+
+        skipSpaces();
+        if (peek() == '}') {
+            read();
+            return finishJsonLine();
+        }
+
+        while (true) {
+            skipSpaces();
+            if (read() != '"' || !readJsonString()) {
+                skipLine();
+                return false;
+            }
+            int field = indexOfField(text);
+
+            skipSpaces();
+            if (read() != ':') {
+                skipLine();
+                return false;
+            }
+            skipSpaces();
+
+            String value;
+            int c = peek();
+            if (c == '"') {
+                read();
+                if (!readJsonString()) {
+                    skipLine();
+                    return false;
+                }
+                value = text.toString();
+            } else if (c == '[' || c == '{') {
+                if (field != MISSING || !skipNested()) {
+                    skipLine();
+                    return false;
+                }
+                value = "null";
+            } else {
+                text.setLength(0);
+                while ((c = peek()) >= 0 && c != ',' && c != '}' && c != '\n' && !isSpace(c)) {
+                    text.append((char) read());
+                }
+                value = literal(text);
+                if (value == null) {
+                    skipLine();
+                    return false;
+                }
+            }
+            if (field != MISSING && !value.equals("null")) {
+                values[field] = value;
+            }
+
+            skipSpaces();
+            c = read();
+            if (c == '}') {
+                return finishJsonLine();
+            }
+            if (c != ',') {
+                skipLine();
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Reads the rest of a JSON string, after its opening quote, into
+     * {@link #text}.
+     *
+     * @return false if the string is not closed on its line or has a bad escape
+     */
+    private boolean readJsonString() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = peek();
+            if (c < 0 || c == '\n') {
+                return false;
+            }
+            read();
+            if (c == '"') {
+                return true;
+            }
+            if (c != '\\') {
+                text.append((char) c);
+                continue;
+            }
+
+            switch (read()) {
+            case '"':
+                text.append('"');
+                break;
+            case '\\':
+                text.append('\\');
+                break;
+            case '/':
+                text.append('/');
+                break;
+            case 'b':
+                text.append('\b');
+                break;
+            case 'f':
+                text.append('\f');
+                break;
+            case 'n':
+                text.append('\n');
+                break;
+            case 'r':
+                text.append('\r');
+                break;
+            case 't':
+                text.append('\t');
+                break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(peek(), 16);
+                    if (digit < 0) {
+                        return false;
+                    }
+                    read();
+                    code = code * 16 + digit;
+                }
+                text.append((char) code);
+                break;
+            default:
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Skips a nested JSON array or object, including any strings in it.
+     *
+     * @return false if it is not closed on its line
+     */
+    private boolean skipNested() throws IOException {
+        int depth = 0;
+        do {
+            int c = read();
+            if (c < 0 || c == '\n') {
+                return false;
+            }
+            if (c == '"') {
+                if (!readJsonString()) {
+                    return false;
+                }
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            }
+        } while (depth > 0);
+        return true;
+    }
+
+    /**
+     * Returns a JSON literal as text, or null if it is not a boolean, null
+     * or number.
+     */
+    private static String literal(CharSequence token) {
+        String value = token.toString();
+        if (value.equals("true") || value.equals("false") || value.equals("null")) {
+            return value;
+        }
+        if (value.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isDigit(c) && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /** Checks that nothing but spaces follows a JSON object on its line. */
+    private boolean finishJsonLine() throws IOException {
+        skipSpaces();
+        int c = peek();
+        if (c == '\r') {
+            read();
+            c = peek();
+        }
+        if (c < 0 || c == '\n') {
+            read();
+            return true;
+        }
+        skipLine();
+        return false;
+    }
+
+    private void skipSpaces() throws IOException {
+        while (isSpace(peek())) {
+            read();
+        }
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t';
+    }
+
+    private static int indexOfField(CharSequence name) {
+        for (int i = 0; i < TaskExporter.FIELDS.length; i++) {
+            if (TaskExporter.FIELDS[i].contentEquals(name)) {
+                return i;
+            }
+        }
+        return MISSING;
+    }
+
+    // CSV
+
+    private void readHeader() throws IOException {
+        columns = new int[TaskExporter.FIELDS.length];
+        Arrays.fill(columns, Integer.MAX_VALUE);
+
+        if (readCsvRecord()) {
+            for (int i = 0; i < record.size(); i++) {
+                int field = indexOfField(record.get(i).trim().toLowerCase(Locale.ROOT));
+                if (field != MISSING && columns[field] == Integer.MAX_VALUE) {
+                    columns[field] = i;
+                }
+            }
+        }
+
+        if (columns[TaskExporter.TYPE] == Integer.MAX_VALUE
+                || columns[TaskExporter.DESCRIPTION] == Integer.MAX_VALUE) {
+            throw new IOException("The CSV file needs a header row naming its type and description columns.");
+        }
+    }
+
+    /**
+     * Reads one CSV record into {@link #record}. A quoted field may hold
+     * commas, doubled quotes and line breaks; records end in LF or CRLF.
+     *
+     * @return false if the end of the file was reached
+     */
+    private boolean readCsvRecord() throws IOException {
+        record.clear();
+        if (peek() < 0) {
+            return false;
+        }
+
+        text.setLength(0);
+        boolean isQuoted = false;
+        while (true) {
+            int c = read();
+            if (isQuoted) {
+                if (c < 0) {
+                    break;
+                }
+                if (c != '"') {
+                    text.append((char) c);
+                } else if (peek() == '"') {
+                    text.append((char) read());
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == '"' && text.length() == 0) {
+                isQuoted = true;
+            } else if (c == ',') {
+                record.add(text.toString());
+                text.setLength(0);
+            } else if (c == '\r' && peek() == '\n') {
+                // The LF that follows ends the record.
+            } else if (c < 0 || c == '\n') {
+                break;
+            } else {
+                text.append((char) c);
+            }
+        }
+        record.add(text.toString());
+        return true;
+    }
+}
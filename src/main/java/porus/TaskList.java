@@ -1,53 +1,491 @@
 package porus;
 
+import porus.command.History;
 import porus.task.Task;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Manages the list of tasks.
  * Responsible for all task-related operations.
+ * <p>
+ * Every task added to the list gets a stable, increasing id. Positions are
+ * tracked by an {@link OrderTree}, so positional lookup and removal take
+ * O(log n) instead of shifting the rest of the list. A {@link WordIndex}
+ * of task descriptions is built on the first search and kept up to date
+ * afterwards, so that searches do not have to scan the whole list.
+ * A {@link TimeIndex} of deadlines and event start times is handled the
+ * same way and answers date range queries.
+ * <p>
+ * The list also holds the {@link History} of recent changes, so that the
+ * undo and redo commands work on whichever list a command ran against.
+ * <p>
+ * A list opened over a {@link MappedTaskFile} starts out with no task objects
+ * at all; each task is decoded from the file the first time it is accessed.
+ * A list created with {@link Layout#COLUMNAR} never keeps task objects: its
+ * {@link ColumnarTaskStore} packs the tasks into arrays and creates a view for
+ * each task that is read.
+ * <p>
+ * The list itself is not synchronized. Code that shares it between threads
+ * holds {@link #readLock()} around commands that only read it and
+ * {@link #writeLock()} around commands that change it, after calling
+ * {@link #loadFully()} so that reads no longer fill in lazy state.
  */
 public class TaskList {
 
-    private final ArrayList<Task> tasks;
+    // Size of the word index per task, as measured on the benchmark fixtures
+    private static final int WORD_INDEX_BYTES_PER_TASK = 300;
+    // Sets task ids, for this class and the task stores only
+    static final Task.IdSetter IDS = Task.idSetter();
+
+    private final OrderTree order = new OrderTree();
+    private final WordIndex index = new WordIndex();
+    private boolean isIndexed;
+    private final TimeIndex timeIndex = new TimeIndex();
+    private boolean isTimeIndexed;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final History history = new History();
+
+    private final TaskStore store;
+    private int nextId = 1;
+
+    /**
+     * How a task list keeps its tasks in memory.
+     */
+    public enum Layout {
+        /** One task object per task. */
+        OBJECTS,
+        /**
+         * Tasks packed into shared arrays, with task objects created only as
+         * views when asked for. Uses a fraction of the memory, and counting or
+         * selecting done tasks does not touch the tasks' text.
+         */
+        COLUMNAR
+    }
 
     public TaskList(ArrayList<Task> tasks) {
-        this.tasks = tasks;
+        this(tasks, Layout.OBJECTS);
+    }
+
+    /**
+     * Creates a task list holding the given tasks in the given layout.
+     * With {@link Layout#COLUMNAR}, the tasks are copied into the list's
+     * arrays, and tasks read back from it are views that do not follow
+     * later changes.
+     *
+     * @param tasks tasks in list order
+     * @param layout how the list keeps its tasks
+     */
+    public TaskList(ArrayList<Task> tasks, Layout layout) {
+        store = layout == Layout.COLUMNAR
+                ? new ColumnarTaskStore(tasks.size() + 1, ColumnarTaskStore.estimateText(tasks))
+                : new ObjectTaskStore();
+        for (Task task : tasks) {
+            IDS.setId(task, 0);
+            add(task);
+        }
+        store.trimToSize();
+    }
+
+    /**
+     * Creates a task list over a mapped data file without decoding any tasks.
+     *
+     * @param source mapped data file
+     */
+    TaskList(MappedTaskFile source) {
+        store = new ObjectTaskStore(source);
+        order.fill(source.size());
+        nextId = source.size() + 1;
     }
 
     public void add(Task task) {
-        tasks.add(task);
+        insertAt(order.size(), task);
     }
 
-    public Task remove(int index) throws PorusException {
-        if (index < 0 || index >= tasks.size()) {
+    /**
+     * Inserts a task at the given position, shifting later tasks back by one.
+     * The task keeps its id if it already has one.
+     *
+     * @param index position to insert at
+     * @param task task to insert
+     * @throws PorusException If the index is out of range.
+     */
+    public void insert(int index, Task task) throws PorusException {
+        if (index < 0 || index > order.size()) {
             throw new PorusException("Invalid task number.");
         }
-        return tasks.remove(index);
+        insertAt(index, task);
+    }
+
+    public Task remove(int index) throws PorusException {
+        checkIndex(index);
+        int node = order.get(index);
+        Task removed = store.get(node);
+        order.remove(index);
+        store.remove(node);
+        if (isIndexed) {
+            this.index.remove(removed);
+        }
+        if (isTimeIndexed) {
+            timeIndex.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the tasks at the given positions in a single pass over the list.
+     *
+     * @param positions zero-based positions in increasing order, without repeats
+     * @return the removed tasks, in list order
+     * @throws PorusException If a position is out of range.
+     */
+    public List<Task> removeAll(int[] positions) throws PorusException {
+        checkPositions(positions, order.size());
+
+        int[] removedNodes = order.removeAll(positions);
+        ArrayList<Task> removed = new ArrayList<>(removedNodes.length);
+
+        for (int node : removedNodes) {
+            Task task = store.get(node);
+            store.remove(node);
+            if (isIndexed) {
+                this.index.remove(task);
+            }
+            if (isTimeIndexed) {
+                timeIndex.remove(task);
+            }
+            removed.add(task);
+        }
+        return removed;
+    }
+
+    /**
+     * Inserts tasks so that they end up at the given positions, in a single
+     * pass over the list. Tasks keep their ids if they already have them.
+     *
+     * @param positions zero-based positions the tasks will have, in increasing order
+     * @param tasks tasks to insert, one per position
+     * @throws PorusException If a position is out of range.
+     */
+    public void insertAll(int[] positions, List<Task> tasks) throws PorusException {
+        checkPositions(positions, order.size() + positions.length);
+
+        int[] insertedNodes = order.insertAll(positions);
+
+        for (int i = 0; i < insertedNodes.length; i++) {
+            Task task = tasks.get(i);
+            if (task.getId() == 0) {
+                IDS.setId(task, nextId++);
+            }
+            store(insertedNodes[i], task);
+        }
+    }
+
+    /**
+     * Marks or unmarks the tasks at the given positions.
+     *
+     * @param positions zero-based positions in increasing order, without repeats
+     * @param isDone new completion status
+     * @return the positions whose status actually changed
+     * @throws PorusException If a position is out of range.
+     */
+    public int[] markAll(int[] positions, boolean isDone) throws PorusException {
+        checkPositions(positions, order.size());
+
+        int[] changed = new int[positions.length];
+        int count = 0;
+
+        for (int position : positions) {
+            int node = order.get(position);
+            if (store.isDone(node) != isDone) {
+                store.setDone(node, isDone);
+                changed[count++] = position;
+            }
+        }
+        return Arrays.copyOf(changed, count);
     }
 
     public Task mark(int index, boolean isDone) throws PorusException {
-        if (index < 0 || index >= tasks.size()) {
-            throw new PorusException("Invalid task number.");
+        checkIndex(index);
+        int node = order.get(index);
+        store.setDone(node, isDone);
+        return store.get(node);
+    }
+
+    /**
+     * Finds tasks whose descriptions contain the query words.
+     *
+     * @param query whitespace-separated words, with {@code |} between alternatives
+     * @return matching tasks in list order
+     */
+    public List<Task> find(String query) {
+        ensureWordIndex();
+        return current(index.search(query));
+    }
+
+    /**
+     * Finds tasks whose deadline or start time lies in a range, earliest first.
+     * Tasks whose date/time could not be parsed are never included.
+     *
+     * @param from inclusive start, or null for no lower bound
+     * @param to inclusive end, or null for no upper bound
+     * @param limit maximum number of tasks to return
+     * @return matching tasks in time order
+     */
+    public List<Task> findByTime(LocalDateTime from, LocalDateTime to, int limit) {
+        ensureTimeIndex();
+        return current(timeIndex.range(from, to, limit));
+    }
+
+    /**
+     * Returns the positions of the tasks with the given status. Only the
+     * status of each task is read, so no task needs to be decoded or created.
+     *
+     * @param isDone status to look for
+     * @return zero-based positions in increasing order
+     */
+    public int[] positionsWithStatus(boolean isDone) {
+        int[] sequence = order.toArray();
+        int count = 0;
+
+        // Positions found are never ahead of the scan, so they can reuse its array
+        for (int position = 0; position < sequence.length; position++) {
+            if (store.isDone(sequence[position]) == isDone) {
+                sequence[count++] = position;
+            }
+        }
+        return Arrays.copyOf(sequence, count);
+    }
+
+    /**
+     * Returns the positions of tasks in the list, such as search results.
+     * Ids increase along the list, so each task is found by a binary search
+     * over positions that reads ids only and decodes no task.
+     *
+     * @param found tasks in the list, in any order
+     * @return zero-based positions in increasing order
+     */
+    public int[] positionsOf(List<Task> found) {
+        int[] ids = new int[found.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = found.get(i).getId();
+        }
+        Arrays.sort(ids);
+
+        int[] positions = new int[ids.length];
+        int count = 0;
+        int low = 0;
+        for (int id : ids) {
+            int high = order.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (store.idOf(order.get(middle)) < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            if (low < order.size() && store.idOf(order.get(low)) == id) {
+                positions[count++] = low++;
+            }
         }
-        tasks.get(index).setDone(isDone);
-        return tasks.get(index);
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Counts the tasks that are done, without decoding or creating any task.
+     *
+     * @return number of done tasks
+     */
+    public int countDone() {
+        return store.countDone(order);
+    }
+
+    /**
+     * Estimates the heap memory the list holds: its order tree, its tasks,
+     * and its word index once a search has built it. Used to decide which
+     * lists to unload when many are open.
+     *
+     * @return approximate size in bytes
+     */
+    public long estimateMemory() {
+        long bytes = order.estimateMemory() + store.estimateMemory(size());
+        if (isIndexed) {
+            bytes += (long) size() * WORD_INDEX_BYTES_PER_TASK;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes every task and builds the search indexes up front. Afterwards,
+     * reading the list never modifies it, so reads can run in parallel.
+     */
+    public void loadFully() {
+        lock.writeLock().lock();
+        try {
+            ensureWordIndex();
+            ensureTimeIndex();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the lock to hold while only reading the list from several threads.
+     *
+     * @return shared read lock
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Returns the lock to hold while changing the list from several threads.
+     *
+     * @return exclusive write lock
+     */
+    public Lock writeLock() {
+        return lock.writeLock();
+    }
+
+    /**
+     * Returns the recent changes to this list that can be undone.
+     *
+     * @return change history
+     */
+    public History getHistory() {
+        return history;
     }
 
     public int size() {
-        return tasks.size();
+        return order.size();
     }
 
     public boolean isEmpty() {
-        return tasks.isEmpty();
+        return order.size() == 0;
     }
 
     public Task get(int index) {
-        return tasks.get(index);
+        return store.get(order.get(index));
     }
 
+    /**
+     * Returns an iterator over the tasks in list order, starting at a position.
+     * Tasks are only decoded as the iterator reaches them, so reading a page
+     * costs the same however long the list is. The iterator must not be used
+     * after the list is modified.
+     *
+     * @param index position of the first task to return
+     * @return iterator over the tasks from that position on
+     */
+    public Iterator<Task> iterator(int index) {
+        OrderTree.Cursor cursor = order.cursor(index);
+
+        return new Iterator<Task>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (!cursor.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return store.get(cursor.next());
+            }
+        };
+    }
+
+    /**
+     * Returns a copy of all tasks in list order.
+     *
+     * @return tasks in list order
+     */
     public ArrayList<Task> getAll() {
-        return tasks;
+        int[] sequence = order.toArray();
+        ArrayList<Task> result = new ArrayList<>(sequence.length);
+        for (int node : sequence) {
+            result.add(store.get(node));
+        }
+        return result;
+    }
+
+    private void insertAt(int index, Task task) {
+        if (task.getId() == 0) {
+            IDS.setId(task, nextId++);
+        }
+
+        store(order.insert(index), task);
+    }
+
+    /**
+     * Puts a task in a newly inserted node and adds it to the indexes.
+     */
+    private void store(int node, Task task) {
+        store.put(node, task);
+        if (isIndexed) {
+            this.index.add(task);
+        }
+        if (isTimeIndexed) {
+            timeIndex.add(task);
+        }
+    }
+
+    private void ensureWordIndex() {
+        if (!isIndexed) {
+            for (Task task : getAll()) {
+                index.add(task);
+            }
+            isIndexed = true;
+        }
+    }
+
+    private void ensureTimeIndex() {
+        if (!isTimeIndexed) {
+            for (Task task : getAll()) {
+                timeIndex.add(task);
+            }
+            isTimeIndexed = true;
+        }
+    }
+
+    /**
+     * Replaces tasks taken from the search indexes by their current state,
+     * in case the store handed out views that have since gone stale.
+     */
+    private List<Task> current(List<Task> tasks) {
+        List<Task> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            result.add(store.current(task));
+        }
+        return result;
+    }
+
+    private void checkIndex(int index) throws PorusException {
+        if (index < 0 || index >= order.size()) {
+            throw new PorusException("Invalid task number.");
+        }
+    }
+
+    /**
+     * Checks that positions are increasing and all below {@code limit}.
+     */
+    private static void checkPositions(int[] positions, int limit) throws PorusException {
+        int previous = -1;
+        for (int position : positions) {
+            if (position <= previous || position >= limit) {
+                throw new PorusException("Invalid task number.");
+            }
+            previous = position;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package porus;
+
+import porus.task.Task;
+
+/**
+ * Holds the task stored at each node of a {@link TaskList}'s {@link OrderTree}.
+ * <p>
+ * {@link TaskList} only reaches its tasks through this interface, so the same
+ * list can keep one object per task ({@link ObjectTaskStore}) or pack its
+ * tasks into arrays and hand out views ({@link ColumnarTaskStore}).
+ */
+interface TaskStore {
+
+    /**
+     * Returns the task at a node. A store that does not keep task objects
+     * returns a new view each time, which does not follow later changes.
+     *
+     * @param node node of the order tree
+     * @return the task at that node
+     */
+    Task get(int node);
+
+    /**
+     * Stores a task at a newly inserted node. The task already has its id.
+     *
+     * @param node node of the order tree
+     * @param task task to store
+     */
+    void put(int node, Task task);
+
+    /**
+     * Forgets the task at a node that has been removed from the order tree.
+     *
+     * @param node node of the order tree
+     */
+    void remove(int node);
+
+    /**
+     * Returns whether the task at a node is done, without creating a task.
+     *
+     * @param node node of the order tree
+     * @return completion status
+     */
+    boolean isDone(int node);
+
+    /**
+     * Marks or unmarks the task at a node.
+     *
+     * @param node node of the order tree
+     * @param isDone new completion status
+     */
+    void setDone(int node, boolean isDone);
+
+    /**
+     * Returns the current state of a task handed out earlier, such as one
+     * kept by a search index, which may have changed since.
+     *
+     * @param task task returned by this store, still in the list
+     * @return the task as it is now
+     */
+    Task current(Task task);
+
+    /**
+     * Returns the id of the task at a node, without decoding or creating it.
+     *
+     * @param node node of the order tree
+     * @return task id
+     */
+    int idOf(int node);
+
+    /**
+     * Estimates the heap memory the store holds.
+     *
+     * @param count number of tasks in the list
+     * @return approximate size in bytes
+     */
+    long estimateMemory(int count);
+
+    /**
+     * Gives back spare room kept for growth, after many tasks were put at once.
+     */
+    default void trimToSize() {
+    }
+
+    /**
+     * Counts the done tasks among the nodes of an order tree.
+     *
+     * @param order the nodes in use
+     * @return number of done tasks
+     */
+    default int countDone(OrderTree order) {
+        int count = 0;
+        for (OrderTree.Cursor cursor = order.cursor(0); cursor.hasNext(); ) {
+            if (isDone(cursor.next())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,313 @@
+package porus;
+
+import porus.task.Task;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the lines of a text data file on several threads.
+ * <p>
+ * The file is split into chunks of whole lines, and each chunk is read and
+ * parsed as a task on the common {@link ForkJoinPool}. The chunks' tasks are
+ * then joined in file order. Lines that cannot be parsed are skipped, and
+ * their line numbers are reported in the {@link Contents}. The line checksum
+ * is a sum of per-line CRC32 values, so chunks can add up their own lines
+ * independently.
+ * <p>
+ * The reader only knows about lines; what the header, trailer and task lines
+ * mean is left to {@link FileStorage}.
+ */
+final class TextFileReader {
+
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int SCAN_SIZE = 1 << 16;
+
+    /**
+     * Everything read from a text data file.
+     */
+    static final class Contents {
+        /** Tasks parsed from the task lines, in file order. */
+        final ArrayList<Task> tasks;
+        /** The first line, if it starts with the header prefix; otherwise null. */
+        final String header;
+        /** The first trailer line, or null if there is none. */
+        final String trailer;
+        /** Number of lines between the header and the trailer. */
+        final int count;
+        /** Sum of the CRC32 of each of those lines. */
+        final long checksum;
+        /** One-based line numbers of the non-blank lines that could not be parsed. */
+        final int[] skippedLines;
+
+        private Contents(ArrayList<Task> tasks, String header, String trailer, int count,
+                long checksum, int[] skippedLines) {
+            this.tasks = tasks;
+            this.header = header;
+            this.trailer = trailer;
+            this.count = count;
+            this.checksum = checksum;
+            this.skippedLines = skippedLines;
+        }
+    }
+
+    private TextFileReader() {
+    }
+
+    /**
+     * Reads a text data file. If its first line starts with the header prefix,
+     * reading stops at the first line starting with the trailer prefix.
+     *
+     * @param path data file
+     * @param headerPrefix start of a header line
+     * @param trailerPrefix start of a trailer line
+     * @param parser turns a line into a task; may return null or throw for a bad line
+     * @return the file's tasks, header, trailer and checksum
+     * @throws IOException If the file cannot be read.
+     */
+    static Contents read(Path path, String headerPrefix, String trailerPrefix,
+            Function<String, Task> parser) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            long bodyStart = lineEnd(channel, 0, size);
+            String header = decode(read(channel, 0, bodyStart));
+            if (!header.startsWith(headerPrefix)) {
+                header = null;
+                bodyStart = 0;
+            }
+
+            byte[] trailer = header == null ? null : trailerPrefix.getBytes(StandardCharsets.UTF_8);
+            List<ChunkReader> chunks = new ArrayList<>();
+            long chunkSize = chunkSize(size - bodyStart);
+
+            for (long start = bodyStart; start < size; ) {
+                long end = lineEnd(channel, Math.min(start + chunkSize, size) - 1, size);
+                chunks.add(new ChunkReader(channel, start, end, trailer, parser));
+                start = end;
+            }
+
+            try {
+                ForkJoinTask.invokeAll(chunks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            return join(chunks, header);
+        }
+    }
+
+    /**
+     * Joins the chunks' results in file order, up to the chunk holding the trailer.
+     */
+    private static Contents join(List<ChunkReader> chunks, String header) {
+        int total = 0;
+        for (ChunkReader chunk : chunks) {
+            total += chunk.tasks.size();
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(total);
+        int[] skipped = new int[0];
+        String trailer = null;
+        int count = 0;
+        long checksum = 0;
+        int firstLine = header == null ? 1 : 2;
+
+        for (ChunkReader chunk : chunks) {
+            tasks.addAll(chunk.tasks);
+            int skippedSoFar = skipped.length;
+            skipped = Arrays.copyOf(skipped, skippedSoFar + chunk.skippedCount);
+            for (int i = 0; i < chunk.skippedCount; i++) {
+                skipped[skippedSoFar + i] = firstLine + count + chunk.skipped[i];
+            }
+            count += chunk.count;
+            checksum += chunk.checksum;
+
+            if (chunk.trailer != null) {
+                trailer = chunk.trailer;
+                break;
+            }
+        }
+
+        return new Contents(tasks, header, trailer, count, checksum, skipped);
+    }
+
+    /**
+     * Picks a chunk size that gives each thread a few chunks to balance the
+     * load, without making chunks so small that their overhead shows.
+     */
+    private static long chunkSize(long bodySize) {
+        int threads = ForkJoinPool.getCommonPoolParallelism() + 1;
+        long size = bodySize / ((long) threads * CHUNKS_PER_THREAD);
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+    }
+
+    /**
+     * Returns the position just past the first newline at or after
+     * {@code from}, or the end of the file if there is none.
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long position = from;
+
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads a range of the file into an array.
+     */
+    private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IOException("Line too long in data file");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("Data file shrank while being read");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a line, leaving out its line terminator.
+     */
+    private static String decode(byte[] bytes) {
+        return new String(bytes, 0, contentEnd(bytes, 0, bytes.length), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns where the text of the line in {@code [start, end)} ends,
+     * before a trailing {@code \n} or {@code \r\n}.
+     */
+    private static int contentEnd(byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == '\n') {
+            end--;
+        }
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Reads and parses one chunk of whole lines.
+     */
+    private static final class ChunkReader extends RecursiveTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long start;
+        private final long end;
+        private final byte[] trailerPrefix;
+        private final transient Function<String, Task> parser;
+
+        private final transient ArrayList<Task> tasks = new ArrayList<>();
+        private int[] skipped = new int[0];
+        private int skippedCount;
+        private String trailer;
+        private int count;
+        private long checksum;
+
+        ChunkReader(FileChannel channel, long start, long end, byte[] trailerPrefix,
+                Function<String, Task> parser) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.trailerPrefix = trailerPrefix;
+            this.parser = parser;
+        }
+
+        @Override
+        protected Void compute() {
+            byte[] bytes;
+            try {
+                bytes = read(channel, start, end);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            CRC32 crc = new CRC32();
+            int lineStart = 0;
+
+            while (lineStart < bytes.length) {
+                int next = lineStart;
+                while (next < bytes.length && bytes[next] != '\n') {
+                    next++;
+                }
+                next = Math.min(next + 1, bytes.length);
+                int lineEnd = contentEnd(bytes, lineStart, next);
+
+                if (isTrailer(bytes, lineStart, lineEnd)) {
+                    trailer = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+                    break;
+                }
+
+                crc.reset();
+                crc.update(bytes, lineStart, lineEnd - lineStart);
+                checksum += crc.getValue();
+                parseLine(new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8));
+                count++;
+
+                lineStart = next;
+            }
+            return null;
+        }
+
+        private boolean isTrailer(byte[] bytes, int lineStart, int lineEnd) {
+            return trailerPrefix != null
+                    && lineEnd - lineStart >= trailerPrefix.length
+                    && Arrays.equals(bytes, lineStart, lineStart + trailerPrefix.length,
+                            trailerPrefix, 0, trailerPrefix.length);
+        }
+
+        /**
+         * Parses a line, noting its position in the chunk if it is neither a
+         * task nor blank.
+         */
+        private void parseLine(String line) {
+            Task task = null;
+            try {
+                task = parser.apply(line);
+            } catch (RuntimeException e) {
+                // Reported below like any other line that is not a task
+            }
+
+            if (task != null) {
+                tasks.add(task);
+            } else if (!line.isBlank()) {
+                if (skippedCount == skipped.length) {
+                    skipped = Arrays.copyOf(skipped, Math.max(4, skippedCount * 2));
+                }
+                skipped[skippedCount++] = count;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package porus;
+
+import porus.task.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Sorted index of tasks by their parsed date/time.
+ * <p>
+ * Tasks without a parsed date/time are not indexed. A range lookup costs
+ * O(log n + k) for k results instead of a scan of the whole list.
+ */
+class TimeIndex {
+
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+
+    private final TreeMap<LocalDateTime, TreeSet<Task>> byTime = new TreeMap<>();
+
+    /**
+     * Adds a task to the index if it has a parsed date/time.
+     *
+     * @param task task to index
+     */
+    void add(Task task) {
+        LocalDateTime time = task.getDateTime();
+        if (time != null) {
+            byTime.computeIfAbsent(time, k -> new TreeSet<>(BY_ID)).add(task);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task task to remove
+     */
+    void remove(Task task) {
+        LocalDateTime time = task.getDateTime();
+        if (time == null) {
+            return;
+        }
+
+        TreeSet<Task> tasks = byTime.get(time);
+        if (tasks != null) {
+            tasks.remove(task);
+            if (tasks.isEmpty()) {
+                byTime.remove(time);
+            }
+        }
+    }
+
+    /**
+     * Returns tasks whose date/time lies in a range, earliest first.
+     *
+     * @param from inclusive start, or null for no lower bound
+     * @param to inclusive end, or null for no upper bound
+     * @param limit maximum number of tasks to return
+     * @return matching tasks in time order
+     */
+    List<Task> range(LocalDateTime from, LocalDateTime to, int limit) {
+        NavigableMap<LocalDateTime, TreeSet<Task>> view = byTime;
+
+        if (from != null && to != null) {
+            if (from.isAfter(to)) {
+                return new ArrayList<>();
+            }
+            view = byTime.subMap(from, true, to, true);
+        } else if (from != null) {
+            view = byTime.tailMap(from, true);
+        } else if (to != null) {
+            view = byTime.headMap(to, true);
+        }
+
+        List<Task> result = new ArrayList<>();
+        for (TreeSet<Task> tasks : view.values()) {
+            for (Task task : tasks) {
+                if (result.size() == limit) {
+                    return result;
+                }
+                result.add(task);
+            }
+        }
+        return result;
+    }
+}
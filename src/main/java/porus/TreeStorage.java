@@ -0,0 +1,1349 @@
+package porus;
+
+import porus.task.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Stores a task list as a B+ tree in a file of fixed-size pages, so that
+ * recording a change rewrites a few pages instead of the whole list.
+ * <p>
+ * The tree is ordered by position in the list rather than by a key: each
+ * branch page holds, for each child, its page number and the number of tasks
+ * below it, so the task at a position is found by walking down from the root,
+ * and inserting or removing a task only changes the counts along that path.
+ * Leaf pages hold the tasks' records in the {@link BinaryTaskFile} format.
+ * A record too long to share a leaf with others is kept in a chain of
+ * overflow pages instead.
+ * <p>
+ * Pages are never changed in place. A change copies the leaf it touches and
+ * the branches above it to free pages, and is committed by writing a header
+ * that points at the new root. There are two header pages, written in turn,
+ * each with a generation number and a checksum, so a crash while writing one
+ * leaves the other. The pages of a commit are forced to disk before its header
+ * is written, and a page that a commit frees is only reused once the header
+ * after it is on disk too, so each header on disk points at a whole tree.
+ * Every page carries a checksum; if the newest tree turns out to be damaged,
+ * the list is loaded from the older header, and set aside if both are.
+ * <p>
+ * In sync mode each change is committed as it is recorded. In group mode the
+ * changes of a command are committed together in {@link #awaitDurable()},
+ * which forces the header to disk before returning. Async mode forces nothing
+ * per command: {@link #awaitDurable()} only commits once a second has passed
+ * since the last commit, without forcing the header, and the rest is left to
+ * the commit a long command makes early, {@link #flush()} and
+ * {@link #close()}. A crash may lose the changes of the last second.
+ * <p>
+ * Methods are synchronized, as in server mode commands record their changes
+ * under the list's lock but wait for them to be on disk outside it.
+ */
+public class TreeStorage implements Storage {
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int HEADER_PAGES = 2;
+    private static final byte[] MAGIC = {'P', 'O', 'R', 'T'};
+    private static final byte VERSION = 1;
+    // Magic, version and padding, generation, root, height, size, page count
+    private static final int HEADER_FIELDS_SIZE = 32;
+
+    private static final byte PAGE_LEAF = 1;
+    private static final byte PAGE_BRANCH = 2;
+    private static final byte PAGE_OVERFLOW = 3;
+    // Type and padding, checksum, entry count
+    private static final int CHECKSUM_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int PAGE_HEADER_SIZE = 12;
+
+    private static final int LEAF_CAPACITY = PAGE_SIZE - PAGE_HEADER_SIZE;
+    private static final int MAX_CHILDREN = (PAGE_SIZE - PAGE_HEADER_SIZE) / (2 * Integer.BYTES);
+    private static final int OVERFLOW_CAPACITY = PAGE_SIZE - PAGE_HEADER_SIZE - Integer.BYTES;
+    // Longer records go to overflow pages, so that a full leaf always splits
+    // into two halves that fit
+    private static final int MAX_INLINE_RECORD = LEAF_CAPACITY / 4;
+    private static final short OVERFLOW_CELL = -1;
+    private static final int OVERFLOW_CELL_SIZE = Short.BYTES + 1 + 2 * Integer.BYTES;
+    // A node this much emptier than a full one is merged with a neighbour
+    private static final int MERGE_SHARE = 4;
+    private static final int MAX_DIRTY_PAGES = 1024;
+    // In async mode, how long changes may wait in memory before a commit
+    private static final long ASYNC_COMMIT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private static final String TEXT_SUFFIX = ".txt";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String MIGRATED_SUFFIX = ".bak";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+    private static final String[] NO_DICTIONARY = new String[0];
+
+    private final String filePath;
+
+    private FileChannel channel;
+    private Durability durability = Durability.GROUP;
+    private TaskList.Layout layout = TaskList.Layout.OBJECTS;
+    private boolean isJournaling = true;
+
+    private long generation;
+    private int root;
+    private int height;
+    private int size;
+    private int pageCount = HEADER_PAGES;
+
+    // Branches are few and on every path, so they are kept once read
+    private final Map<Integer, Branch> branches = new HashMap<>();
+    // Nodes changed since the last commit; their pages are not in any tree
+    // on disk yet, so they are changed in place until then
+    private final Map<Integer, Node> dirty = new HashMap<>();
+    private final Set<Integer> fresh = new HashSet<>();
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    private List<Integer> freedNow = new ArrayList<>();
+    private List<Integer> freedLastCommit = new ArrayList<>();
+    private boolean isForced = true;
+    private long lastCommit = System.nanoTime();
+    private boolean isRewriteNeeded;
+    // Messages for the user, kept apart for each thread that caused them
+    private final ThreadLocal<List<String>> notices = ThreadLocal.withInitial(ArrayList::new);
+
+    /**
+     * Creates a TreeStorage object with a given file path.
+     *
+     * @param filePath relative path to data file
+     */
+    public TreeStorage(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Loads every task by walking the tree from the newest whole header.
+     * <p>
+     * If the data file does not exist yet, tasks are migrated once from the
+     * {@link FileStorage} file of the same name.
+     *
+     * @return list of tasks loaded from disk
+     */
+    @Override
+    public synchronized ArrayList<Task> load() {
+        long start = System.nanoTime();
+        ArrayList<Task> tasks = new ArrayList<>();
+        File file = new File(filePath);
+
+        try {
+            if (!file.exists()) {
+                tasks = migrateFileStorage();
+            } else if (file.length() == 0) {
+                startEmpty();
+            } else {
+                tasks = readTree();
+            }
+        } catch (CorruptFileException e) {
+            setAside(e);
+        } catch (IOException e) {
+            report("Error loading data file.");
+            // Nothing in the file is known to be free, so new pages go past its end
+            clear();
+            pageCount = Math.max(HEADER_PAGES, (int) (file.length() / PAGE_SIZE) + 1);
+            root = newLeaf().page;
+        }
+
+        Metrics.record(Metrics.Stage.LOAD, System.nanoTime() - start);
+        return tasks;
+    }
+
+    /**
+     * Opens the task list. Every task is read up front, as by {@link #load()};
+     * later changes only touch the pages that hold them.
+     *
+     * @return task list backed by the data file
+     */
+    @Override
+    public TaskList open() {
+        return new TaskList(load(), layout);
+    }
+
+    /**
+     * Writes a new tree holding the given tasks, with every page full, to a
+     * temporary file, and renames it over the data file once it is synced.
+     *
+     * @param tasks list of tasks to save
+     */
+    @Override
+    public synchronized void save(ArrayList<Task> tasks) {
+        long start = System.nanoTime();
+        File file = new File(filePath);
+        File temp = new File(filePath + TEMP_SUFFIX);
+        long next = generation + 1;
+
+        try {
+            closeChannel();
+            clear();
+            channel = openChannel(temp, true);
+            build(tasks);
+            writeHeader(next);
+            channel.force(false);
+            closeChannel();
+
+            FileStorage.replace(temp.toPath(), file.toPath());
+            generation = next;
+            isForced = true;
+            isRewriteNeeded = false;
+
+        } catch (IOException e) {
+            closeChannel();
+            temp.delete();
+            report("Error saving data file.");
+            isRewriteNeeded = true;
+        }
+
+        Metrics.record(Metrics.Stage.SAVE, System.nanoTime() - start);
+    }
+
+    @Override
+    public synchronized void setJournaling(boolean isJournaling) {
+        this.isJournaling = isJournaling;
+    }
+
+    @Override
+    public synchronized void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+
+    @Override
+    public synchronized void setLayout(TaskList.Layout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Commits the changes recorded since the last commit, forcing the header
+     * to disk as well, in group mode. In async mode this only commits if the
+     * last commit was long enough ago, so that commands do not each force
+     * their pages to disk.
+     */
+    @Override
+    public synchronized void awaitDurable() {
+        if (durability == Durability.GROUP) {
+            commitOrReport(true);
+        } else if (durability == Durability.ASYNC && System.nanoTime() - lastCommit >= ASYNC_COMMIT_INTERVAL) {
+            commitOrReport(false);
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        commitOrReport(true);
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        closeChannel();
+    }
+
+    @Override
+    public List<String> takeNotices() {
+        List<String> taken = new ArrayList<>(notices.get());
+        notices.get().clear();
+        return taken;
+    }
+
+    @Override
+    public synchronized void appendAdd(Task task) {
+        change(() -> insert(size, task));
+    }
+
+    @Override
+    public synchronized void appendInsert(int index, Task task) {
+        change(() -> insert(index, task));
+    }
+
+    @Override
+    public synchronized void appendDelete(int index) {
+        change(() -> delete(index));
+    }
+
+    @Override
+    public synchronized void appendMark(int index, boolean isDone) {
+        change(() -> mark(index, isDone));
+    }
+
+    @Override
+    public synchronized void appendDeleteAll(int[] positions) {
+        change(() -> {
+            for (int i = positions.length - 1; i >= 0; i--) {
+                delete(positions[i]);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void appendMarkAll(int[] positions, boolean isDone) {
+        change(() -> {
+            for (int position : positions) {
+                mark(position, isDone);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void appendInsertAll(int[] positions, List<Task> tasks) {
+        change(() -> {
+            for (int i = 0; i < positions.length; i++) {
+                insert(positions[i], tasks.get(i));
+            }
+        });
+    }
+
+    /**
+     * Commits early once many pages have changed, so that a long command does
+     * not keep them all in memory, and rewrites the whole tree if recording
+     * a change failed earlier.
+     *
+     * @param tasks current list of tasks
+     */
+    @Override
+    public synchronized void compactIfNeeded(TaskList tasks) {
+        if (isRewriteNeeded) {
+            save(tasks.getAll());
+        } else if (dirty.size() >= MAX_DIRTY_PAGES) {
+            commitOrReport(durability != Durability.ASYNC);
+        }
+    }
+
+    /**
+     * Commits every recorded change, or rewrites the whole tree if recording
+     * a change failed earlier.
+     *
+     * @param tasks current list of tasks
+     */
+    @Override
+    public synchronized void compact(TaskList tasks) {
+        if (isRewriteNeeded) {
+            save(tasks.getAll());
+        } else {
+            commitOrReport(true);
+        }
+    }
+
+    /**
+     * Applies a change to the tree, unless changes are not being recorded.
+     * If it fails part way, the tree no longer matches the list, so nothing
+     * more is recorded until the whole list is saved again.
+     */
+    private void change(Change change) {
+        if (!isJournaling || isRewriteNeeded) {
+            return;
+        }
+
+        try {
+            change.apply();
+            if (durability == Durability.SYNC) {
+                commit(true);
+            }
+        } catch (IOException e) {
+            report("Error saving data file.");
+            isRewriteNeeded = true;
+        }
+    }
+
+    private void commitOrReport(boolean isHeaderForced) {
+        if (isRewriteNeeded) {
+            return;
+        }
+
+        try {
+            commit(isHeaderForced);
+        } catch (IOException e) {
+            report("Error saving data file.");
+            isRewriteNeeded = true;
+        }
+    }
+
+    /**
+     * Writes the changed pages, forces them to disk, and then writes the
+     * header that points at the new root into the older header page.
+     */
+    private void commit(boolean isHeaderForced) throws IOException {
+        if (dirty.isEmpty()) {
+            if (isHeaderForced && !isForced) {
+                channel().force(false);
+                isForced = true;
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (Node node : dirty.values()) {
+            writePage(node.page, encode(node));
+        }
+        channel().force(false);
+
+        writeHeader(generation + 1);
+        generation++;
+        if (isHeaderForced) {
+            channel.force(false);
+        }
+        isForced = isHeaderForced;
+
+        for (Node node : dirty.values()) {
+            if (node instanceof Branch) {
+                branches.put(node.page, (Branch) node);
+            }
+        }
+        dirty.clear();
+        fresh.clear();
+        lastCommit = System.nanoTime();
+
+        // The header before this one, which could still point at pages freed
+        // by the last commit, was forced to disk with this commit's pages
+        free.addAll(freedLastCommit);
+        freedLastCommit = freedNow;
+        freedNow = new ArrayList<>();
+
+        Metrics.record(Metrics.Stage.SAVE, System.nanoTime() - start);
+    }
+
+    private void insert(int position, Task task) throws IOException {
+        if (position < 0 || position > size) {
+            throw new IOException("No position " + position + " in the stored list.");
+        }
+
+        Descent path = descend(position, true);
+        Leaf leaf = (Leaf) writable(path.leaf);
+        leaf.insert(path.index, cellOf(task));
+        size++;
+        rebalance(path, leaf);
+    }
+
+    private void delete(int position) throws IOException {
+        if (position < 0 || position >= size) {
+            throw new IOException("No task at position " + position + " in the stored list.");
+        }
+
+        Descent path = descend(position, false);
+        Leaf leaf = (Leaf) writable(path.leaf);
+        releaseCell(leaf.remove(path.index));
+        size--;
+        rebalance(path, leaf);
+    }
+
+    private void mark(int position, boolean isDone) throws IOException {
+        if (position < 0 || position >= size) {
+            throw new IOException("No task at position " + position + " in the stored list.");
+        }
+
+        Descent path = descend(position, false);
+        Leaf leaf = (Leaf) writable(path.leaf);
+        leaf.setDone(path.index, isDone);
+        rebalance(path, leaf);
+    }
+
+    /**
+     * Walks down from the root to the leaf holding a position. When inserting,
+     * a position between two children goes to the end of the first.
+     */
+    private Descent descend(int position, boolean isInsert) throws IOException {
+        Descent path = new Descent(height);
+        Node node = read(root);
+
+        for (int depth = 0; depth < height; depth++) {
+            Branch branch = (Branch) node;
+            int slot = 0;
+            while (slot < branch.size - 1
+                    && (isInsert ? position > branch.counts[slot] : position >= branch.counts[slot])) {
+                position -= branch.counts[slot];
+                slot++;
+            }
+
+            path.branches[depth] = branch;
+            path.slots[depth] = slot;
+            node = read(branch.children[slot]);
+            if (depth + 1 < height && !(node instanceof Branch)) {
+                throw new CorruptFileException("Page " + node.page + " should be a branch.");
+            }
+        }
+
+        if (!(node instanceof Leaf)) {
+            throw new CorruptFileException("Page " + node.page + " should be a leaf.");
+        }
+        path.leaf = (Leaf) node;
+        path.index = position;
+        if (position > path.leaf.count() || !isInsert && position == path.leaf.count()) {
+            throw new CorruptFileException("Task counts in the tree do not add up.");
+        }
+        return path;
+    }
+
+    /**
+     * Carries a changed node up the path it was reached by: each branch above
+     * is copied and pointed at the new page and count of its child, taking in
+     * the child's new sibling if it split, dropping the child if it emptied, and
+     * merging it with a neighbour if it is nearly empty. Finally the root grows
+     * a level if it split, or shrinks while it has a single child.
+     */
+    private void rebalance(Descent path, Node node) throws IOException {
+        Node sibling = node.isOverfull() ? split(node) : null;
+
+        for (int depth = height - 1; depth >= 0; depth--) {
+            Branch parent = (Branch) writable(path.branches[depth]);
+            int slot = path.slots[depth];
+
+            if (node.count() == 0) {
+                parent.remove(slot);
+                release(node.page);
+            } else {
+                parent.set(slot, node.page, node.count());
+                if (sibling != null) {
+                    parent.insert(slot + 1, sibling.page, sibling.count());
+                } else if (node.isUnderfull()) {
+                    mergeNeighbours(parent, slot);
+                }
+            }
+
+            node = parent;
+            sibling = parent.isOverfull() ? split(parent) : null;
+        }
+
+        if (sibling != null) {
+            Branch top = new Branch(allocate());
+            top.insert(0, node.page, node.count());
+            top.insert(1, sibling.page, sibling.count());
+            dirty.put(top.page, top);
+            node = top;
+            height++;
+        }
+
+        while (height > 0 && ((Branch) node).size <= 1) {
+            Branch top = (Branch) node;
+            release(top.page);
+            if (top.size == 0) {
+                node = newLeaf();
+                height = 0;
+            } else {
+                node = read(top.children[0]);
+                height--;
+            }
+        }
+
+        root = node.page;
+    }
+
+    /**
+     * Merges the child at a slot with the neighbour next to it, if the two fit
+     * in one page.
+     */
+    private void mergeNeighbours(Branch parent, int slot) throws IOException {
+        int left = slot > 0 ? slot - 1 : slot;
+        if (left + 1 >= parent.size) {
+            return;
+        }
+
+        Node first = read(parent.children[left]);
+        Node second = read(parent.children[left + 1]);
+        if (!first.canAbsorb(second)) {
+            return;
+        }
+
+        Node merged = writable(first);
+        merged.absorb(second);
+        release(second.page);
+        parent.set(left, merged.page, merged.count());
+        parent.remove(left + 1);
+    }
+
+    /**
+     * Returns a node that may be changed: the node itself if it was changed
+     * since the last commit, and otherwise a copy on a newly allocated page.
+     */
+    private Node writable(Node node) {
+        if (dirty.get(node.page) == node) {
+            return node;
+        }
+
+        Node copy = node.copyTo(allocate());
+        release(node.page);
+        dirty.put(copy.page, copy);
+        return copy;
+    }
+
+    private Node split(Node node) {
+        Node sibling = node.split(allocate());
+        dirty.put(sibling.page, sibling);
+        return sibling;
+    }
+
+    private Leaf newLeaf() {
+        Leaf leaf = new Leaf(allocate());
+        dirty.put(leaf.page, leaf);
+        return leaf;
+    }
+
+    private int allocate() {
+        Integer page = free.poll();
+        int allocated = page != null ? page : pageCount++;
+        fresh.add(allocated);
+        return allocated;
+    }
+
+    /**
+     * Frees a page that the tree no longer uses. A page allocated since the
+     * last commit is free again at once; any other page is still part of a
+     * tree on disk, so it is only reused after the next commit but one.
+     */
+    private void release(int page) {
+        dirty.remove(page);
+        branches.remove(page);
+        if (fresh.remove(page)) {
+            free.add(page);
+        } else {
+            freedNow.add(page);
+        }
+    }
+
+    /**
+     * Frees the overflow pages of a removed record, if it has any.
+     */
+    private void releaseCell(byte[] cell) throws IOException {
+        ByteBuffer stub = ByteBuffer.wrap(cell);
+        if (stub.getShort() != OVERFLOW_CELL) {
+            return;
+        }
+
+        int page = stub.getInt(Short.BYTES + 1);
+        while (page != 0) {
+            ByteBuffer buffer = readPage(page, PAGE_OVERFLOW);
+            release(page);
+            page = buffer.getInt(PAGE_HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Returns the node on a page, decoding and checking it if it is not
+     * in memory.
+     */
+    private Node read(int page) throws IOException {
+        Node node = dirty.get(page);
+        if (node == null) {
+            node = branches.get(page);
+        }
+        if (node == null) {
+            node = decode(page, readPage(page, (byte) 0));
+            if (node instanceof Branch) {
+                branches.put(page, (Branch) node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Encodes a task as a leaf cell: its record after a length, or, for a long
+     * record, its header byte and the first page and length of the rest, which
+     * is written to overflow pages straight away.
+     */
+    private byte[] cellOf(Task task) throws IOException {
+        byte[] record = BinaryTaskFile.encode(task);
+        if (record.length <= MAX_INLINE_RECORD) {
+            return ByteBuffer.allocate(Short.BYTES + record.length)
+                    .putShort((short) record.length).put(record).array();
+        }
+
+        int length = record.length - 1;
+        int[] pages = new int[(length + OVERFLOW_CAPACITY - 1) / OVERFLOW_CAPACITY];
+        for (int i = 0; i < pages.length; i++) {
+            pages[i] = allocate();
+        }
+
+        for (int i = 0; i < pages.length; i++) {
+            int from = 1 + i * OVERFLOW_CAPACITY;
+            int count = Math.min(OVERFLOW_CAPACITY, record.length - from);
+            ByteBuffer buffer = newPage(PAGE_OVERFLOW, count);
+            buffer.putInt(i + 1 < pages.length ? pages[i + 1] : 0).put(record, from, count);
+            writePage(pages[i], buffer);
+        }
+
+        return ByteBuffer.allocate(OVERFLOW_CELL_SIZE).putShort(OVERFLOW_CELL)
+                .put(record[0]).putInt(pages[0]).putInt(length).array();
+    }
+
+    /**
+     * Decodes the task in a leaf cell, reading its overflow pages if it has
+     * any and noting them as used.
+     */
+    private Task taskOf(byte[] cell, BitSet used) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(cell);
+        try {
+            if (buffer.getShort() != OVERFLOW_CELL) {
+                return BinaryTaskFile.decode(buffer, Short.BYTES, NO_DICTIONARY);
+            }
+
+            byte header = buffer.get();
+            int page = buffer.getInt();
+            byte[] record = new byte[1 + buffer.getInt()];
+            record[0] = header;
+
+            int filled = 1;
+            while (filled < record.length) {
+                use(page, used);
+                ByteBuffer overflow = readPage(page, PAGE_OVERFLOW);
+                int count = overflow.getInt(COUNT_OFFSET);
+                if (count <= 0 || count > Math.min(OVERFLOW_CAPACITY, record.length - filled)) {
+                    throw new CorruptFileException("Overflow page " + page + " has a bad length.");
+                }
+                overflow.position(PAGE_HEADER_SIZE + Integer.BYTES).get(record, filled, count);
+                filled += count;
+                page = overflow.getInt(PAGE_HEADER_SIZE);
+            }
+            return BinaryTaskFile.decode(ByteBuffer.wrap(record), 0, NO_DICTIONARY);
+
+        } catch (RuntimeException e) {
+            throw new CorruptFileException("Damaged task record in data file: " + filePath, e);
+        }
+    }
+
+    /**
+     * Reads every task from the tree of the newest header that is whole,
+     * and frees every page that tree does not use.
+     */
+    private ArrayList<Task> readTree() throws IOException {
+        Header[] headers = {readHeader(0), readHeader(1)};
+        if (headers[0] == null || headers[1] != null && headers[1].generation > headers[0].generation) {
+            headers = new Header[] {headers[1], headers[0]};
+        }
+
+        CorruptFileException damage = new CorruptFileException("No valid header in data file: " + filePath);
+        for (Header header : headers) {
+            if (header == null) {
+                continue;
+            }
+
+            clear();
+            generation = header.generation;
+            root = header.root;
+            height = header.height;
+            size = header.size;
+            pageCount = header.pageCount;
+
+            try {
+                ArrayList<Task> tasks = new ArrayList<>(size);
+                BitSet used = new BitSet(pageCount);
+                readSubtree(root, height, tasks, used);
+                if (tasks.size() != size) {
+                    throw new CorruptFileException("Expected " + size + " tasks but found " + tasks.size() + ".");
+                }
+
+                for (int page = used.nextClearBit(HEADER_PAGES); page < pageCount; page = used.nextClearBit(page + 1)) {
+                    free.add(page);
+                }
+                // The header just read must stay on disk before any page it
+                // does not use is reused
+                channel().force(false);
+                return tasks;
+
+            } catch (CorruptFileException e) {
+                damage = e;
+            }
+        }
+
+        throw damage;
+    }
+
+    private void readSubtree(int page, int depth, ArrayList<Task> tasks, BitSet used) throws IOException {
+        use(page, used);
+        Node node = read(page);
+
+        if (depth == 0) {
+            if (!(node instanceof Leaf)) {
+                throw new CorruptFileException("Page " + page + " should be a leaf.");
+            }
+            for (byte[] cell : ((Leaf) node).cells) {
+                tasks.add(taskOf(cell, used));
+            }
+            return;
+        }
+
+        if (!(node instanceof Branch)) {
+            throw new CorruptFileException("Page " + page + " should be a branch.");
+        }
+        Branch branch = (Branch) node;
+        for (int i = 0; i < branch.size; i++) {
+            int before = tasks.size();
+            readSubtree(branch.children[i], depth - 1, tasks, used);
+            if (tasks.size() - before != branch.counts[i]) {
+                throw new CorruptFileException("Task counts in the tree do not add up.");
+            }
+        }
+    }
+
+    /**
+     * Notes that the tree uses a page, which no other part of it may use.
+     */
+    private void use(int page, BitSet used) throws CorruptFileException {
+        if (page < HEADER_PAGES || page >= pageCount || used.get(page)) {
+            throw new CorruptFileException("Page " + page + " is linked from the wrong place.");
+        }
+        used.set(page);
+    }
+
+    /**
+     * Writes a whole tree for the given tasks, filling each leaf and then
+     * each level of branches in turn.
+     */
+    private void build(List<Task> tasks) throws IOException {
+        // Page and task count of each node of the level being built
+        List<int[]> level = new ArrayList<>();
+        Leaf leaf = new Leaf(allocate());
+
+        for (Task task : tasks) {
+            byte[] cell = cellOf(task);
+            if (leaf.bytes + cell.length > LEAF_CAPACITY) {
+                writePage(leaf.page, encode(leaf));
+                level.add(new int[] {leaf.page, leaf.count()});
+                leaf = new Leaf(allocate());
+            }
+            leaf.insert(leaf.count(), cell);
+        }
+        writePage(leaf.page, encode(leaf));
+        level.add(new int[] {leaf.page, leaf.count()});
+
+        height = 0;
+        while (level.size() > 1) {
+            List<int[]> parents = new ArrayList<>();
+            for (int from = 0; from < level.size(); from += MAX_CHILDREN) {
+                Branch branch = new Branch(allocate());
+                for (int[] child : level.subList(from, Math.min(level.size(), from + MAX_CHILDREN))) {
+                    branch.insert(branch.size, child[0], child[1]);
+                }
+                writePage(branch.page, encode(branch));
+                branches.put(branch.page, branch);
+                parents.add(new int[] {branch.page, branch.count()});
+            }
+            level = parents;
+            height++;
+        }
+
+        root = level.get(0)[0];
+        size = tasks.size();
+        fresh.clear();
+    }
+
+    /**
+     * Forgets everything about the tree, before reading or building another.
+     */
+    private void clear() {
+        branches.clear();
+        dirty.clear();
+        fresh.clear();
+        free.clear();
+        freedNow.clear();
+        freedLastCommit.clear();
+        pageCount = HEADER_PAGES;
+        height = 0;
+        size = 0;
+    }
+
+    /**
+     * Starts from an empty tree, which is written on the first commit.
+     */
+    private void startEmpty() {
+        clear();
+        root = newLeaf().page;
+    }
+
+    /**
+     * Moves tasks from the {@link FileStorage} file with the same name into
+     * this file, then renames that file so that the migration only happens once.
+     */
+    private ArrayList<Task> migrateFileStorage() throws IOException {
+        String suffix = Backend.TREE.getSuffix();
+        String basePath = filePath.endsWith(suffix)
+                ? filePath.substring(0, filePath.length() - suffix.length())
+                : filePath;
+        File binaryFile = new File(basePath + Backend.FILE.getSuffix());
+
+        if (basePath.equals(filePath) || !binaryFile.exists() && !new File(basePath + TEXT_SUFFIX).exists()) {
+            channel();
+            startEmpty();
+            return new ArrayList<>();
+        }
+
+        FileStorage previous = new FileStorage(binaryFile.getPath());
+        ArrayList<Task> tasks = previous.load();
+        previous.close();
+        save(tasks);
+
+        if (!isRewriteNeeded) {
+            binaryFile.renameTo(new File(binaryFile.getPath() + MIGRATED_SUFFIX));
+            new File(binaryFile.getPath() + JOURNAL_SUFFIX).delete();
+        }
+        return tasks;
+    }
+
+    /**
+     * Reports a damaged data file and moves it aside, so that the next commit
+     * does not overwrite whatever can still be recovered from it.
+     */
+    private void setAside(CorruptFileException e) {
+        File file = new File(filePath);
+        File aside = new File(filePath + CORRUPT_SUFFIX);
+
+        closeChannel();
+        aside.delete();
+        file.renameTo(aside);
+        startEmpty();
+
+        report("Data file is damaged (" + e.getMessage() + ").");
+        report("It was moved to " + aside.getPath() + " and Porus is starting with an empty list.");
+    }
+
+    /**
+     * Records a message for the user, to be shown by whoever owns the UI.
+     */
+    private void report(String message) {
+        notices.get().add(message);
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = openChannel(new File(filePath), false);
+        }
+        return channel;
+    }
+
+    private static FileChannel openChannel(File file, boolean isTruncated) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        if (isTruncated) {
+            return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Every commit was forced already; nothing is lost
+        }
+        channel = null;
+    }
+
+    /**
+     * Writes the header for a generation into its header page, which is the
+     * one the previous generation did not use.
+     */
+    private void writeHeader(long generation) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_FIELDS_SIZE + Integer.BYTES);
+        buffer.put(MAGIC).put(VERSION).put(new byte[3]).putLong(generation)
+                .putInt(root).putInt(height).putInt(size).putInt(pageCount);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, HEADER_FIELDS_SIZE);
+        buffer.putInt((int) crc.getValue()).flip();
+
+        writeFully(buffer, (generation % HEADER_PAGES) * PAGE_SIZE);
+    }
+
+    /**
+     * Reads the header in a header page, or returns null if it has never
+     * been written or was not written whole.
+     */
+    private Header readHeader(int slot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_FIELDS_SIZE + Integer.BYTES);
+        long position = (long) slot * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel().read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, HEADER_FIELDS_SIZE);
+        byte[] magic = Arrays.copyOf(buffer.array(), MAGIC.length);
+        if (!Arrays.equals(magic, MAGIC) || buffer.get(MAGIC.length) != VERSION
+                || buffer.getInt(HEADER_FIELDS_SIZE) != (int) crc.getValue()) {
+            return null;
+        }
+
+        buffer.position(MAGIC.length + 4);
+        return new Header(buffer.getLong(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+
+    /**
+     * Reads a page and checks it against its checksum and expected type,
+     * where a type of 0 accepts a leaf or a branch.
+     */
+    private ByteBuffer readPage(int page, byte type) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel().read(buffer, position + buffer.position()) < 0) {
+                throw new CorruptFileException("Page " + page + " is past the end of the data file.");
+            }
+        }
+        buffer.clear();
+
+        byte actual = buffer.get(0);
+        if (buffer.getInt(CHECKSUM_OFFSET) != checksum(buffer, page)) {
+            throw new CorruptFileException("Page " + page + " does not match its checksum.");
+        }
+        if (type == 0 ? actual != PAGE_LEAF && actual != PAGE_BRANCH : actual != type) {
+            throw new CorruptFileException("Page " + page + " is not the expected kind of page.");
+        }
+        return buffer;
+    }
+
+    private void writePage(int page, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        buffer.putInt(CHECKSUM_OFFSET, checksum(buffer, page));
+        writeFully(buffer, (long) page * PAGE_SIZE);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        FileChannel channel = channel();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+    }
+
+    /**
+     * Returns the checksum of a page, which covers its number as well, so
+     * that a page written to the wrong place is caught too.
+     */
+    private static int checksum(ByteBuffer page, int number) {
+        CRC32 crc = new CRC32();
+        crc.update(page.array(), 0, CHECKSUM_OFFSET);
+        crc.update(page.array(), COUNT_OFFSET, PAGE_SIZE - COUNT_OFFSET);
+        crc.update(ByteBuffer.allocate(Integer.BYTES).putInt(number).array());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Returns an empty page of the given type and entry count, positioned
+     * where its entries start.
+     */
+    private static ByteBuffer newPage(byte type, int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.put(0, type).putInt(COUNT_OFFSET, count).position(PAGE_HEADER_SIZE);
+        return buffer;
+    }
+
+    private static ByteBuffer encode(Node node) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            ByteBuffer buffer = newPage(PAGE_LEAF, leaf.count());
+            for (byte[] cell : leaf.cells) {
+                buffer.put(cell);
+            }
+            return buffer;
+        }
+
+        Branch branch = (Branch) node;
+        ByteBuffer buffer = newPage(PAGE_BRANCH, branch.size);
+        for (int i = 0; i < branch.size; i++) {
+            buffer.putInt(branch.children[i]).putInt(branch.counts[i]);
+        }
+        return buffer;
+    }
+
+    private static Node decode(int page, ByteBuffer buffer) throws CorruptFileException {
+        int count = buffer.getInt(COUNT_OFFSET);
+        buffer.position(PAGE_HEADER_SIZE);
+
+        try {
+            if (buffer.get(0) == PAGE_LEAF) {
+                Leaf leaf = new Leaf(page);
+                for (int i = 0; i < count; i++) {
+                    int start = buffer.position();
+                    short length = buffer.getShort();
+                    if (length < OVERFLOW_CELL || length == 0) {
+                        throw new CorruptFileException("Leaf page " + page + " has a bad record length.");
+                    }
+
+                    byte[] cell = new byte[length == OVERFLOW_CELL ? OVERFLOW_CELL_SIZE : Short.BYTES + length];
+                    buffer.position(start).get(cell);
+                    leaf.insert(i, cell);
+                }
+                return leaf;
+            }
+
+            if (count < 0 || count > MAX_CHILDREN) {
+                throw new CorruptFileException("Branch page " + page + " has a bad child count.");
+            }
+            Branch branch = new Branch(page);
+            for (int i = 0; i < count; i++) {
+                branch.insert(i, buffer.getInt(), buffer.getInt());
+            }
+            return branch;
+
+        } catch (RuntimeException e) {
+            throw new CorruptFileException("Page " + page + " cannot be decoded.", e);
+        }
+    }
+
+    /**
+     * A change to the tree, applied by {@link #change(Change)}.
+     */
+    private interface Change {
+        void apply() throws IOException;
+    }
+
+    /**
+     * The contents of a header page.
+     */
+    private static final class Header {
+        private final long generation;
+        private final int root;
+        private final int height;
+        private final int size;
+        private final int pageCount;
+
+        Header(long generation, int root, int height, int size, int pageCount) {
+            this.generation = generation;
+            this.root = root;
+            this.height = height;
+            this.size = size;
+            this.pageCount = pageCount;
+        }
+    }
+
+    /**
+     * The branches walked through to reach a leaf, the slot taken in each,
+     * and the position reached in the leaf.
+     */
+    private static final class Descent {
+        private final Branch[] branches;
+        private final int[] slots;
+        private Leaf leaf;
+        private int index;
+
+        Descent(int height) {
+            branches = new Branch[height];
+            slots = new int[height];
+        }
+    }
+
+    /**
+     * A page of the tree, decoded.
+     */
+    private abstract static class Node {
+        final int page;
+
+        Node(int page) {
+            this.page = page;
+        }
+
+        /** Returns the number of tasks in this node's subtree. */
+        abstract int count();
+
+        /** Returns whether the node no longer fits its page and must split. */
+        abstract boolean isOverfull();
+
+        /** Returns whether the node is empty enough to merge with a neighbour. */
+        abstract boolean isUnderfull();
+
+        /** Returns whether this node and the next one fit in one page. */
+        abstract boolean canAbsorb(Node next);
+
+        /** Appends the entries of the next node to this one. */
+        abstract void absorb(Node next);
+
+        /** Moves the second half of the entries to a new node on the given page. */
+        abstract Node split(int page);
+
+        /** Returns a copy of this node on another page. */
+        abstract Node copyTo(int page);
+    }
+
+    /**
+     * A leaf page: one cell per task, in list order.
+     */
+    private static final class Leaf extends Node {
+        private final ArrayList<byte[]> cells;
+        private int bytes;
+
+        Leaf(int page) {
+            this(page, new ArrayList<>());
+        }
+
+        private Leaf(int page, ArrayList<byte[]> cells) {
+            super(page);
+            this.cells = cells;
+            for (byte[] cell : cells) {
+                bytes += cell.length;
+            }
+        }
+
+        void insert(int index, byte[] cell) {
+            cells.add(index, cell);
+            bytes += cell.length;
+        }
+
+        byte[] remove(int index) {
+            byte[] cell = cells.remove(index);
+            bytes -= cell.length;
+            return cell;
+        }
+
+        /**
+         * Changes the done flag in a cell's record header, which is the byte
+         * after the length whether or not the record overflows.
+         */
+        void setDone(int index, boolean isDone) {
+            byte[] cell = cells.get(index).clone();
+            cell[Short.BYTES] = BinaryTaskFile.withDone(cell[Short.BYTES], isDone);
+            cells.set(index, cell);
+        }
+
+        @Override
+        int count() {
+            return cells.size();
+        }
+
+        @Override
+        boolean isOverfull() {
+            return bytes > LEAF_CAPACITY;
+        }
+
+        @Override
+        boolean isUnderfull() {
+            return bytes < LEAF_CAPACITY / MERGE_SHARE;
+        }
+
+        @Override
+        boolean canAbsorb(Node next) {
+            return bytes + ((Leaf) next).bytes <= LEAF_CAPACITY;
+        }
+
+        @Override
+        void absorb(Node next) {
+            for (byte[] cell : ((Leaf) next).cells) {
+                insert(cells.size(), cell);
+            }
+        }
+
+        @Override
+        Node split(int page) {
+            int kept = 0;
+            int keptBytes = 0;
+            while (keptBytes < bytes / 2) {
+                keptBytes += cells.get(kept++).length;
+            }
+
+            List<byte[]> moved = cells.subList(kept, cells.size());
+            Leaf sibling = new Leaf(page, new ArrayList<>(moved));
+            moved.clear();
+            bytes = keptBytes;
+            return sibling;
+        }
+
+        @Override
+        Node copyTo(int page) {
+            return new Leaf(page, new ArrayList<>(cells));
+        }
+    }
+
+    /**
+     * A branch page: the page of each child and the number of tasks below it.
+     */
+    private static final class Branch extends Node {
+        private final int[] children = new int[MAX_CHILDREN + 1];
+        private final int[] counts = new int[MAX_CHILDREN + 1];
+        private int size;
+
+        Branch(int page) {
+            super(page);
+        }
+
+        void insert(int slot, int child, int count) {
+            System.arraycopy(children, slot, children, slot + 1, size - slot);
+            System.arraycopy(counts, slot, counts, slot + 1, size - slot);
+            set(slot, child, count);
+            size++;
+        }
+
+        void set(int slot, int child, int count) {
+            children[slot] = child;
+            counts[slot] = count;
+        }
+
+        void remove(int slot) {
+            System.arraycopy(children, slot + 1, children, slot, size - slot - 1);
+            System.arraycopy(counts, slot + 1, counts, slot, size - slot - 1);
+            size--;
+        }
+
+        @Override
+        int count() {
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                count += counts[i];
+            }
+            return count;
+        }
+
+        @Override
+        boolean isOverfull() {
+            return size > MAX_CHILDREN;
+        }
+
+        @Override
+        boolean isUnderfull() {
+            return size < MAX_CHILDREN / MERGE_SHARE;
+        }
+
+        @Override
+        boolean canAbsorb(Node next) {
+            return size + ((Branch) next).size <= MAX_CHILDREN;
+        }
+
+        @Override
+        void absorb(Node next) {
+            Branch branch = (Branch) next;
+            for (int i = 0; i < branch.size; i++) {
+                insert(size, branch.children[i], branch.counts[i]);
+            }
+        }
+
+        @Override
+        Node split(int page) {
+            Branch sibling = new Branch(page);
+            int kept = size / 2;
+            for (int i = kept; i < size; i++) {
+                sibling.insert(sibling.size, children[i], counts[i]);
+            }
+            size = kept;
+            return sibling;
+        }
+
+        @Override
+        Node copyTo(int page) {
+            Branch copy = new Branch(page);
+            System.arraycopy(children, 0, copy.children, 0, size);
+            System.arraycopy(counts, 0, copy.counts, 0, size);
+            copy.size = size;
+            return copy;
+        }
+    }
+}
@@ -1,22 +1,49 @@
 package porus;
 import porus.task.Task;
 
-import java.util.ArrayList;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
 import java.util.Scanner;
 
 /**
  * Handles all user interaction (input and output).
  * Responsible only for printing and reading commands.
+ * <p>
+ * Output is rendered into a reusable buffer and only written out when
+ * {@link #flush()} is called, once per command response, instead of
+ * going through {@code System.out} line by line.
  */
 public class UI {
 
     private static final String DIVIDER =
             "----------------------------------------------------------------------------------------------------";
 
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final int SUMMARY_LIMIT = 10;
+
     private final Scanner scanner;
+    private final Writer out;
+    private final StringBuilder buffer = new StringBuilder(OUTPUT_BUFFER_SIZE);
+    private boolean isFlushDeferred;
 
     public UI() {
-        scanner = new Scanner(System.in);
+        this(System.in, System.out);
+    }
+
+    /**
+     * Creates a UI that reads commands from and writes responses to the given streams.
+     *
+     * @param in source of user commands
+     * @param out destination of responses
+     */
+    public UI(InputStream in, OutputStream out) {
+        scanner = new Scanner(in);
+        this.out = new BufferedWriter(new OutputStreamWriter(out), OUTPUT_BUFFER_SIZE);
     }
 
     /**
@@ -26,6 +53,41 @@ public class UI {
         return scanner.nextLine().trim();
     }
 
+    /**
+     * Writes everything rendered since the last flush to the output.
+     */
+    public void flush() {
+        long start = System.nanoTime();
+        try {
+            out.append(buffer);
+            out.flush();
+        } catch (IOException e) {
+            // Nowhere left to report a broken output stream
+        }
+        buffer.setLength(0);
+        Metrics.record(Metrics.Stage.UI, System.nanoTime() - start);
+    }
+
+    /**
+     * Flushes only once enough output has built up. Used when responses
+     * do not need to be seen straight away, such as in batch mode.
+     */
+    public void flushIfFull() {
+        if (!isFlushDeferred && buffer.length() >= OUTPUT_BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Keeps all output in the buffer until {@link #flush()} is called, even
+     * a very long list. Used where responses are rendered while holding a
+     * lock, so that writing to a slow reader happens after the lock is
+     * released instead of holding it up.
+     */
+    public void deferFlushes() {
+        isFlushDeferred = true;
+    }
+
     /**
      * Displays the greeting message and logo.
      */
@@ -37,55 +99,140 @@ public class UI {
                         + "|  __/ | |_| | |  _ < | |_| |   ___) |\n"
                         + "|_|     \\___/  |_| \\_\\ \\___/   |____/\n";
 
-        System.out.println("Greetings! I'm");
-        System.out.println(logo);
-        System.out.println("(Personally Operating Real Understanding Service)");
-        System.out.println("How may I assist you today?");
-        System.out.println(DIVIDER);
+        println("Greetings! I'm");
+        println(logo);
+        println("(Personally Operating Real Understanding Service)");
+        println("How may I assist you today?");
+        println(DIVIDER);
     }
 
     /**
      * Displays goodbye message.
      */
     public void showGoodbye() {
-        System.out.println(DIVIDER);
-        System.out.println("Farewell. Glad to be of service!");
-        System.out.println(DIVIDER);
+        println(DIVIDER);
+        println("Farewell. Glad to be of service!");
+        println(DIVIDER);
     }
 
     /**
-     * Displays task list.
+     * Starts displaying the task list. Rows are then added one at a time
+     * with {@link #showListItem(int, Task)} and closed with {@link #showListEnd(String)}.
      */
-    public void showList(ArrayList<Task> tasks) {
-        System.out.println(DIVIDER);
-        System.out.println("Bretheren, please complete thy tasks");
+    public void showListStart() {
+        println(DIVIDER);
+        println("Bretheren, please complete thy tasks");
+    }
 
-        if (tasks.isEmpty()) {
-            System.out.println("  (No quests assigned yet.)");
-            System.out.println(DIVIDER);
-            return;
+    /**
+     * Displays one row of the task list.
+     * Very long lists are written out in blocks as they are rendered.
+     *
+     * @param number 1-based position of the task in the list
+     * @param task task to display
+     */
+    public void showListItem(int number, Task task) {
+        appendTask(number, task);
+        flushIfFull();
+    }
+
+    /**
+     * Finishes displaying the task list.
+     *
+     * @param emptyMessage line to show if no rows were displayed, or null if there were
+     */
+    public void showListEnd(String emptyMessage) {
+        if (emptyMessage != null) {
+            println(emptyMessage);
         }
+        println(DIVIDER);
+    }
+
+    /**
+     * Displays a numbered list of matching tasks under a heading.
+     */
+    public void showMatches(String heading, List<Task> tasks) {
+        println(DIVIDER);
+        println(heading);
 
         for (int i = 0; i < tasks.size(); i++) {
-            System.out.println("  " + (i + 1) + "." + tasks.get(i));
+            appendTask(i + 1, tasks.get(i));
+        }
+
+        if (tasks.isEmpty()) {
+            println("  No matching tasks found.");
+        }
+
+        println(DIVIDER);
+    }
+
+    /**
+     * Displays a heading followed by the first few of the given tasks,
+     * how many more were left out, and any closing lines.
+     */
+    public void showTaskSummary(String heading, List<Task> tasks, String... footer) {
+        println(DIVIDER);
+        println(heading);
+
+        int shown = Math.min(tasks.size(), SUMMARY_LIMIT);
+        for (int i = 0; i < shown; i++) {
+            println("  " + tasks.get(i));
+        }
+
+        if (tasks.size() > shown) {
+            println("  ...and " + (tasks.size() - shown) + " more.");
+        }
+
+        for (String line : footer) {
+            println(line);
         }
 
-        System.out.println(DIVIDER);
+        println(DIVIDER);
+    }
+
+    /**
+     * Displays a response made of the given lines between dividers.
+     */
+    public void showMessage(String... lines) {
+        println(DIVIDER);
+        for (String line : lines) {
+            println(line);
+        }
+        println(DIVIDER);
+    }
+
+    /**
+     * Displays messages reported by storage, if there are any.
+     *
+     * @param notices messages from {@link Storage#takeNotices()}
+     */
+    public void showNotices(List<String> notices) {
+        if (!notices.isEmpty()) {
+            showMessage(notices.toArray(new String[0]));
+        }
     }
 
     /**
      * Displays error messages.
      */
     public void showError(String message) {
-        System.out.println(DIVIDER);
-        System.out.println(message);
-        System.out.println(DIVIDER);
+        println(DIVIDER);
+        println(message);
+        println(DIVIDER);
     }
 
     /**
      * Displays a divider line.
      */
     public void showLine() {
-        System.out.println(DIVIDER);
+        println(DIVIDER);
+    }
+
+    private void appendTask(int number, Task task) {
+        buffer.append("  ").append(number).append('.').append(task).append(System.lineSeparator());
+    }
+
+    private void println(String line) {
+        buffer.append(line).append(System.lineSeparator());
     }
-}
\ No newline at end of file
+}
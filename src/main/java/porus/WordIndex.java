@@ -0,0 +1,521 @@
+package porus;
+
+import porus.task.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from lower-cased description words to the tasks containing them.
+ * <p>
+ * Words are split on whitespace exactly like the original find command did,
+ * so a lookup returns the same tasks a full scan would, without touching
+ * tasks that do not contain the word. Posting lists are ordered by task id,
+ * which is also list order, so results come back in the order they are listed.
+ * <p>
+ * The words are kept in sorted order, which makes the index work like a trie
+ * over its words: a query word ending in {@code *} matches every word with
+ * that prefix, found as one range of the map. A query word ending in
+ * {@code ~} (or {@code ~1}, {@code ~2}) matches words within that many typing
+ * edits, found by walking the sorted words while reusing the edit distance
+ * of the prefix they share with the previous word, and jumping past every
+ * word with a prefix that is already too far off.
+ * <p>
+ * Results are ranked by how closely they match: each prefix match adds 1,
+ * and each fuzzy match adds its edit distance. Tasks that match equally well
+ * stay in list order.
+ */
+class WordIndex {
+
+    private static final String OR_DELIMITER = "\\|";
+    private static final Comparator<Task> BY_ID = Comparator.comparingInt(Task::getId);
+
+    private static final char PREFIX_MARK = '*';
+    private static final char FUZZY_MARK = '~';
+    private static final int MAX_EDITS = 2;
+    private static final int SHORT_WORD = 4;
+    private static final int PREFIX_PENALTY = 1;
+
+    private final TreeMap<String, TreeSet<Task>> postings = new TreeMap<>();
+
+    /**
+     * Adds every word of the task's description to the index.
+     *
+     * @param task task to index
+     */
+    void add(Task task) {
+        for (String word : tokenize(task.getDescription())) {
+            postings.computeIfAbsent(word, k -> new TreeSet<>(BY_ID)).add(task);
+        }
+    }
+
+    /**
+     * Removes every word of the task's description from the index.
+     *
+     * @param task task to remove
+     */
+    void remove(Task task) {
+        for (String word : tokenize(task.getDescription())) {
+            TreeSet<Task> posting = postings.get(word);
+            if (posting == null) {
+                continue;
+            }
+            posting.remove(task);
+            if (posting.isEmpty()) {
+                postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Finds tasks matching a query.
+     * Words within a group must all match (AND); groups separated by
+     * {@code |} are alternatives (OR). Words may end in {@code *} for a
+     * prefix match or {@code ~} for a fuzzy match.
+     *
+     * @param query search query, e.g. "read book | return book"
+     * @return matching tasks, closest matches first and otherwise in list order,
+     *         without duplicates
+     */
+    List<Task> search(String query) {
+        String[] groups = query.split(OR_DELIMITER);
+        Matches matches = new Matches(0);
+
+        for (String group : groups) {
+            List<List<Expansion>> terms = expandAll(tokenize(group));
+            if (terms.isEmpty()) {
+                continue;
+            }
+
+            if (isExact(terms)) {
+                List<Task> found = intersect(terms);
+                if (groups.length == 1) {
+                    // Every task matches equally well and is already in list order
+                    return found;
+                }
+                matches = matches.or(Matches.of(found, penaltyOf(terms)));
+            } else {
+                matches = matches.or(intersectExpanded(terms));
+            }
+        }
+
+        return matches.ranked();
+    }
+
+    /**
+     * Expands each query word into the indexed words it matches.
+     *
+     * @return one list of expansions per query word, or an empty list if
+     *         some query word matches nothing
+     */
+    private List<List<Expansion>> expandAll(String[] words) {
+        List<List<Expansion>> terms = new ArrayList<>();
+
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            List<Expansion> expansions = expand(word);
+            if (expansions.isEmpty()) {
+                return new ArrayList<>();
+            }
+            terms.add(expansions);
+        }
+        return terms;
+    }
+
+    private static boolean isExact(List<List<Expansion>> terms) {
+        for (List<Expansion> term : terms) {
+            if (term.size() != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int penaltyOf(List<List<Expansion>> terms) {
+        int penalty = 0;
+        for (List<Expansion> term : terms) {
+            penalty += term.get(0).penalty;
+        }
+        return penalty;
+    }
+
+    /**
+     * Intersects query words that each match a single indexed word, by
+     * walking the shortest posting list and probing the others.
+     *
+     * @return tasks in every posting list, in list order
+     */
+    private static List<Task> intersect(List<List<Expansion>> terms) {
+        terms.sort(Comparator.comparingInt(term -> term.get(0).tasks.size()));
+        List<Task> found = new ArrayList<>();
+
+        for (Task task : terms.get(0).get(0).tasks) {
+            boolean isInAll = true;
+            for (int i = 1; i < terms.size() && isInAll; i++) {
+                isInAll = terms.get(i).get(0).tasks.contains(task);
+            }
+            if (isInAll) {
+                found.add(task);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Intersects query words that may each match several indexed words,
+     * starting from the word with the fewest tasks. Each further word is
+     * merged in step if that is cheaper than probing its posting lists for
+     * every task found so far.
+     */
+    private static Matches intersectExpanded(List<List<Expansion>> terms) {
+        terms.sort(Comparator.comparingLong(WordIndex::sizeOf));
+        Matches found = union(terms.get(0));
+
+        for (int i = 1; i < terms.size() && found.size > 0; i++) {
+            List<Expansion> term = terms.get(i);
+            if ((long) found.size * term.size() < sizeOf(term)) {
+                found = found.probe(term);
+            } else {
+                found = found.and(union(term));
+            }
+        }
+        return found;
+    }
+
+    private static long sizeOf(List<Expansion> term) {
+        long size = 0;
+        for (Expansion expansion : term) {
+            size += expansion.tasks.size();
+        }
+        return size;
+    }
+
+    /**
+     * Merges the posting lists a query word expanded to, which are each in
+     * list order, keeping the lowest penalty for a task found more than once.
+     */
+    private static Matches union(List<Expansion> expansions) {
+        PriorityQueue<PostingCursor> cursors = new PriorityQueue<>();
+        int total = 0;
+        for (Expansion expansion : expansions) {
+            cursors.add(new PostingCursor(expansion));
+            total += expansion.tasks.size();
+        }
+
+        Matches merged = new Matches(total);
+        while (!cursors.isEmpty()) {
+            PostingCursor cursor = cursors.poll();
+            merged.add(cursor.task, cursor.penalty);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Returns the indexed words a query word matches, with their penalties.
+     */
+    private List<Expansion> expand(String word) {
+        List<Expansion> expansions = new ArrayList<>();
+        int fuzzyMark = word.lastIndexOf(FUZZY_MARK);
+
+        if (word.length() > 1 && word.charAt(word.length() - 1) == PREFIX_MARK) {
+            String prefix = word.substring(0, word.length() - 1);
+            for (Map.Entry<String, TreeSet<Task>> entry : postings.tailMap(prefix).entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                int penalty = entry.getKey().length() == prefix.length() ? 0 : PREFIX_PENALTY;
+                expansions.add(new Expansion(entry.getValue(), penalty));
+            }
+        } else if (fuzzyMark > 0 && isEditCount(word.substring(fuzzyMark + 1))) {
+            String target = word.substring(0, fuzzyMark);
+            String edits = word.substring(fuzzyMark + 1);
+            int maxEdits = edits.isEmpty()
+                    ? (target.length() <= SHORT_WORD ? 1 : MAX_EDITS)
+                    : Integer.parseInt(edits);
+            collectFuzzy(target, maxEdits, expansions);
+        } else {
+            TreeSet<Task> posting = postings.get(word);
+            if (posting != null) {
+                expansions.add(new Expansion(posting, 0));
+            }
+        }
+
+        return expansions;
+    }
+
+    private static boolean isEditCount(String text) {
+        return text.isEmpty() || (text.length() == 1 && text.charAt(0) >= '0' && text.charAt(0) - '0' <= MAX_EDITS);
+    }
+
+    /**
+     * Adds every indexed word within {@code maxEdits} edits of {@code target}.
+     * <p>
+     * {@code rows[d]} holds the edit distances between the first {@code d}
+     * letters of the current word and each prefix of the target, so words
+     * sharing a prefix with the previous word only compute the rows after it.
+     * Once every entry of a row exceeds {@code maxEdits}, no word with that
+     * prefix can match, and the walk jumps to the first word after them.
+     */
+    private void collectFuzzy(String target, int maxEdits, List<Expansion> expansions) {
+        int width = target.length() + 1;
+        int[][] rows = new int[16][];
+        rows[0] = new int[width];
+        for (int j = 0; j < width; j++) {
+            rows[0][j] = j;
+        }
+
+        String previous = "";
+        String word = postings.isEmpty() ? null : postings.firstKey();
+
+        while (word != null) {
+            int depth = commonPrefix(previous, word);
+            boolean isPruned = false;
+
+            while (depth < word.length()) {
+                depth++;
+                if (depth == rows.length) {
+                    rows = Arrays.copyOf(rows, depth * 2);
+                }
+                if (nextRow(rows, depth, word.charAt(depth - 1), target) > maxEdits) {
+                    isPruned = true;
+                    break;
+                }
+            }
+
+            if (isPruned) {
+                previous = word.substring(0, depth);
+                word = postings.higherKey(previous + Character.MAX_VALUE);
+                continue;
+            }
+
+            int distance = rows[word.length()][target.length()];
+            if (distance <= maxEdits) {
+                expansions.add(new Expansion(postings.get(word), distance));
+            }
+            previous = word;
+            word = postings.higherKey(word);
+        }
+    }
+
+    /**
+     * Fills in the row of edit distances for one more letter of a word,
+     * and returns the smallest distance in it.
+     */
+    private static int nextRow(int[][] rows, int depth, char letter, String target) {
+        int[] above = rows[depth - 1];
+        int[] row = rows[depth];
+        if (row == null) {
+            row = new int[above.length];
+            rows[depth] = row;
+        }
+
+        row[0] = depth;
+        int smallest = depth;
+        for (int j = 1; j < row.length; j++) {
+            int substitute = above[j - 1] + (target.charAt(j - 1) == letter ? 0 : 1);
+            row[j] = Math.min(substitute, Math.min(above[j], row[j - 1]) + 1);
+            smallest = Math.min(smallest, row[j]);
+        }
+        return smallest;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Splits text into lower-cased words.
+     */
+    private static String[] tokenize(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return new String[0];
+        }
+        return trimmed.toLowerCase().split("\\s+");
+    }
+
+    /**
+     * An indexed word's tasks, and the penalty for matching the query
+     * word through it.
+     */
+    private static final class Expansion {
+        private final TreeSet<Task> tasks;
+        private final int penalty;
+
+        Expansion(TreeSet<Task> tasks, int penalty) {
+            this.tasks = tasks;
+            this.penalty = penalty;
+        }
+    }
+
+    /**
+     * Walks one posting list while merging several, ordered by the task it
+     * is at and then by penalty.
+     */
+    private static final class PostingCursor implements Comparable<PostingCursor> {
+        private final Iterator<Task> tasks;
+        private final int penalty;
+        private Task task;
+
+        PostingCursor(Expansion expansion) {
+            tasks = expansion.tasks.iterator();
+            penalty = expansion.penalty;
+            task = tasks.next();
+        }
+
+        boolean advance() {
+            task = tasks.hasNext() ? tasks.next() : null;
+            return task != null;
+        }
+
+        @Override
+        public int compareTo(PostingCursor other) {
+            int byId = Integer.compare(task.getId(), other.task.getId());
+            return byId != 0 ? byId : Integer.compare(penalty, other.penalty);
+        }
+    }
+
+    /**
+     * Matched tasks in list order, each with the penalty of its closest match.
+     * Combining two sets walks both in step, so no hashing or sorting is needed
+     * until the final ranking, which is a counting sort on the small penalties.
+     */
+    private static final class Matches {
+        private Task[] tasks;
+        private int[] penalties;
+        private int size;
+
+        Matches(int capacity) {
+            tasks = new Task[capacity];
+            penalties = new int[capacity];
+        }
+
+        static Matches of(List<Task> found, int penalty) {
+            Matches matches = new Matches(found.size());
+            for (Task task : found) {
+                matches.add(task, penalty);
+            }
+            return matches;
+        }
+
+        /**
+         * Appends a task, which must not come before the last one in list
+         * order. A task equal to the last one only lowers its penalty.
+         */
+        void add(Task task, int penalty) {
+            if (size > 0 && tasks[size - 1] == task) {
+                penalties[size - 1] = Math.min(penalties[size - 1], penalty);
+                return;
+            }
+            if (size == tasks.length) {
+                int capacity = Math.max(16, size * 2);
+                tasks = Arrays.copyOf(tasks, capacity);
+                penalties = Arrays.copyOf(penalties, capacity);
+            }
+            tasks[size] = task;
+            penalties[size++] = penalty;
+        }
+
+        /**
+         * Returns the tasks in both sets, with their penalties added up.
+         */
+        Matches and(Matches other) {
+            Matches both = new Matches(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                int order = BY_ID.compare(tasks[i], other.tasks[j]);
+                if (order == 0) {
+                    both.add(tasks[i], penalties[i] + other.penalties[j]);
+                }
+                if (order <= 0) {
+                    i++;
+                }
+                if (order >= 0) {
+                    j++;
+                }
+            }
+            return both;
+        }
+
+        /**
+         * Returns the tasks in this set that are also in one of the posting
+         * lists, adding the lowest penalty of those that hold each task.
+         */
+        Matches probe(List<Expansion> expansions) {
+            Matches both = new Matches(size);
+            for (int i = 0; i < size; i++) {
+                int best = Integer.MAX_VALUE;
+                for (Expansion expansion : expansions) {
+                    if (expansion.penalty < best && expansion.tasks.contains(tasks[i])) {
+                        best = expansion.penalty;
+                    }
+                }
+                if (best != Integer.MAX_VALUE) {
+                    both.add(tasks[i], penalties[i] + best);
+                }
+            }
+            return both;
+        }
+
+        /**
+         * Returns the tasks in either set, with the lower penalty of a task in both.
+         */
+        Matches or(Matches other) {
+            Matches either = new Matches(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && BY_ID.compare(tasks[i], other.tasks[j]) <= 0)) {
+                    either.add(tasks[i], penalties[i]);
+                    i++;
+                } else {
+                    either.add(other.tasks[j], other.penalties[j]);
+                    j++;
+                }
+            }
+            return either;
+        }
+
+        /**
+         * Returns the tasks by penalty, keeping list order among equal penalties.
+         */
+        List<Task> ranked() {
+            int highest = 0;
+            for (int i = 0; i < size; i++) {
+                highest = Math.max(highest, penalties[i]);
+            }
+
+            int[] starts = new int[highest + 2];
+            for (int i = 0; i < size; i++) {
+                starts[penalties[i] + 1]++;
+            }
+            for (int p = 1; p < starts.length; p++) {
+                starts[p] += starts[p - 1];
+            }
+
+            Task[] ranked = new Task[size];
+            for (int i = 0; i < size; i++) {
+                ranked[starts[penalties[i]]++] = tasks[i];
+            }
+            return new ArrayList<>(Arrays.asList(ranked));
+        }
+    }
+}
@@ -6,39 +6,72 @@ import porus.task.Task;
 /**
  * Represents a command that adds a new task to the task list.
  */
-public class AddCommand extends Command {
+public class AddCommand extends Command implements Undoable {
+
+    private static final int END = -1;
 
     private final Task task;
+    private final int index;
+    private int position;
 
     /**
-     * Creates an AddCommand to add the specified task.
+     * Creates an AddCommand to add the specified task at the end of the list.
      *
      * @param task The task to be added to the task list.
      */
     public AddCommand(Task task) {
+        this(task, END);
+    }
+
+    /**
+     * Creates an AddCommand to put a task back at the given position,
+     * as when undoing a delete.
+     *
+     * @param task The task to be added to the task list.
+     * @param index The position to insert the task at.
+     */
+    AddCommand(Task task, int index) {
         this.task = task;
+        this.index = index;
     }
 
     /**
      * Executes the add operation by adding the task to the list
-     * and saving the updated list to storage.
+     * and recording the change in storage.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
      * @param storage The storage handler for persistence.
      * @return false since this command does not terminate the program.
+     * @throws PorusException If the insert position is invalid.
      */
     @Override
-    public boolean execute(TaskList tasks, UI ui, Storage storage) {
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
 
-        tasks.add(task);
-        storage.save(tasks.getAll());
+        if (index == END) {
+            position = tasks.size();
+            tasks.add(task);
+            storage.appendAdd(task);
+        } else {
+            position = index;
+            tasks.insert(index, task);
+            storage.appendInsert(index, task);
+        }
+        tasks.getHistory().record(this);
+        storage.compactIfNeeded(tasks);
 
-        ui.showLine();
-        System.out.println("  added: " + task);
-        System.out.println("  Now you have " + tasks.size() + " tasks in the list.");
-        ui.showLine();
+        ui.showMessage("  added: " + task,
+                "  Now you have " + tasks.size() + " tasks in the list.");
 
         return false;
     }
+
+    /**
+     * Returns a command that deletes the task again.
+     */
+    @Override
+    public Undoable inverse() {
+        return new DeleteCommand(position);
+    }
 }
\ No newline at end of file
@@ -8,16 +8,35 @@ import porus.*;
 public class ByeCommand extends Command {
 
     /**
-     * Executes the exit operation by displaying a goodbye message.
+     * Executes the exit operation by waiting for queued journal records
+     * to reach the disk, folding the journal into a fresh snapshot
+     * and displaying a goodbye message.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
-     * @param storage The storage handler.
+     * @param storage The storage handler for persistence.
      * @return true to indicate that the program should terminate.
      */
     @Override
     public boolean execute(TaskList tasks, UI ui, Storage storage) {
+        storage.flush();
+        storage.compact(tasks);
         ui.showGoodbye();
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Executes the exit operation for every loaded list, folding each one's
+     * journal into a fresh snapshot before displaying a goodbye message.
+     *
+     * @param lists The registry of named lists.
+     * @param ui The user interface handler.
+     * @return true to indicate that the program should terminate.
+     */
+    @Override
+    public boolean execute(ListRegistry lists, UI ui) {
+        lists.close();
+        ui.showGoodbye();
+        return true;
+    }
+}
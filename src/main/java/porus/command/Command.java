@@ -1,5 +1,7 @@
 package porus.command;
 
+import porus.ListRegistry;
+import porus.Metrics;
 import porus.PorusException;
 import porus.Storage;
 import porus.TaskList;
@@ -10,10 +12,87 @@ import porus.UI;
  */
 public abstract class Command {
 
+    private static final String CLASS_SUFFIX = "Command";
+
+    private final String name = nameOf(getClass());
+
     /**
      * Executes the command.
      * @return true if program should exit
      */
     public abstract boolean execute(TaskList tasks, UI ui, Storage storage)
             throws PorusException;
-}
\ No newline at end of file
+
+    /**
+     * Executes the command against the current list of a registry of named
+     * lists. Commands that work on one list run against the current list;
+     * commands that choose or show lists override this.
+     * @return true if program should exit
+     */
+    public boolean execute(ListRegistry lists, UI ui) throws PorusException {
+        return execute(lists.current(), ui, lists.currentStorage());
+    }
+
+    /**
+     * Executes the command and records how long it took, and whether it
+     * failed, in {@link Metrics} under the command's name.
+     * @return true if program should exit
+     */
+    public final boolean run(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        return timed(() -> execute(tasks, ui, storage));
+    }
+
+    /**
+     * Executes the command against a registry of named lists, recording
+     * its metrics like {@link #run(TaskList, UI, Storage)}.
+     * @return true if program should exit
+     */
+    public final boolean run(ListRegistry lists, UI ui) throws PorusException {
+        return timed(() -> execute(lists, ui));
+    }
+
+    private boolean timed(Execution execution) throws PorusException {
+        long start = System.nanoTime();
+        boolean isError = true;
+        try {
+            boolean isExit = execution.execute();
+            isError = false;
+            return isExit;
+        } finally {
+            Metrics.recordCommand(name, System.nanoTime() - start, isError);
+        }
+    }
+
+    /**
+     * Returns the name the command's metrics are kept under: its class name
+     * without the "Command" suffix, in lower case, such as "list".
+     * @return command name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether the command only reads the task list and storage,
+     * so that it may run alongside other read-only commands.
+     * @return true if the command makes no changes
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    private static String nameOf(Class<?> type) {
+        String name = type.getSimpleName();
+        if (name.endsWith(CLASS_SUFFIX)) {
+            name = name.substring(0, name.length() - CLASS_SUFFIX.length());
+        }
+        return name.toLowerCase();
+    }
+
+    /**
+     * One way of executing the command, so that both can be timed alike.
+     */
+    private interface Execution {
+        boolean execute() throws PorusException;
+    }
+}
@@ -0,0 +1,65 @@
+package porus.command;
+
+import porus.*;
+import porus.task.Task;
+
+import java.util.List;
+
+/**
+ * Represents a command that deletes several tasks at once,
+ * such as a range of task numbers or every completed task.
+ */
+public class DeleteAllCommand extends Command implements Undoable {
+
+    private final Selection selection;
+    private int[] positions;
+    private List<Task> removed;
+
+    /**
+     * Creates a DeleteAllCommand.
+     *
+     * @param selection The tasks to remove.
+     */
+    public DeleteAllCommand(Selection selection) {
+        this.selection = selection;
+    }
+
+    /**
+     * Executes the bulk delete by removing every selected task in one pass
+     * over the list and recording the change as a single journal record.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If a selected task number is invalid.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        positions = selection.resolve(tasks);
+        if (positions.length == 0) {
+            ui.showMessage("No tasks matched, so nothing was removed.");
+            return false;
+        }
+
+        removed = tasks.removeAll(positions);
+        storage.appendDeleteAll(positions);
+        tasks.getHistory().record(this);
+        storage.compactIfNeeded(tasks);
+
+        ui.showTaskSummary("Noted. I've removed these " + removed.size() + " tasks:", removed,
+                "Now you have " + tasks.size() + " tasks in the list.");
+
+        return false;
+    }
+
+    /**
+     * Returns a command that puts the removed tasks back where they were.
+     */
+    @Override
+    public Undoable inverse() {
+        return new InsertAllCommand(positions, removed);
+    }
+}
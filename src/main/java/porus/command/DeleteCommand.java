@@ -6,9 +6,10 @@ import porus.task.Task;
 /**
  * Represents a command that deletes a task from the task list.
  */
-public class DeleteCommand extends Command {
+public class DeleteCommand extends Command implements Undoable {
 
     private final int index;
+    private Task removed;
 
     /**
      * Creates a DeleteCommand to remove the task at the specified index.
@@ -21,7 +22,7 @@ public class DeleteCommand extends Command {
 
     /**
      * Executes the delete operation by removing the task
-     * from the list and saving the updated list to storage.
+     * from the list and recording the change in storage.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
@@ -33,15 +34,23 @@ public class DeleteCommand extends Command {
     public boolean execute(TaskList tasks, UI ui, Storage storage)
             throws PorusException {
 
-        Task removed = tasks.remove(index);
-        storage.save(tasks.getAll());
+        removed = tasks.remove(index);
+        storage.appendDelete(index);
+        tasks.getHistory().record(this);
+        storage.compactIfNeeded(tasks);
 
-        ui.showLine();
-        System.out.println("Noted. I've removed this task:");
-        System.out.println("  " + removed);
-        System.out.println("Now you have " + tasks.size() + " tasks in the list.");
-        ui.showLine();
+        ui.showMessage("Noted. I've removed this task:",
+                "  " + removed,
+                "Now you have " + tasks.size() + " tasks in the list.");
 
         return false;
     }
+
+    /**
+     * Returns a command that puts the removed task back where it was.
+     */
+    @Override
+    public Undoable inverse() {
+        return new AddCommand(removed, index);
+    }
 }
\ No newline at end of file
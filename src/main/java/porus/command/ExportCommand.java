@@ -0,0 +1,73 @@
+package porus.command;
+
+import porus.*;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+/**
+ * Represents a command that writes every task in the list to a JSON Lines
+ * or CSV file, for use in other tools.
+ */
+public class ExportCommand extends Command {
+
+    private final String fileName;
+    private final ExchangeFormat format;
+
+    /**
+     * Creates an ExportCommand.
+     *
+     * @param fileName The file to write, replaced if it exists.
+     * @param format The format to write it in.
+     */
+    public ExportCommand(String fileName, ExchangeFormat format) {
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    /**
+     * Executes the export by streaming the tasks to the file in list order,
+     * decoding and writing one task at a time.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If the file cannot be written.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        Path path = Paths.get(fileName);
+        int count;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+
+            try (TaskExporter exporter = new TaskExporter(path, format)) {
+                Iterator<Task> iterator = tasks.iterator(0);
+                while (iterator.hasNext()) {
+                    exporter.write(iterator.next());
+                }
+                count = exporter.getCount();
+            }
+        } catch (IOException e) {
+            throw new PorusException("Could not write " + fileName + ": " + e.getMessage());
+        }
+
+        ui.showMessage("Exported " + count + " tasks to " + fileName + ".");
+        return false;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
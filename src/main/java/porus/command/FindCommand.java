@@ -5,26 +5,34 @@ import porus.UI;
 import porus.Storage;
 import porus.task.Task;
 
+import java.util.List;
+
 /**
  * Represents a command that searches for tasks
- * containing a specific keyword as a whole word.
+ * containing specific keywords as whole words, word prefixes
+ * ({@code meet*}) or words with typos ({@code meetign~}).
+ * Closer matches are listed first.
  */
 public class FindCommand extends Command {
 
     private final String keyword;
 
     /**
-     * Creates a FindCommand with the specified search keyword.
+     * Creates a FindCommand with the specified search query.
+     * Keywords separated by spaces must all match; groups separated
+     * by {@code |} are alternatives. A keyword ending in {@code *}
+     * matches as a prefix, and one ending in {@code ~}, {@code ~1} or
+     * {@code ~2} matches within that many edits.
      *
-     * @param keyword The keyword to search for in task descriptions.
+     * @param keyword The search query for task descriptions.
      */
     public FindCommand(String keyword) {
         this.keyword = keyword;
     }
 
     /**
-     * Executes the find operation by searching through all tasks
-     * and displaying those that contain the keyword as a whole word.
+     * Executes the find operation by looking up the task list's word index
+     * and displaying tasks that match the query.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
@@ -34,30 +42,13 @@ public class FindCommand extends Command {
     @Override
     public boolean execute(TaskList tasks, UI ui, Storage storage) {
 
-        ui.showLine();
-        System.out.println("Here are the matching tasks in your list:");
-
-        int count = 0;
-
-        for (int i = 0; i < tasks.size(); i++) {
-            Task t = tasks.get(i);
-
-            String[] words = t.getDescription().toLowerCase().split("\\s+");
-
-            for (String word : words) {
-                if (word.equals(keyword.toLowerCase())) {
-                    count++;
-                    System.out.println("  " + count + "." + t);
-                    break;
-                }
-            }
-        }
-
-        if (count == 0) {
-            System.out.println("  No matching tasks found.");
-        }
-
-        ui.showLine();
+        List<Task> matches = tasks.find(keyword);
+        ui.showMatches("Here are the matching tasks in your list:", matches);
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package porus.command;
+
+import porus.PorusException;
+import porus.Storage;
+import porus.TaskList;
+import porus.UI;
+
+/**
+ * Remembers the most recent changes to a task list so they can be undone and redone.
+ * <p>
+ * Changes are kept in a fixed-size ring buffer, so a long session never holds
+ * more than {@link #CAPACITY} of them; the oldest is dropped to make room.
+ * Undoing a change runs its {@link Undoable#inverse()}, which costs the same
+ * as the change itself and is persisted as a single journal record.
+ */
+public class History {
+
+    private static final int CAPACITY = 100;
+
+    private final Undoable[] entries = new Undoable[CAPACITY];
+    private int start;
+    private int size;
+    private int applied;
+    private boolean isReplaying;
+
+    /**
+     * Remembers a change that has just been made, dropping any changes that
+     * were undone and could have been redone.
+     *
+     * @param command command that changed the list
+     */
+    public void record(Undoable command) {
+        if (isReplaying) {
+            return;
+        }
+
+        while (size > applied) {
+            size--;
+            entries[slot(size)] = null;
+        }
+
+        if (size == CAPACITY) {
+            entries[start] = null;
+            start = slot(1);
+            size--;
+        }
+
+        entries[slot(size)] = command;
+        size++;
+        applied = size;
+    }
+
+    /**
+     * Reverses the most recent change that has not been undone yet.
+     *
+     * @return false if there was nothing to undo
+     * @throws PorusException If the change can no longer be reversed.
+     */
+    public boolean undo(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        if (applied == 0) {
+            return false;
+        }
+
+        replay(entries[slot(applied - 1)].inverse(), tasks, ui, storage);
+        applied--;
+        return true;
+    }
+
+    /**
+     * Makes the most recently undone change again.
+     *
+     * @return false if there was nothing to redo
+     * @throws PorusException If the change can no longer be made.
+     */
+    public boolean redo(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        if (applied == size) {
+            return false;
+        }
+
+        Undoable command = entries[slot(applied)];
+        replay(command, tasks, ui, storage);
+        applied++;
+        return true;
+    }
+
+    private void replay(Undoable command, TaskList tasks, UI ui, Storage storage) throws PorusException {
+        isReplaying = true;
+        try {
+            command.execute(tasks, ui, storage);
+        } finally {
+            isReplaying = false;
+        }
+    }
+
+    private int slot(int offset) {
+        return (start + offset) % CAPACITY;
+    }
+}
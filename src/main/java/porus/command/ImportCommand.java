@@ -0,0 +1,159 @@
+package porus.command;
+
+import porus.*;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Represents a command that adds the tasks in a JSON Lines or CSV file to
+ * the end of the list.
+ */
+public class ImportCommand extends Command implements Undoable {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final String fileName;
+    private final ExchangeFormat format;
+    private int start;
+    private int end;
+    // Tasks added the first time the command ran, which a redo adds again
+    private List<Task> imported;
+
+    /**
+     * Creates an ImportCommand.
+     *
+     * @param fileName The file to read.
+     * @param format The format it is in.
+     */
+    public ImportCommand(String fileName, ExchangeFormat format) {
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    /**
+     * Executes the import by reading the file a chunk of tasks at a time,
+     * adding each chunk to the list and recording it in storage as one
+     * journal write. Records that cannot be read are skipped and reported.
+     * If reading fails part way, the tasks added so far are kept and can be
+     * undone like a finished import. Run again as a redo, it adds the tasks
+     * it imported before instead of reading the file again, which may have
+     * changed since.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If the file cannot be read.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        if (imported != null) {
+            return redo(tasks, ui, storage);
+        }
+
+        start = tasks.size();
+        end = start;
+        imported = new ArrayList<>();
+        int skippedCount;
+        List<Integer> skippedLines;
+
+        try (TaskImporter importer = new TaskImporter(Paths.get(fileName), format)) {
+            List<Task> chunk = new ArrayList<>(CHUNK_SIZE);
+            Task task;
+            do {
+                task = importer.next();
+                if (task != null) {
+                    chunk.add(task);
+                }
+                if (chunk.size() == CHUNK_SIZE || (task == null && !chunk.isEmpty())) {
+                    addAll(tasks, storage, chunk);
+                    imported.addAll(chunk);
+                    chunk.clear();
+                }
+            } while (task != null);
+
+            skippedCount = importer.getSkippedCount();
+            skippedLines = importer.getSkippedLines();
+        } catch (NoSuchFileException e) {
+            throw new PorusException("There is no file " + fileName + ".");
+        } catch (IOException e) {
+            String message = "Could not read " + fileName + ": " + e.getMessage();
+            if (end > start) {
+                tasks.getHistory().record(this);
+                message += " The " + (end - start) + " tasks read before that were added.";
+            }
+            throw new PorusException(message);
+        }
+
+        if (end == start) {
+            ui.showMessage("No tasks were found in " + fileName + ", so nothing was added.",
+                    skippedMessage(skippedCount, skippedLines));
+            return false;
+        }
+
+        tasks.getHistory().record(this);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("Imported " + (end - start) + " tasks from " + fileName + ".");
+        lines.add("Now you have " + tasks.size() + " tasks in the list.");
+        if (skippedCount > 0) {
+            lines.add(skippedMessage(skippedCount, skippedLines));
+        }
+        ui.showMessage(lines.toArray(new String[0]));
+
+        return false;
+    }
+
+    private boolean redo(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        start = tasks.size();
+        end = start;
+        for (int from = 0; from < imported.size(); from += CHUNK_SIZE) {
+            addAll(tasks, storage, imported.subList(from, Math.min(from + CHUNK_SIZE, imported.size())));
+        }
+        tasks.getHistory().record(this);
+
+        ui.showMessage("Imported " + imported.size() + " tasks from " + fileName + " again.",
+                "Now you have " + tasks.size() + " tasks in the list.");
+        return false;
+    }
+
+    private void addAll(TaskList tasks, Storage storage, List<Task> chunk) throws PorusException {
+        int[] positions = new int[chunk.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = end + i;
+        }
+
+        tasks.insertAll(positions, chunk);
+        storage.appendInsertAll(positions, chunk);
+        storage.compactIfNeeded(tasks);
+        end += positions.length;
+    }
+
+    private static String skippedMessage(int skippedCount, List<Integer> skippedLines) {
+        if (skippedCount == 0) {
+            return "The file has no task records.";
+        }
+
+        String lines = skippedLines.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        if (skippedCount > skippedLines.size()) {
+            lines += ", ...";
+        }
+        return "Skipped " + skippedCount + " records that could not be read, on lines " + lines + ".";
+    }
+
+    /**
+     * Returns a command that deletes the imported tasks again.
+     */
+    @Override
+    public Undoable inverse() {
+        return new DeleteAllCommand(Selection.ofRanges(new int[] {start}, new int[] {end}));
+    }
+}
@@ -0,0 +1,60 @@
+package porus.command;
+
+import porus.*;
+import porus.task.Task;
+
+import java.util.List;
+
+/**
+ * Represents a command that puts several tasks back at the positions
+ * they were deleted from. Used to undo a {@link DeleteAllCommand}.
+ */
+class InsertAllCommand extends Command implements Undoable {
+
+    private final int[] positions;
+    private final List<Task> inserted;
+
+    /**
+     * Creates an InsertAllCommand.
+     *
+     * @param positions Positions the tasks will have, in increasing order.
+     * @param inserted Tasks to insert, one per position.
+     */
+    InsertAllCommand(int[] positions, List<Task> inserted) {
+        this.positions = positions;
+        this.inserted = inserted;
+    }
+
+    /**
+     * Executes the bulk insert in one pass over the list and records it
+     * in storage as one journal write.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If a position is invalid.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        tasks.insertAll(positions, inserted);
+        storage.appendInsertAll(positions, inserted);
+        tasks.getHistory().record(this);
+        storage.compactIfNeeded(tasks);
+
+        ui.showTaskSummary("Alright, I've put back these " + inserted.size() + " tasks:", inserted,
+                "Now you have " + tasks.size() + " tasks in the list.");
+
+        return false;
+    }
+
+    /**
+     * Returns a command that deletes the tasks again.
+     */
+    @Override
+    public Undoable inverse() {
+        return new DeleteAllCommand(Selection.of(positions));
+    }
+}
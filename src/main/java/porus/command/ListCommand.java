@@ -1,15 +1,46 @@
 package porus.command;
 
 import porus.*;
+import porus.task.Task;
+
+import java.util.Iterator;
+import java.util.function.Predicate;
 
 /**
- * Represents a command that displays all tasks
- * currently stored in the task list.
+ * Represents a command that displays the tasks
+ * currently stored in the task list, optionally
+ * limited to a range of positions and filtered.
  */
 public class ListCommand extends Command {
 
+    private final int from;
+    private final int to;
+    private final Predicate<Task> filter;
+
+    /**
+     * Creates a ListCommand that displays every task.
+     */
+    public ListCommand() {
+        this(0, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Creates a ListCommand that displays a page of the list.
+     *
+     * @param from The zero-based position of the first task to consider.
+     * @param to The zero-based position just past the last task to consider.
+     * @param filter The condition a task must meet to be shown, or null to show all.
+     */
+    public ListCommand(int from, int to, Predicate<Task> filter) {
+        this.from = from;
+        this.to = to;
+        this.filter = filter;
+    }
+
     /**
-     * Executes the list operation by displaying all tasks.
+     * Executes the list operation by streaming the requested tasks
+     * straight from the task list to the UI, without copying them
+     * into an intermediate collection.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
@@ -18,7 +49,35 @@ public class ListCommand extends Command {
      */
     @Override
     public boolean execute(TaskList tasks, UI ui, Storage storage) {
-        ui.showList(tasks.getAll());
+        ui.showListStart();
+
+        int shown = 0;
+        int end = Math.min(to, tasks.size());
+
+        if (from < end) {
+            Iterator<Task> rows = tasks.iterator(from);
+            for (int i = from; i < end; i++) {
+                Task task = rows.next();
+                if (filter == null || filter.test(task)) {
+                    ui.showListItem(i + 1, task);
+                    shown++;
+                }
+            }
+        }
+
+        if (shown > 0) {
+            ui.showListEnd(null);
+        } else if (tasks.isEmpty()) {
+            ui.showListEnd("  (No quests assigned yet.)");
+        } else {
+            ui.showListEnd("  No matching tasks found.");
+        }
+
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
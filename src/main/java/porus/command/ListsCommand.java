@@ -0,0 +1,63 @@
+package porus.command;
+
+import porus.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Represents a command that displays the named lists, which one is
+ * current, and how many tasks the loaded ones hold.
+ */
+public class ListsCommand extends Command {
+
+    private static final double MEGABYTE = 1 << 20;
+
+    /**
+     * Executes the lists operation by displaying every list in the registry.
+     * Lists that are not loaded are not loaded to count their tasks.
+     *
+     * @param lists The registry of named lists.
+     * @param ui The user interface handler.
+     * @return false since this command does not terminate the program.
+     */
+    @Override
+    public boolean execute(ListRegistry lists, UI ui) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Thy lists:");
+
+        int loadedCount = 0;
+        for (String name : lists.names()) {
+            TaskList tasks = lists.getLoaded(name);
+            String marker = name.equals(lists.currentName()) ? "* " : "  ";
+            if (tasks == null) {
+                lines.add(marker + name + " (not loaded)");
+            } else {
+                lines.add(marker + name + " (" + tasks.size() + " tasks)");
+                loadedCount++;
+            }
+        }
+
+        lines.add(String.format(Locale.ROOT, "%d loaded, using about %.1f MB of %.1f MB",
+                loadedCount, lists.estimateMemory() / MEGABYTE, lists.getMemoryBudget() / MEGABYTE));
+        ui.showMessage(lines.toArray(new String[0]));
+        return false;
+    }
+
+    /**
+     * Fails, since there is no registry of lists to show, as when serving
+     * a single list.
+     *
+     * @throws PorusException Always.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        throw new PorusException("Named lists are only available in the interactive app.");
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
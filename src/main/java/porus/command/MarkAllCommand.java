@@ -0,0 +1,85 @@
+package porus.command;
+
+import porus.*;
+import porus.task.Task;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Represents a command that marks or unmarks several tasks at once,
+ * such as a range of task numbers or the results of a search.
+ */
+public class MarkAllCommand extends Command implements Undoable {
+
+    private final Selection selection;
+    private final boolean isDone;
+    private int[] changed;
+
+    /**
+     * Creates a MarkAllCommand.
+     *
+     * @param selection The tasks to mark or unmark.
+     * @param isDone True if marking as done, false if unmarking.
+     */
+    public MarkAllCommand(Selection selection, boolean isDone) {
+        this.selection = selection;
+        this.isDone = isDone;
+    }
+
+    /**
+     * Executes the bulk mark/unmark by updating every selected task and
+     * recording the tasks that changed as a single journal record.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If a selected task number is invalid.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        int[] positions = selection.resolve(tasks);
+        changed = tasks.markAll(positions, isDone);
+
+        if (changed.length > 0) {
+            storage.appendMarkAll(changed, isDone);
+            tasks.getHistory().record(this);
+            storage.compactIfNeeded(tasks);
+        }
+
+        if (positions.length == 0) {
+            ui.showMessage("No tasks matched, so nothing was marked.");
+            return false;
+        }
+
+        // Tasks are only looked up for the few rows the summary shows
+        List<Task> selected = new AbstractList<Task>() {
+            @Override
+            public Task get(int i) {
+                return tasks.get(positions[i]);
+            }
+
+            @Override
+            public int size() {
+                return positions.length;
+            }
+        };
+
+        ui.showTaskSummary("I've marked " + positions.length + " tasks as "
+                + (isDone ? "done:" : "not done yet:"), selected,
+                changed.length + " of them changed.");
+
+        return false;
+    }
+
+    /**
+     * Returns a command that restores the previous status of the tasks that changed.
+     */
+    @Override
+    public Undoable inverse() {
+        return new MarkAllCommand(Selection.of(changed), !isDone);
+    }
+}
@@ -7,10 +7,11 @@ import porus.task.Task;
  * Represents a command that marks or unmarks
  * a task as done.
  */
-public class MarkCommand extends Command {
+public class MarkCommand extends Command implements Undoable {
 
     private final int index;
     private final boolean isDone;
+    private boolean wasDone;
 
     /**
      * Creates a MarkCommand.
@@ -25,7 +26,7 @@ public class MarkCommand extends Command {
 
     /**
      * Executes the mark/unmark operation by updating
-     * the task status and saving the updated list.
+     * the task status and recording the change in storage.
      *
      * @param tasks The current task list.
      * @param ui The user interface handler.
@@ -37,20 +38,28 @@ public class MarkCommand extends Command {
     public boolean execute(TaskList tasks, UI ui, Storage storage)
             throws PorusException {
 
+        if (index >= 0 && index < tasks.size()) {
+            wasDone = tasks.get(index).getDone();
+        }
         Task task = tasks.mark(index, isDone);
-        storage.save(tasks.getAll());
-
-        ui.showLine();
+        storage.appendMark(index, isDone);
+        tasks.getHistory().record(this);
+        storage.compactIfNeeded(tasks);
 
         if (isDone) {
-            System.out.println("Good job bretheren! I've marked this task as done:");
+            ui.showMessage("Good job bretheren! I've marked this task as done:", "  " + task);
         } else {
-            System.out.println("OK, I've marked this task as not done yet, dont be noob please:");
+            ui.showMessage("OK, I've marked this task as not done yet, dont be noob please:", "  " + task);
         }
 
-        System.out.println("  " + task);
-        ui.showLine();
-
         return false;
     }
+
+    /**
+     * Returns a command that restores the task's previous status.
+     */
+    @Override
+    public Undoable inverse() {
+        return new MarkCommand(index, wasDone);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package porus.command;
+
+import porus.Storage;
+import porus.TaskList;
+import porus.UI;
+import porus.task.Task;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Represents a command that lists deadlines and events
+ * falling within a date/time range, earliest first.
+ * Used by the due, upcoming and between commands.
+ */
+public class ScheduleCommand extends Command {
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int limit;
+    private final String heading;
+
+    /**
+     * Creates a ScheduleCommand.
+     *
+     * @param from The inclusive start of the range, or null for no lower bound.
+     * @param to The inclusive end of the range, or null for no upper bound.
+     * @param limit The maximum number of tasks to show.
+     * @param heading The line shown above the results.
+     */
+    public ScheduleCommand(LocalDateTime from, LocalDateTime to, int limit, String heading) {
+        this.from = from;
+        this.to = to;
+        this.limit = limit;
+        this.heading = heading;
+    }
+
+    /**
+     * Executes the range query against the task list's time index
+     * and displays the tasks found.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler.
+     * @return false since this command does not terminate the program.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage) {
+        List<Task> matches = tasks.findByTime(from, to, limit);
+        ui.showMatches(heading, matches);
+        return false;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package porus.command;
+
+import porus.PorusException;
+import porus.TaskList;
+
+import java.util.Arrays;
+
+/**
+ * Chooses the tasks a bulk command applies to: explicit task numbers and
+ * ranges, done or undone tasks, or tasks matching a find query.
+ * The selection is resolved against the list when the command runs.
+ */
+public class Selection {
+
+    private final int[] starts;
+    private final int[] ends;
+    private final String query;
+    private final Boolean status;
+
+    private Selection(int[] starts, int[] ends, String query, Boolean status) {
+        this.starts = starts;
+        this.ends = ends;
+        this.query = query;
+        this.status = status;
+    }
+
+    /**
+     * Selects the tasks in the given ranges of positions.
+     *
+     * @param starts zero-based first position of each range
+     * @param ends zero-based position just past each range
+     * @return the selection
+     */
+    public static Selection ofRanges(int[] starts, int[] ends) {
+        return new Selection(starts, ends, null, null);
+    }
+
+    /**
+     * Selects the tasks at the given positions.
+     *
+     * @param positions zero-based positions in increasing order
+     * @return the selection
+     */
+    static Selection of(int[] positions) {
+        int[] ends = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            ends[i] = positions[i] + 1;
+        }
+        return ofRanges(positions, ends);
+    }
+
+    /**
+     * Selects the tasks that are done, or the tasks that are not. Only the
+     * status of each task is read, so no task needs to be created.
+     *
+     * @param isDone status to select
+     * @return the selection
+     */
+    public static Selection withStatus(boolean isDone) {
+        return new Selection(null, null, null, isDone);
+    }
+
+    /**
+     * Selects the tasks that {@code find} would show for a query.
+     *
+     * @param query find query
+     * @return the selection
+     */
+    public static Selection matching(String query) {
+        return new Selection(null, null, query, null);
+    }
+
+    /**
+     * Works out which positions of the list are selected.
+     *
+     * @param tasks the current task list
+     * @return zero-based positions in increasing order, without repeats
+     * @throws PorusException If a task number is out of range.
+     */
+    int[] resolve(TaskList tasks) throws PorusException {
+        if (starts != null) {
+            return resolveRanges(tasks.size());
+        }
+        if (status != null) {
+            return tasks.positionsWithStatus(status);
+        }
+        return tasks.positionsOf(tasks.find(query));
+    }
+
+    /**
+     * Returns the positions in the ranges, sorted and without repeats. The
+     * ranges are cut off at the end of the list and merged where they
+     * overlap first, so that however many ranges there are, no more
+     * positions are produced than the list holds.
+     */
+    private int[] resolveRanges(int size) throws PorusException {
+        // Each range packed as start and clamped end, so sorting orders by start
+        long[] ranges = new long[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] < 0 || starts[i] >= size || ends[i] <= starts[i]) {
+                throw new PorusException("Invalid task number.");
+            }
+            // A range may run past the end of the list, as in "delete 5-500"
+            ranges[i] = (long) starts[i] << Integer.SIZE | Math.min(ends[i], size);
+        }
+        Arrays.sort(ranges);
+
+        int[] positions = new int[Math.min(size, 16)];
+        int count = 0;
+        int covered = 0;
+        for (long range : ranges) {
+            int start = Math.max((int) (range >>> Integer.SIZE), covered);
+            int end = (int) range;
+            if (end - start > positions.length - count) {
+                positions = Arrays.copyOf(positions,
+                        Math.min(size, Math.max(positions.length * 2, count + end - start)));
+            }
+            for (int position = start; position < end; position++) {
+                positions[count++] = position;
+            }
+            covered = Math.max(covered, end);
+        }
+        return Arrays.copyOf(positions, count);
+    }
+}
@@ -0,0 +1,38 @@
+package porus.command;
+
+import porus.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a command that displays how many tasks there are, and how
+ * long each stage of handling commands and each type of command has taken
+ * since the program started.
+ */
+public class StatsCommand extends Command {
+
+    /**
+     * Executes the stats operation by displaying the task counts followed
+     * by the latency table kept by {@link Metrics}.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler.
+     * @return false since this command does not terminate the program.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("Tasks: %d (%d done)", tasks.size(), tasks.countDone()));
+        lines.add("Latency since start, in microseconds:");
+        lines.addAll(Metrics.summary());
+        ui.showMessage(lines.toArray(new String[0]));
+        return false;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
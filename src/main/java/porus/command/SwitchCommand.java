@@ -0,0 +1,54 @@
+package porus.command;
+
+import porus.*;
+
+/**
+ * Represents a command that makes another named list the current one,
+ * creating it if it does not exist yet.
+ */
+public class SwitchCommand extends Command {
+
+    private final String name;
+
+    /**
+     * Creates a SwitchCommand.
+     *
+     * @param name The name of the list to switch to.
+     */
+    public SwitchCommand(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Executes the switch by making the named list current in the registry,
+     * which loads it on first use, and displaying its size.
+     *
+     * @param lists The registry of named lists.
+     * @param ui The user interface handler.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If the name is not a valid list name.
+     */
+    @Override
+    public boolean execute(ListRegistry lists, UI ui) throws PorusException {
+        boolean isExisting = lists.switchTo(name);
+        TaskList tasks = lists.current();
+
+        if (isExisting) {
+            ui.showMessage("Now on list " + name + ". It has " + tasks.size() + " tasks.");
+        } else {
+            ui.showMessage("Created list " + name + ". It has no tasks yet.");
+        }
+        return false;
+    }
+
+    /**
+     * Fails, since there is no registry of lists to switch between, as when
+     * serving a single list.
+     *
+     * @throws PorusException Always.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage) throws PorusException {
+        throw new PorusException("Switching lists is only possible in the interactive app.");
+    }
+}
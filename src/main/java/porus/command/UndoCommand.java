@@ -0,0 +1,47 @@
+package porus.command;
+
+import porus.*;
+
+/**
+ * Represents a command that undoes the most recent change to the task list,
+ * or redoes the most recently undone one.
+ */
+public class UndoCommand extends Command {
+
+    private final boolean isUndo;
+
+    /**
+     * Creates an UndoCommand.
+     *
+     * @param isUndo True to undo a change, false to redo one.
+     */
+    public UndoCommand(boolean isUndo) {
+        this.isUndo = isUndo;
+    }
+
+    /**
+     * Executes the undo/redo operation by replaying the change, or its
+     * inverse, from the task list's history. The replayed command shows
+     * its own message and records its own change in storage.
+     *
+     * @param tasks The current task list.
+     * @param ui The user interface handler.
+     * @param storage The storage handler for persistence.
+     * @return false since this command does not terminate the program.
+     * @throws PorusException If the change can no longer be replayed.
+     */
+    @Override
+    public boolean execute(TaskList tasks, UI ui, Storage storage)
+            throws PorusException {
+
+        History history = tasks.getHistory();
+
+        if (isUndo && !history.undo(tasks, ui, storage)) {
+            ui.showMessage("There is nothing to undo.");
+        } else if (!isUndo && !history.redo(tasks, ui, storage)) {
+            ui.showMessage("There is nothing to redo.");
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package porus.command;
+
+import porus.PorusException;
+import porus.Storage;
+import porus.TaskList;
+import porus.UI;
+
+/**
+ * A command whose change to the task list can be reversed. Only these are
+ * kept in a task list's {@link History}.
+ */
+public interface Undoable {
+
+    /**
+     * Executes the command, as {@link Command#execute(TaskList, UI, Storage)}.
+     * @return true if program should exit
+     */
+    boolean execute(TaskList tasks, UI ui, Storage storage) throws PorusException;
+
+    /**
+     * Returns a command that reverses the change this one made the last
+     * time it ran.
+     * @return the reversing command
+     */
+    Undoable inverse();
+}
@@ -0,0 +1,215 @@
+package porus.task;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Parses the free-text date/time details of deadlines and events.
+ * <p>
+ * Recognised dates are {@code yyyy-MM-dd} and {@code d/M/yyyy}, optionally
+ * followed by a time as {@code HHmm}, {@code HH:mm} or {@code h[:mm]am/pm}
+ * (e.g. "2026-02-10 1800", "10/2/2026 6pm"). Anything else, such as
+ * "Sunday", is left as text and has no parsed value. Parsing is done by hand
+ * rather than with {@code DateTimeFormatter}, so that the common case of
+ * unparseable text does not cost an exception.
+ */
+public final class DateTimeParser {
+
+    private static final int NOT_A_NUMBER = -1;
+
+    private DateTimeParser() {
+    }
+
+    /**
+     * Parses an absolute date and optional time. A date without a time
+     * is taken to mean the start of that day.
+     *
+     * @param text date/time detail
+     * @return parsed value, or null if the text is not a recognised date
+     */
+    public static LocalDateTime parse(String text) {
+        return parse(text, false);
+    }
+
+    /**
+     * Parses a date/time typed in a query. Besides absolute dates this accepts
+     * "now", "today", "tomorrow" and weekday names, which mean the next such day
+     * on or after today.
+     *
+     * @param text date/time typed by the user
+     * @param isEndOfDay whether a value without a time means the end of the day
+     *                   rather than its start, so that the whole day is included
+     * @param today current date
+     * @return parsed value, or null if the text is not recognised
+     */
+    public static LocalDateTime parseQuery(String text, boolean isEndOfDay, LocalDate today) {
+        String trimmed = text.trim().toLowerCase();
+
+        if (trimmed.equals("now")) {
+            return LocalDateTime.of(today, LocalTime.now());
+        }
+
+        int space = trimmed.indexOf(' ');
+        String datePart = space < 0 ? trimmed : trimmed.substring(0, space);
+        LocalDate date = parseRelativeDate(datePart, today);
+
+        if (date == null) {
+            return parse(text, isEndOfDay);
+        }
+
+        if (space < 0) {
+            return isEndOfDay ? date.atTime(LocalTime.MAX) : date.atStartOfDay();
+        }
+
+        LocalTime time = parseTime(trimmed.substring(space + 1).trim());
+        return time == null ? null : date.atTime(time);
+    }
+
+    private static LocalDateTime parse(String text, boolean isEndOfDay) {
+        if (text == null) {
+            return null;
+        }
+
+        String trimmed = text.trim();
+        if (trimmed.isEmpty() || !Character.isDigit(trimmed.charAt(0))) {
+            return null;
+        }
+
+        int split = trimmed.indexOf(' ');
+        if (split < 0 && trimmed.length() > 10 && trimmed.charAt(10) == 'T') {
+            split = 10;
+        }
+
+        LocalDate date = parseDate(split < 0 ? trimmed : trimmed.substring(0, split));
+        if (date == null) {
+            return null;
+        }
+
+        if (split < 0) {
+            return isEndOfDay ? date.atTime(LocalTime.MAX) : date.atStartOfDay();
+        }
+
+        LocalTime time = parseTime(trimmed.substring(split + 1).trim());
+        return time == null ? null : date.atTime(time);
+    }
+
+    /**
+     * Parses "today", "tomorrow" or a weekday name such as "fri" or "friday".
+     */
+    private static LocalDate parseRelativeDate(String word, LocalDate today) {
+        if (word.equals("today")) {
+            return today;
+        }
+        if (word.equals("tomorrow")) {
+            return today.plusDays(1);
+        }
+
+        if (word.length() >= 3) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                String name = day.name().toLowerCase();
+                if (name.startsWith(word)) {
+                    return today.with(TemporalAdjusters.nextOrSame(day));
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parses {@code yyyy-MM-dd} or {@code d/M/yyyy}.
+     */
+    private static LocalDate parseDate(String text) {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            return date(number(text, 0, 4), number(text, 5, 7), number(text, 8, 10));
+        }
+
+        int firstSlash = text.indexOf('/');
+        int secondSlash = text.indexOf('/', firstSlash + 1);
+        if (firstSlash > 0 && secondSlash > firstSlash) {
+            return date(number(text, secondSlash + 1, text.length()),
+                    number(text, firstSlash + 1, secondSlash), number(text, 0, firstSlash));
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the given date, or null if a field is missing or out of range,
+     * e.g. month 13 or 30 February.
+     */
+    private static LocalDate date(int year, int month, int day) {
+        if (year == NOT_A_NUMBER || month < 1 || month > 12 || day < 1
+                || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * Parses {@code HHmm}, {@code H:mm} or {@code h[:mm]am/pm}.
+     */
+    private static LocalTime parseTime(String text) {
+        String lower = text.toLowerCase();
+        int end = lower.length();
+        int offset = -1;
+
+        if (lower.endsWith("am") || lower.endsWith("pm")) {
+            offset = lower.endsWith("pm") ? 12 : 0;
+            end -= 2;
+        }
+
+        int hour;
+        int minute;
+        int colon = lower.indexOf(':');
+
+        if (colon >= 0) {
+            hour = number(lower, 0, colon);
+            minute = number(lower, colon + 1, end);
+        } else if (offset < 0 && end == 4) {
+            hour = number(lower, 0, 2);
+            minute = number(lower, 2, 4);
+        } else {
+            hour = number(lower, 0, end);
+            minute = 0;
+        }
+
+        if (offset >= 0) {
+            if (hour < 1 || hour > 12) {
+                return null;
+            }
+            hour = hour % 12 + offset;
+        }
+
+        if (hour == NOT_A_NUMBER || hour > 23 || minute == NOT_A_NUMBER || minute > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute);
+    }
+
+    /**
+     * Parses the digits in {@code text[from, to)}.
+     *
+     * @return the value, or {@link #NOT_A_NUMBER} if the range is empty,
+     *     too long or holds a non-digit
+     */
+    private static int number(String text, int from, int to) {
+        if (from >= to || to - from > 9) {
+            return NOT_A_NUMBER;
+        }
+
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_A_NUMBER;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
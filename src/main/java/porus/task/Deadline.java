@@ -1,11 +1,15 @@
 package porus.task;
 
+import java.time.LocalDateTime;
+
 /**
  * A task that must be completed by a specific time (stored as text).
+ * If the text is a recognised date, its parsed value is kept alongside it.
  */
 public class Deadline extends Task {
 
     private String by;
+    private LocalDateTime byDateTime;
 
     /**
      * Creates a porus.task.Deadline task.
@@ -28,12 +32,24 @@ public class Deadline extends Task {
     }
 
     /**
-     * Updates the deadline detail.
+     * Sets the deadline detail and its parsed value. Private, since a task
+     * list indexes tasks by their dates and would not see the change.
      *
      * @param by new deadline detail
      */
-    public void setBy(String by) {
+    private void setBy(String by) {
         this.by = by;
+        this.byDateTime = DateTimeParser.parse(by);
+    }
+
+    /**
+     * Returns the parsed deadline.
+     *
+     * @return deadline, or null if the detail is not a recognised date
+     */
+    @Override
+    public LocalDateTime getDateTime() {
+        return byDateTime;
     }
 
     @Override
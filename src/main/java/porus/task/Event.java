@@ -1,12 +1,17 @@
 package porus.task;
 
+import java.time.LocalDateTime;
+
 /**
  * A task that occurs during a time window (stored as text).
+ * If the start and end are recognised dates, their parsed values are kept alongside them.
  */
 public class Event extends Task {
 
     private String from;
     private String to;
+    private LocalDateTime fromDateTime;
+    private LocalDateTime toDateTime;
 
     /**
      * Creates an porus.task.Event task.
@@ -31,12 +36,14 @@ public class Event extends Task {
     }
 
     /**
-     * Updates the start time detail.
+     * Sets the start time detail and its parsed value. Private, since a task
+     * list indexes tasks by their start times and would not see the change.
      *
      * @param from new start detail
      */
-    public void setFrom(String from) {
+    private void setFrom(String from) {
         this.from = from;
+        this.fromDateTime = DateTimeParser.parse(from);
     }
 
     /**
@@ -49,12 +56,32 @@ public class Event extends Task {
     }
 
     /**
-     * Updates the end time detail.
+     * Sets the end time detail and its parsed value.
      *
      * @param to new end detail
      */
-    public void setTo(String to) {
+    private void setTo(String to) {
         this.to = to;
+        this.toDateTime = DateTimeParser.parse(to);
+    }
+
+    /**
+     * Returns the parsed start of the event.
+     *
+     * @return start, or null if the detail is not a recognised date
+     */
+    @Override
+    public LocalDateTime getDateTime() {
+        return fromDateTime;
+    }
+
+    /**
+     * Returns the parsed end of the event.
+     *
+     * @return end, or null if the detail is not a recognised date
+     */
+    public LocalDateTime getToDateTime() {
+        return toDateTime;
     }
 
     @Override
@@ -4,8 +4,15 @@
  */
 package porus.task;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public abstract class Task {
 
+    // Whether the one id setter has been handed out
+    private static final AtomicBoolean isIdSetterTaken = new AtomicBoolean();
+
+    private int id;
     private String description;
     private boolean isDone;
 
@@ -19,6 +26,47 @@ public abstract class Task {
         setDone(false);
     }
 
+    /**
+     * Returns the stable id of the task, or 0 if it has not been added to a list yet.
+     * Ids are handed out in increasing order and do not change when other tasks are deleted.
+     *
+     * @return task id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ids of tasks. Only the task list may number tasks, since its
+     * search indexes rely on ids increasing along the list.
+     */
+    public interface IdSetter {
+        void setId(Task task, int id);
+    }
+
+    /**
+     * Returns the only id setter. The task list lives in another package, so
+     * the setter cannot be package-private; it takes this once instead.
+     *
+     * @return id setter
+     * @throws IllegalStateException if the id setter was already taken
+     */
+    public static IdSetter idSetter() {
+        if (isIdSetterTaken.getAndSet(true)) {
+            throw new IllegalStateException("Task ids are already set by the task list.");
+        }
+        return Task::setId;
+    }
+
+    /**
+     * Sets the stable id of the task.
+     *
+     * @param id task id
+     */
+    private void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Returns the description of the task.
      *
@@ -29,11 +77,12 @@ public abstract class Task {
     }
 
     /**
-     * Updates the description of the task.
+     * Sets the description of the task. Private, since a task list indexes
+     * tasks by their descriptions and would not see the change.
      *
      * @param description new description
      */
-    public void setDescription(String description) {
+    private void setDescription(String description) {
         this.description = description;
     }
 
@@ -64,6 +113,16 @@ public abstract class Task {
         return isDone ? "X" : " ";
     }
 
+    /**
+     * Returns the point in time this task is ordered by, such as a deadline
+     * or an event's start, if it has one that could be parsed.
+     *
+     * @return parsed date/time, or null if the task has none
+     */
+    public LocalDateTime getDateTime() {
+        return null;
+    }
+
     /**
      * Returns the type icon for the task (e.g., "T", "D", "E").
      *
@@ -0,0 +1,96 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import porus.task.Deadline;
+import porus.task.Task;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link BinaryTaskFile} still reads files written by older versions.
+ */
+class BinaryTaskFileTest {
+
+    private static final byte VERSION_NO_DICTIONARY = 2;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Encodes one task record: its header byte, then each text field as a
+     * length and UTF-8 bytes.
+     */
+    private byte[] record(int header, String... fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(header);
+        for (String field : fields) {
+            byte[] text = field.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a version 2 file: no dictionary, and the checksum is the sum of
+     * the CRC32 of each record.
+     */
+    private void writeVersion2(Path file, byte[]... records) throws IOException {
+        long checksum = 0;
+        for (byte[] record : records) {
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            checksum += crc.getValue();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[] {'P', 'O', 'R', 'S'});
+        out.writeByte(VERSION_NO_DICTIONARY);
+        out.writeInt(records.length);
+        out.writeLong(7);
+        out.writeLong(checksum);
+        for (byte[] record : records) {
+            out.write(record);
+        }
+        Files.write(file, bytes.toByteArray());
+    }
+
+    @Test
+    void read_version2File_tasksAndGenerationRead() throws IOException {
+        Path file = directory.resolve("tasks.bin");
+        writeVersion2(file, record(0x80, "read book"), record(1, "return book", "Sunday"));
+
+        List<Task> tasks = BinaryTaskFile.read(file);
+
+        assertEquals(2, tasks.size());
+        assertEquals("read book", tasks.get(0).getDescription());
+        assertTrue(tasks.get(0).getDone());
+        assertEquals("Sunday", ((Deadline) tasks.get(1)).getBy());
+        assertFalse(tasks.get(1).getDone());
+        assertEquals(7, BinaryTaskFile.readGeneration(file));
+    }
+
+    @Test
+    void open_version2File_loadedThroughStorage() throws IOException {
+        Path file = directory.resolve("tasks.bin");
+        writeVersion2(file, record(0, "read book"));
+
+        Storage storage = Storage.create(file.toString());
+        assertEquals("read book", storage.load().get(0).getDescription());
+        assertTrue(storage.takeNotices().isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import porus.task.Deadline;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a columnar list keeps every task's fields when the text of
+ * removed tasks is compacted away.
+ */
+class ColumnarTaskStoreTest {
+
+    @Test
+    void remove_mostTasks_remainingFieldsKept() throws PorusException {
+        ArrayList<Task> loaded = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            loaded.add(i % 2 == 0 ? new Todo("task " + i) : new Deadline("task " + i, "day " + i));
+        }
+        TaskList tasks = new TaskList(loaded, TaskList.Layout.COLUMNAR);
+
+        // Removing all but every fifth task leaves enough dropped text to compact
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (i % 5 != 0) {
+                tasks.remove(i);
+            }
+        }
+        for (int i = 0; i < 20_000; i++) {
+            tasks.add(new Todo("added " + i));
+        }
+
+        assertEquals(24_000, tasks.size());
+        for (int i = 0; i < 4_000; i++) {
+            Task task = tasks.get(i);
+            assertEquals("task " + i * 5, task.getDescription());
+            if (i % 2 == 1) {
+                assertEquals("day " + i * 5, ((Deadline) task).getBy());
+            }
+        }
+        assertEquals("added 19999", tasks.get(23_999).getDescription());
+    }
+}
@@ -0,0 +1,305 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import porus.task.Deadline;
+import porus.task.Event;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks what {@link FileStorage} recovers when Porus stops without folding
+ * its journal into the snapshot, or finds its data file damaged.
+ */
+class FileStorageTest {
+
+    // Magic, version, count, generation and checksum of a binary snapshot
+    private static final int BINARY_HEADER_SIZE = 4 + 1 + Integer.BYTES + 2 * Long.BYTES;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Runs commands against a list, then closes its storage the way a crash
+     * would leave it: every journal record written, none folded in.
+     */
+    private void runWithoutCompacting(String path, String... inputs) throws PorusException {
+        Storage storage = Storage.create(path);
+        run(storage.open(), storage, inputs);
+        storage.close();
+    }
+
+    private void run(TaskList tasks, Storage storage, String... inputs) throws PorusException {
+        UI ui = new UI();
+        for (String input : inputs) {
+            Parser.parse(input).execute(tasks, ui, storage);
+        }
+    }
+
+    /**
+     * Runs commands against a list and folds them into its snapshot, leaving
+     * no journal behind.
+     */
+    private void runAndCompact(String path, String... inputs) throws PorusException {
+        Storage storage = Storage.create(path);
+        TaskList tasks = storage.open();
+        run(tasks, storage, inputs);
+        storage.compact(tasks);
+        storage.close();
+    }
+
+    /**
+     * Returns journal lines followed by the patch record that is journaled
+     * before a snapshot is patched, stamped with the journal's generation.
+     */
+    private List<String> withPatchRecord(List<String> records) {
+        List<String> lines = new ArrayList<>(records);
+        lines.add(records.get(0).replaceFirst("^S ", "P "));
+        return lines;
+    }
+
+    private String[] descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).toArray(String[]::new);
+    }
+
+    private void flipLastByte(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void journalReplay_textWithDelimiter_keptWhole() throws PorusException {
+        for (String suffix : new String[] {".bin", ".txt"}) {
+            String path = directory.resolve("tasks" + suffix).toString();
+            runWithoutCompacting(path,
+                    "todo a | b",
+                    "deadline x | y /by Sun | Mon",
+                    "event c \\| d\\ /from 1 | 2 /to 3\\",
+                    "delete 1",
+                    "todo first | one",
+                    "undo",
+                    "undo");
+
+            ArrayList<Task> tasks = Storage.create(path).load();
+
+            assertEquals(3, tasks.size());
+            assertEquals("a | b", tasks.get(0).getDescription());
+            assertEquals("x | y", tasks.get(1).getDescription());
+            assertEquals("Sun | Mon", ((Deadline) tasks.get(1)).getBy());
+            assertEquals("c \\| d\\", tasks.get(2).getDescription());
+            assertEquals("1 | 2", ((Event) tasks.get(2)).getFrom());
+            assertEquals("3\\", ((Event) tasks.get(2)).getTo());
+        }
+    }
+
+    @Test
+    void snapshot_textWithDelimiter_keptWhole() throws PorusException {
+        String path = directory.resolve("tasks.txt").toString();
+        Storage storage = Storage.create(path);
+        TaskList tasks = storage.open();
+        Parser.parse("todo a | b \\").execute(tasks, new UI(), storage);
+        storage.compact(tasks);
+        storage.close();
+
+        assertEquals("a | b \\", descriptions(Storage.create(path).load())[0]);
+    }
+
+    @Test
+    void journalReplay_undoneDelete_findKeepsListOrder() throws PorusException {
+        String path = directory.resolve("tasks.bin").toString();
+        Storage storage = Storage.create(path);
+        TaskList tasks = storage.open();
+        run(tasks, storage, "todo x book", "todo a book", "todo b book", "todo c book");
+        storage.compact(tasks);
+        run(tasks, storage, "delete 3", "undo");
+        storage.close();
+
+        TaskList reopened = Storage.create(path).open();
+
+        String[] expected = {"x book", "a book", "b book", "c book"};
+        assertArrayEquals(expected, descriptions(reopened.getAll()));
+        assertArrayEquals(expected, descriptions(reopened.find("book")));
+    }
+
+    @Test
+    void load_damagedFile_reportedAsNotice() throws Exception {
+        String path = directory.resolve("tasks.bin").toString();
+        runWithoutCompacting(path, "todo read book");
+        Storage storage = Storage.create(path);
+        storage.compact(storage.open());
+        storage.close();
+        flipLastByte(Path.of(path));
+
+        Storage damaged = Storage.create(path);
+        assertTrue(damaged.load().isEmpty());
+
+        List<String> notices = damaged.takeNotices();
+        assertEquals(2, notices.size());
+        assertTrue(notices.get(0).startsWith("Data file is damaged"));
+        assertTrue(damaged.takeNotices().isEmpty());
+    }
+
+    @Test
+    void takeNotices_otherThreadCausedThem_notReturned() throws Exception {
+        String path = directory.resolve("tasks.bin").toString();
+        runWithoutCompacting(path, "todo read book");
+        Storage storage = Storage.create(path);
+        storage.compact(storage.open());
+        storage.close();
+        flipLastByte(Path.of(path));
+
+        Storage damaged = Storage.create(path);
+        List<String> taken = new ArrayList<>();
+        Thread other = new Thread(() -> {
+            damaged.load();
+            taken.addAll(damaged.takeNotices());
+        });
+        other.start();
+        other.join();
+
+        assertTrue(damaged.takeNotices().isEmpty());
+        assertTrue(taken.get(0).startsWith("Data file is damaged"));
+    }
+
+    @Test
+    void open_journalStampDamaged_reportedAsNotice() throws Exception {
+        String path = directory.resolve("tasks.bin").toString();
+        runAndCompact(path, "todo read book");
+        runWithoutCompacting(path, "todo return book");
+        Path journal = Path.of(path + ".journal");
+        List<String> lines = new ArrayList<>(Files.readAllLines(journal));
+        lines.set(0, lines.get(0) + "x");
+        Files.write(journal, lines);
+
+        Storage storage = Storage.create(path);
+        assertEquals(0, storage.open().size());
+        assertTrue(storage.takeNotices().get(0).startsWith("Data file is damaged"));
+        assertEquals(lines, Files.readAllLines(Path.of(journal + ".corrupt")));
+    }
+
+    @Test
+    void load_tornSnapshot_setAsideAndStartsEmpty() throws Exception {
+        for (String suffix : new String[] {".bin", ".txt"}) {
+            Path file = directory.resolve("torn" + suffix);
+            runAndCompact(file.toString(), "todo read book", "todo return book", "todo buy milk");
+            byte[] bytes = Files.readAllBytes(file);
+            byte[] torn = Arrays.copyOf(bytes, bytes.length / 2);
+            Files.write(file, torn);
+
+            Storage storage = Storage.create(file.toString());
+            assertTrue(storage.load().isEmpty(), suffix);
+            assertTrue(storage.takeNotices().get(0).startsWith("Data file is damaged"), suffix);
+            assertArrayEquals(torn, Files.readAllBytes(Path.of(file + ".corrupt")), suffix);
+
+            runAndCompact(file.toString(), "todo after");
+            assertArrayEquals(new String[] {"after"}, descriptions(Storage.create(file.toString()).load()), suffix);
+        }
+    }
+
+    @Test
+    void load_checksumMismatch_fileAndJournalSetAside() throws Exception {
+        Path file = directory.resolve("tasks.bin");
+        Path journal = directory.resolve("tasks.bin.journal");
+        runAndCompact(file.toString(), "todo read book");
+        runWithoutCompacting(file.toString(), "todo return book");
+        flipLastByte(file);
+        byte[] damaged = Files.readAllBytes(file);
+        byte[] records = Files.readAllBytes(journal);
+
+        Storage storage = Storage.create(file.toString());
+        assertTrue(storage.open().getAll().isEmpty());
+        assertArrayEquals(damaged, Files.readAllBytes(Path.of(file + ".corrupt")));
+        assertArrayEquals(records, Files.readAllBytes(Path.of(journal + ".corrupt")));
+        assertFalse(Files.exists(journal) && Files.size(journal) > 0);
+    }
+
+    @Test
+    void open_patchInterruptedBeforeHeader_journalReplayed() throws Exception {
+        Path file = directory.resolve("tasks.bin");
+        Path journal = directory.resolve("tasks.bin.journal");
+        runAndCompact(file.toString(), "todo a", "todo b", "todo c");
+        byte[] before = Files.readAllBytes(file);
+
+        Storage storage = Storage.create(file.toString());
+        TaskList tasks = storage.open();
+        run(tasks, storage, "mark 2", "todo d");
+        storage.flush();
+        List<String> records = Files.readAllLines(journal);
+        storage.compact(tasks);
+        storage.close();
+
+        // The records were patched in, but the crash came before the header,
+        // which still holds the old count, generation and checksum
+        byte[] patched = Files.readAllBytes(file);
+        System.arraycopy(before, 0, patched, 0, BINARY_HEADER_SIZE);
+        Files.write(file, patched);
+        Files.write(journal, withPatchRecord(records));
+
+        List<Task> recovered = Storage.create(file.toString()).open().getAll();
+        assertArrayEquals(new String[] {"a", "b", "c", "d"}, descriptions(recovered));
+        assertTrue(recovered.get(1).getDone());
+        assertFalse(recovered.get(3).getDone());
+
+        Storage reopened = Storage.create(file.toString());
+        assertArrayEquals(new String[] {"a", "b", "c", "d"}, descriptions(reopened.load()));
+        assertTrue(reopened.takeNotices().isEmpty());
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    void open_journalOfPatchedGeneration_notReplayed() throws Exception {
+        Path file = directory.resolve("tasks.bin");
+        Path journal = directory.resolve("tasks.bin.journal");
+        runAndCompact(file.toString(), "todo a", "todo b");
+
+        Storage storage = Storage.create(file.toString());
+        TaskList tasks = storage.open();
+        run(tasks, storage, "mark 1", "todo c");
+        storage.flush();
+        List<String> records = Files.readAllLines(journal);
+        storage.compact(tasks);
+        storage.close();
+
+        // The patch finished, but the crash came before the journal was emptied
+        Files.write(journal, withPatchRecord(records));
+
+        Storage reopened = Storage.create(file.toString());
+        List<Task> recovered = reopened.open().getAll();
+        assertArrayEquals(new String[] {"a", "b", "c"}, descriptions(recovered));
+        assertTrue(recovered.get(0).getDone());
+        assertTrue(reopened.takeNotices().isEmpty());
+        assertEquals(0, Files.size(journal));
+    }
+
+    @Test
+    void open_fileTooLargeToMap_loadedAndKeptBySave() throws Exception {
+        Path file = directory.resolve("tasks.bin");
+        runAndCompact(file.toString(), "todo a", "todo b");
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+            // Sparse, so the bytes past the snapshot take no room on disk
+            out.setLength(Integer.MAX_VALUE + 1L);
+        }
+
+        Storage storage = Storage.create(file.toString());
+        TaskList tasks = storage.open();
+        assertArrayEquals(new String[] {"a", "b"}, descriptions(tasks.getAll()));
+        run(tasks, storage, "todo c");
+        storage.compact(tasks);
+        storage.close();
+
+        assertArrayEquals(new String[] {"a", "b", "c"}, descriptions(Storage.create(file.toString()).load()));
+    }
+}
@@ -0,0 +1,134 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link JournalWriter} writes every record, in order, in each
+ * durability mode.
+ */
+class JournalWriterTest {
+
+    private static final int THREADS = 4;
+    private static final int RECORDS_PER_THREAD = 250;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Appends records from several threads at once, each waiting for its
+     * record the way a command does before responding.
+     */
+    private void appendConcurrently(JournalWriter journal) throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        List<Exception> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                        journal.append(thread + " " + i);
+                        journal.awaitDurable();
+                    }
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+
+    /**
+     * Checks that the file holds every record of every thread, each thread's
+     * in the order it appended them.
+     */
+    private void assertAllWritten(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(THREADS * RECORDS_PER_THREAD, lines.size());
+
+        int[] next = new int[THREADS];
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]), line);
+        }
+    }
+
+    @Test
+    void append_syncMode_onDiskWhenReturns() throws IOException {
+        Path file = directory.resolve("sync.journal");
+        JournalWriter journal = new JournalWriter(file, Storage.Durability.SYNC);
+
+        journal.append("T | 0 | read book");
+        assertEquals(List.of("T | 0 | read book"), Files.readAllLines(file));
+
+        journal.append("M | 1 | 1");
+        journal.close();
+        assertEquals(List.of("T | 0 | read book", "M | 1 | 1"), Files.readAllLines(file));
+    }
+
+    @Test
+    void awaitDurable_groupModeConcurrentAppends_allWrittenInOrder() throws Exception {
+        Path file = directory.resolve("group.journal");
+        JournalWriter journal = new JournalWriter(file, Storage.Durability.GROUP);
+
+        appendConcurrently(journal);
+        // Every append was awaited, so nothing is left to flush
+        assertAllWritten(file);
+        journal.close();
+    }
+
+    @Test
+    void flush_asyncModeConcurrentAppends_allWrittenInOrder() throws Exception {
+        Path file = directory.resolve("async.journal");
+        JournalWriter journal = new JournalWriter(file, Storage.Durability.ASYNC);
+
+        appendConcurrently(journal);
+        journal.flush();
+        assertAllWritten(file);
+        journal.close();
+    }
+
+    @Test
+    void truncate_queuedAndWrittenRecords_dropped() throws IOException {
+        Path file = directory.resolve("async.journal");
+        JournalWriter journal = new JournalWriter(file, Storage.Durability.ASYNC);
+
+        journal.append("written");
+        journal.flush();
+        journal.append("queued");
+        journal.truncate();
+        assertEquals(0, Files.size(file));
+
+        journal.append("after");
+        journal.close();
+        assertEquals(List.of("after"), Files.readAllLines(file));
+    }
+
+    @Test
+    void close_reopenedInOtherMode_appendsToSameFile() throws IOException {
+        Path file = directory.resolve("tasks.journal");
+        JournalWriter group = new JournalWriter(file, Storage.Durability.GROUP);
+        group.append("first");
+        group.close();
+
+        JournalWriter sync = new JournalWriter(file, Storage.Durability.SYNC);
+        sync.append("second");
+        sync.close();
+        assertEquals(List.of("first", "second"), Files.readAllLines(file));
+    }
+}
@@ -0,0 +1,27 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import porus.command.ScheduleCommand;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks which arguments {@link Parser} accepts.
+ */
+class ParserTest {
+
+    @Test
+    void parse_upcomingWithPositiveCount_accepted() throws PorusException {
+        assertInstanceOf(ScheduleCommand.class, Parser.parse("upcoming"));
+        assertInstanceOf(ScheduleCommand.class, Parser.parse("upcoming 1"));
+        assertInstanceOf(ScheduleCommand.class, Parser.parse("upcoming 25"));
+    }
+
+    @Test
+    void parse_upcomingWithCountBelowOne_throws() {
+        assertThrows(PorusException.class, () -> Parser.parse("upcoming 0"));
+        assertThrows(PorusException.class, () -> Parser.parse("upcoming -1"));
+        assertThrows(PorusException.class, () -> Parser.parse("upcoming soon"));
+    }
+}
@@ -0,0 +1,94 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks how {@link TaskImporter} reads quoted and escaped text, and which
+ * records it skips.
+ */
+class TaskImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private TaskImporter importer;
+
+    /**
+     * Writes a file and reads every task in it, keeping the importer around
+     * so that its skipped lines can be checked.
+     */
+    private String[] importAll(String name, ExchangeFormat format, String contents) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, contents);
+
+        List<String> tasks = new ArrayList<>();
+        importer = new TaskImporter(file, format);
+        try {
+            for (Task task = importer.next(); task != null; task = importer.next()) {
+                tasks.add(task.toString());
+            }
+        } finally {
+            importer.close();
+        }
+        return tasks.toArray(String[]::new);
+    }
+
+    @Test
+    void next_csvQuotedFields_commasQuotesAndLineBreaksKept() throws IOException {
+        String[] tasks = importAll("tasks.csv", ExchangeFormat.CSV,
+                "type,done,description,by,from,to\n"
+                + "todo,false,\"read, then \"\"return\"\"\nbook\",,,\n"
+                + "deadline,true,\"\",\"\",,\n"
+                + "d,1,essay,\"Sunday, 6pm\",,\n");
+
+        assertArrayEquals(new String[] {"[T][ ] read, then \"return\" book", "[D][X] essay (by: Sunday, 6pm)"},
+                tasks);
+        assertEquals(List.of(4), importer.getSkippedLines());
+    }
+
+    @Test
+    void next_csvReorderedColumnsAndCrlf_read() throws IOException {
+        String[] tasks = importAll("tasks.csv", ExchangeFormat.CSV,
+                "\uFEFFDescription,Type,extra,to,from\r\n"
+                + "read book,todo,x\r\n"
+                + "\r\n"
+                + "meeting,event,x,5pm,2pm\r\n");
+
+        assertArrayEquals(new String[] {"[T][ ] read book", "[E][ ] meeting (from: 2pm to: 5pm)"}, tasks);
+        assertEquals(0, importer.getSkippedCount());
+    }
+
+    @Test
+    void next_jsonEscapes_decoded() throws IOException {
+        String[] tasks = importAll("tasks.jsonl", ExchangeFormat.JSON_LINES,
+                "{\"type\": \"todo\", \"description\": \"say \\\"hi\\\" \\\\ caf\\u00e9\\/bar\"}\n"
+                + "{\"type\":\"todo\",\"done\":true,\"description\":\"two\\nlines\",\"tags\":[\"a\",{\"b\":\"]\"}]}\n");
+
+        assertArrayEquals(new String[] {"[T][ ] say \"hi\" \\ caf\u00e9/bar", "[T][X] two lines"}, tasks);
+    }
+
+    @Test
+    void next_jsonMalformedLines_skippedWithLineNumbers() throws IOException {
+        String[] tasks = importAll("tasks.jsonl", ExchangeFormat.JSON_LINES,
+                "{\"type\":\"todo\",\"description\":\"bad \\q escape\"}\n"
+                + "{\"type\":\"todo\",\"description\":\"unclosed}\n"
+                + "\n"
+                + "{\"type\":\"todo\",\"description\":\"fine\"} trailing\n"
+                + "{\"type\":\"todo\",\"done\":yes,\"description\":\"bad literal\"}\n"
+                + "{\"type\":\"todo\",\"description\":\"kept\"}\n");
+
+        assertArrayEquals(new String[] {"[T][ ] kept"}, tasks);
+        assertEquals(List.of(1, 2, 4, 5), importer.getSkippedLines());
+    }
+}
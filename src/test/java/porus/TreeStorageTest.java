@@ -0,0 +1,132 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks which tree {@link TreeStorage} loads when a crash or damage leaves
+ * the newest commit incomplete.
+ */
+class TreeStorageTest {
+
+    private static final int PAGE_SIZE = 4096;
+    // Where the generation and the root page are in a header page
+    private static final int GENERATION_OFFSET = 8;
+    private static final int ROOT_OFFSET = 16;
+    private static final int PAGE_HEADER_SIZE = 12;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Runs commands against a list, committing each one as the console loop
+     * does, then closes its storage.
+     */
+    private void run(Path file, String... inputs) throws PorusException {
+        Storage storage = Storage.create(file.toString());
+        TaskList tasks = storage.open();
+        UI ui = new UI();
+        for (String input : inputs) {
+            Parser.parse(input).execute(tasks, ui, storage);
+            storage.awaitDurable();
+        }
+        storage.close();
+    }
+
+    private String[] descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).toArray(String[]::new);
+    }
+
+    /**
+     * Returns the header page written by the latest commit.
+     */
+    private int newestHeader(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return buffer.getLong(GENERATION_OFFSET) > buffer.getLong(PAGE_SIZE + GENERATION_OFFSET) ? 0 : 1;
+    }
+
+    private void flipByte(Path file, int position) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[position] ^= 1;
+        Files.write(file, bytes);
+    }
+
+    @Test
+    void load_newestHeaderTorn_olderTreeLoaded() throws Exception {
+        Path file = directory.resolve("tasks.db");
+        run(file, "todo a", "todo b", "todo c");
+        int header = newestHeader(Files.readAllBytes(file));
+        flipByte(file, header * PAGE_SIZE + GENERATION_OFFSET);
+
+        Storage storage = Storage.create(file.toString());
+        assertArrayEquals(new String[] {"a", "b"}, descriptions(storage.load()));
+        assertTrue(storage.takeNotices().isEmpty());
+
+        // Pages only the lost commit used are free again and must not clobber
+        // the tree now in use
+        run(file, "todo d", "mark 1");
+        List<Task> tasks = Storage.create(file.toString()).load();
+        assertArrayEquals(new String[] {"a", "b", "d"}, descriptions(tasks));
+        assertTrue(tasks.get(0).getDone());
+    }
+
+    @Test
+    void load_newestRootDamaged_olderTreeLoaded() throws Exception {
+        Path file = directory.resolve("tasks.db");
+        run(file, "todo a", "todo b", "mark 2");
+        byte[] bytes = Files.readAllBytes(file);
+        int root = ByteBuffer.wrap(bytes).getInt(newestHeader(bytes) * PAGE_SIZE + ROOT_OFFSET);
+        flipByte(file, root * PAGE_SIZE + PAGE_HEADER_SIZE);
+
+        List<Task> tasks = Storage.create(file.toString()).load();
+        assertArrayEquals(new String[] {"a", "b"}, descriptions(tasks));
+        assertFalse(tasks.get(1).getDone());
+    }
+
+    @Test
+    void awaitDurable_asyncMode_leavesCommitToClose() throws Exception {
+        Path file = directory.resolve("tasks.db");
+        run(file, "todo a");
+        byte[] committed = Files.readAllBytes(file);
+
+        Storage storage = Storage.create(file.toString());
+        storage.setDurability(Storage.Durability.ASYNC);
+        TaskList tasks = storage.open();
+        UI ui = new UI();
+        for (String input : new String[] {"todo b", "mark 1"}) {
+            Parser.parse(input).execute(tasks, ui, storage);
+            storage.awaitDurable();
+        }
+        assertArrayEquals(committed, Files.readAllBytes(file));
+
+        storage.close();
+        List<Task> loaded = Storage.create(file.toString()).load();
+        assertArrayEquals(new String[] {"a", "b"}, descriptions(loaded));
+        assertTrue(loaded.get(0).getDone());
+    }
+
+    @Test
+    void load_bothHeadersTorn_setAsideAndStartsEmpty() throws Exception {
+        Path file = directory.resolve("tasks.db");
+        run(file, "todo a", "todo b");
+        flipByte(file, GENERATION_OFFSET);
+        flipByte(file, PAGE_SIZE + GENERATION_OFFSET);
+        byte[] damaged = Files.readAllBytes(file);
+
+        Storage storage = Storage.create(file.toString());
+        assertTrue(storage.load().isEmpty());
+        assertTrue(storage.takeNotices().get(0).startsWith("Data file is damaged"));
+        assertArrayEquals(damaged, Files.readAllBytes(Path.of(file + ".corrupt")));
+    }
+}
@@ -0,0 +1,62 @@
+package porus;
+
+import org.junit.jupiter.api.Test;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks which tasks {@link WordIndex} finds for prefix and fuzzy query words,
+ * and in what order.
+ */
+class WordIndexTest {
+
+    private static TaskList listOf(String... descriptions) {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (String description : descriptions) {
+            tasks.add(new Todo(description));
+        }
+        return new TaskList(tasks);
+    }
+
+    private static String[] descriptions(List<Task> tasks) {
+        return tasks.stream().map(Task::getDescription).toArray(String[]::new);
+    }
+
+    @Test
+    void search_prefix_exactWordFirstThenListOrder() {
+        TaskList tasks = listOf("reading list", "return book", "read book", "bread", "readme");
+
+        assertArrayEquals(new String[] {"read book", "reading list", "readme"},
+                descriptions(tasks.find("read*")));
+    }
+
+    @Test
+    void search_prefixAndExactWord_bothMustMatch() {
+        TaskList tasks = listOf("reading list", "read book", "reading book", "return book");
+
+        assertArrayEquals(new String[] {"read book", "reading book"},
+                descriptions(tasks.find("read* book")));
+    }
+
+    @Test
+    void search_fuzzy_closerMatchesFirst() {
+        TaskList tasks = listOf("melting ice", "team meeting", "meet up", "greeting card");
+
+        assertArrayEquals(new String[] {"team meeting", "melting ice", "meet up"},
+                descriptions(tasks.find("meetng~")));
+        assertArrayEquals(new String[] {"team meeting"}, descriptions(tasks.find("meetng~1")));
+    }
+
+    @Test
+    void search_fuzzyShortWord_oneEditOnly() {
+        TaskList tasks = listOf("bolt", "boot", "book");
+
+        assertArrayEquals(new String[] {"book", "boot"}, descriptions(tasks.find("book~")));
+        assertArrayEquals(new String[] {"book", "boot", "bolt"}, descriptions(tasks.find("book~2")));
+    }
+}
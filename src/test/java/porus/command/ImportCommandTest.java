@@ -0,0 +1,54 @@
+package porus.command;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import porus.Parser;
+import porus.PorusException;
+import porus.Storage;
+import porus.TaskList;
+import porus.UI;
+import porus.task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Checks how an {@link ImportCommand} is undone and redone.
+ */
+class ImportCommandTest {
+
+    @TempDir
+    Path directory;
+
+    private void run(TaskList tasks, Storage storage, String... inputs) throws PorusException {
+        UI ui = new UI();
+        for (String input : inputs) {
+            Parser.parse(input).execute(tasks, ui, storage);
+        }
+    }
+
+    private String[] descriptions(TaskList tasks) {
+        return tasks.getAll().stream().map(Task::getDescription).toArray(String[]::new);
+    }
+
+    @Test
+    void redo_fileChangedSinceImport_sameTasksAddedAgain() throws PorusException, IOException {
+        Path file = directory.resolve("tasks.csv");
+        Files.writeString(file, "type,done,description,by,from,to\ntodo,false,a,,,\ntodo,false,b,,,\n");
+        Storage storage = Storage.create(directory.resolve("tasks.bin").toString());
+        TaskList tasks = storage.open();
+
+        run(tasks, storage, "todo first", "import " + file, "undo");
+        Files.writeString(file, "type,done,description,by,from,to\ntodo,false,changed,,,\n");
+        run(tasks, storage, "redo");
+
+        assertArrayEquals(new String[] {"first", "a", "b"}, descriptions(tasks));
+
+        run(tasks, storage, "undo");
+        assertArrayEquals(new String[] {"first"}, descriptions(tasks));
+        storage.close();
+    }
+}
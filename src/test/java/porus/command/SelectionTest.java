@@ -0,0 +1,76 @@
+package porus.command;
+
+import org.junit.jupiter.api.Test;
+import porus.PorusException;
+import porus.TaskList;
+import porus.task.Task;
+import porus.task.Todo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks how {@link Selection} turns ranges of task numbers into positions.
+ */
+class SelectionTest {
+
+    private static TaskList listOf(int size) {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        return new TaskList(tasks);
+    }
+
+    @Test
+    void resolve_overlappingRanges_mergedInOrder() throws PorusException {
+        Selection selection = Selection.ofRanges(new int[] {6, 0, 2, 2}, new int[] {8, 3, 5, 4});
+
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 6, 7}, selection.resolve(listOf(10)));
+    }
+
+    @Test
+    void resolve_rangesPastEnd_clamped() throws PorusException {
+        Selection selection = Selection.ofRanges(new int[] {3, 1}, new int[] {Integer.MAX_VALUE, 2});
+
+        assertArrayEquals(new int[] {1, 3, 4}, selection.resolve(listOf(5)));
+    }
+
+    @Test
+    void resolve_manyRepeatedRanges_noMorePositionsThanTasks() throws PorusException {
+        int size = 1000;
+        int[] starts = new int[3_000_000];
+        int[] ends = new int[starts.length];
+        Arrays.fill(ends, size);
+
+        int[] expected = new int[size];
+        Arrays.setAll(expected, i -> i);
+        assertArrayEquals(expected, Selection.ofRanges(starts, ends).resolve(listOf(size)));
+    }
+
+    @Test
+    void resolve_startOutOfRange_throws() {
+        Selection selection = Selection.ofRanges(new int[] {5}, new int[] {6});
+
+        assertThrows(PorusException.class, () -> selection.resolve(listOf(5)));
+    }
+
+    @Test
+    void resolve_matchingAfterRemovals_positionsInListOrder() throws PorusException {
+        ArrayList<Task> loaded = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            loaded.add(new Todo(i % 3 == 0 ? "read book " + i : "buy pen " + i));
+        }
+        for (TaskList tasks : new TaskList[] {new TaskList(loaded), new TaskList(loaded, TaskList.Layout.COLUMNAR)}) {
+            tasks.remove(3);
+            tasks.remove(0);
+
+            // Books 6 and 9 are now at positions 4 and 7
+            assertArrayEquals(new int[] {4, 7}, Selection.matching("book").resolve(tasks));
+            assertArrayEquals(new int[0], Selection.matching("lamp").resolve(tasks));
+        }
+    }
+}
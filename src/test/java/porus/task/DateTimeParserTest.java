@@ -0,0 +1,78 @@
+package porus.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Checks which date/time details {@link DateTimeParser} recognises, and that
+ * everything else is left as text.
+ */
+class DateTimeParserTest {
+
+    // A Sunday
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 18);
+
+    @Test
+    void parse_recognisedFormats_parsed() {
+        assertEquals(LocalDateTime.of(2026, 2, 10, 18, 0), DateTimeParser.parse("2026-02-10 1800"));
+        assertEquals(LocalDateTime.of(2026, 2, 10, 18, 0), DateTimeParser.parse("2026-02-10T18:00"));
+        assertEquals(LocalDateTime.of(2026, 2, 10, 18, 0), DateTimeParser.parse("10/2/2026 6pm"));
+        assertEquals(LocalDateTime.of(2026, 2, 10, 7, 5), DateTimeParser.parse(" 10/2/2026 7:05am "));
+        assertEquals(LocalDateTime.of(2026, 2, 10, 0, 0), DateTimeParser.parse("10/2/2026 12am"));
+        assertEquals(LocalDateTime.of(2026, 2, 10, 12, 0), DateTimeParser.parse("10/2/2026 12PM"));
+    }
+
+    @Test
+    void parse_dateWithoutTime_startOfDay() {
+        assertEquals(LocalDateTime.of(2026, 2, 10, 0, 0), DateTimeParser.parse("2026-02-10"));
+    }
+
+    @Test
+    void parse_notADate_null() {
+        String[] texts = {null, "", "Sunday", "next week", "2026-13-01", "31/2/2026",
+            "2026-02-10 25:00", "10/2/2026 13pm", "10/2/2026 0am", "2026-02-10 noon", "/2/2026"};
+        for (String text : texts) {
+            assertNull(DateTimeParser.parse(text), text);
+        }
+    }
+
+    @Test
+    void parse_digitsFollowedByText_null() {
+        String[] texts = {"5pmish", "2026-01-01 5pmish", "10/2/2026 6:3x0pm", "2026-0a-10",
+            "10/2/20x6", "29/2/2025", "2026-02-10 12:60", "2026-02-10 123456789012"};
+        for (String text : texts) {
+            assertNull(DateTimeParser.parse(text), text);
+        }
+        assertEquals(LocalDateTime.of(2024, 2, 29, 0, 0), DateTimeParser.parse("29/2/2024"));
+    }
+
+    @Test
+    void deadline_byDigitsFollowedByText_keptAsText() {
+        Deadline deadline = new Deadline("x", "5pmish");
+
+        assertEquals("5pmish", deadline.getBy());
+        assertNull(deadline.getDateTime());
+    }
+
+    @Test
+    void parseQuery_relativeDays_fromToday() {
+        assertEquals(TODAY.atStartOfDay(), DateTimeParser.parseQuery("today", false, TODAY));
+        assertEquals(TODAY.plusDays(1).atTime(LocalTime.MAX), DateTimeParser.parseQuery("Tomorrow", true, TODAY));
+        assertEquals(LocalDateTime.of(2026, 10, 23, 0, 0), DateTimeParser.parseQuery("fri", false, TODAY));
+        assertEquals(LocalDateTime.of(2026, 10, 18, 9, 0), DateTimeParser.parseQuery("sunday 9am", false, TODAY));
+    }
+
+    @Test
+    void parseQuery_absoluteOrUnknown_parsedAsDetail() {
+        assertEquals(LocalDate.of(2026, 2, 10).atTime(LocalTime.MAX),
+                DateTimeParser.parseQuery("2026-02-10", true, TODAY));
+        assertNull(DateTimeParser.parseQuery("fr", false, TODAY));
+        assertNull(DateTimeParser.parseQuery("friday later", false, TODAY));
+    }
+}